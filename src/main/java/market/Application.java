@@ -8,12 +8,14 @@ import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfigurat
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootConfiguration
 @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
-@Import({DataConfig.class, SecurityConfig.class, ServletConfig.class})
+@Import({DataConfig.class, SessionConfig.class, SecurityConfig.class, ServletConfig.class})
 @ComponentScan(basePackages = {"market.service"})
 @PropertySource("classpath:/market.properties")
+@EnableScheduling
 public class Application {
 
 	public static void main(String[] args) {
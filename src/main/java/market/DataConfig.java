@@ -1,13 +1,18 @@
 package market;
 
 import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -16,6 +21,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.Properties;
 
 @Configuration
 @EnableTransactionManagement
@@ -35,15 +41,44 @@ public class DataConfig {
 		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
 	}
 
+	/**
+	 * Creates the database objects which are not mapped to the entities, such as sequences,
+	 * unless {@code db.initializeSchema} is off.
+	 */
+	@Bean
+	public DataSourceInitializer schemaInitializer(DataSource dataSource,
+		@Value("${db.initializeSchema:true}") boolean enabled)
+	{
+		DataSourceInitializer initializer = new DataSourceInitializer();
+		initializer.setDataSource(dataSource);
+		initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("db/schema-postgresql.sql")));
+		initializer.setEnabled(enabled);
+		return initializer;
+	}
+
 	@Bean
 	public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
 		LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean(); // todo: EntityManagerFactoryBuilder ?
 		em.setDataSource(dataSource);
 		em.setPackagesToScan("market.domain");
 		em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		em.setJpaProperties(jpaProperties());
 		return em;
 	}
 
+	/**
+	 * Inserts of an order, its bill and ordered products are sent in JDBC batches on flush.
+	 * Lazy references to the enhanced entities are the entities themselves, not proxies.
+	 */
+	private static Properties jpaProperties() {
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.bytecode.allow_enhancement_as_proxy", "true");
+		properties.setProperty("hibernate.jdbc.batch_size", "50");
+		properties.setProperty("hibernate.order_inserts", "true");
+		properties.setProperty("hibernate.order_updates", "true");
+		return properties;
+	}
+
 	@Bean
 	public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
 		JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -51,6 +86,11 @@ public class DataConfig {
 		return transactionManager;
 	}
 
+	@Bean
+	public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+		return new JdbcTemplate(dataSource);
+	}
+
 	@Bean
 	public PersistenceExceptionTranslationPostProcessor exceptionTranslation() {
 		return new PersistenceExceptionTranslationPostProcessor();
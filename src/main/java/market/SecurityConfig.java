@@ -3,13 +3,17 @@ package market;
 import market.dto.assembler.CartDtoAssembler;
 import market.security.AuthenticationService;
 import market.security.CustomAuthenticationSuccessHandler;
+import market.security.GuestCartCookie;
 import market.security.UserDetailsServiceImpl;
+import market.service.CartService;
 import market.service.UserAccountService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.CachingUserDetailsService;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.BeanIds;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -17,8 +21,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
 
 import javax.servlet.ServletContext;
 
@@ -32,6 +43,10 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 	private DaoAuthenticationProvider daoAuthenticationProvider;
 	@Autowired
 	private AuthenticationSuccessHandler customAuthenticationSuccessHandler;
+	@Autowired
+	private SessionRegistry sessionRegistry;
+	@Autowired
+	private UserDetailsService cachingUserDetailsService;
 
 	protected void configure(HttpSecurity http) throws Exception {
 		http.authorizeRequests()
@@ -48,22 +63,39 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 				.successHandler(customAuthenticationSuccessHandler)
 				.failureUrl("/login?error").and()
 			.rememberMe()
-				.key("marketAppKey").and()
+				.key("marketAppKey")
+				.userDetailsService(cachingUserDetailsService).and()
 			.logout()
 				.logoutUrl("/logout")
 				.logoutSuccessUrl("/")
 				.invalidateHttpSession(true)
-				.deleteCookies("JSESSIONID").and()
-			.sessionManagement().maximumSessions(25).and().and()
+				.deleteCookies("SESSION").and()
+			.sessionManagement().maximumSessions(25).sessionRegistry(sessionRegistry).and().and()
 			.csrf().disable()
 		;
 	}
 
 	@Bean
 	public AuthenticationSuccessHandler customAuthenticationSuccessHandler(ServletContext servletContext,
-		UserAccountService userAccountService, CartDtoAssembler cartDtoAssembler)
+		CartService cartService, CartDtoAssembler cartDtoAssembler, GuestCartCookie guestCartCookie)
+	{
+		return new CustomAuthenticationSuccessHandler(servletContext, cartService, cartDtoAssembler, guestCartCookie);
+	}
+
+	/**
+	 * Sessions of all the application nodes are counted in the session store, if it supports
+	 * the lookup by user name.
+	 */
+	@Bean
+	public SessionRegistry sessionRegistry(
+		ObjectProvider<FindByIndexNameSessionRepository<? extends Session>> sessionRepository)
 	{
-		return new CustomAuthenticationSuccessHandler(servletContext, userAccountService, cartDtoAssembler);
+		FindByIndexNameSessionRepository<? extends Session> repository = sessionRepository.getIfAvailable();
+		return (repository == null) ? new SessionRegistryImpl() : sessionRegistry(repository);
+	}
+
+	private static <S extends Session> SessionRegistry sessionRegistry(FindByIndexNameSessionRepository<S> repository) {
+		return new SpringSessionBackedSessionRegistry<>(repository);
 	}
 
 	@Bean
@@ -83,14 +115,28 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
 	@Bean
 	public DaoAuthenticationProvider daoAuthenticationProvider(
-		UserDetailsServiceImpl customUserDetailsService, PasswordEncoder passwordEncoder)
+		UserDetailsServiceImpl customUserDetailsService, PasswordEncoder passwordEncoder, UserCache userCache)
 	{
 		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
 		provider.setUserDetailsService(customUserDetailsService);
 		provider.setPasswordEncoder(passwordEncoder);
+		provider.setUserCache(userCache);
 		return provider;
 	}
 
+	/**
+	 * Users signed in by the remember-me cookie are taken from the same cache as the ones
+	 * signed in by password.
+	 */
+	@Bean
+	public UserDetailsService cachingUserDetailsService(UserDetailsServiceImpl customUserDetailsService,
+		UserCache userCache)
+	{
+		CachingUserDetailsService service = new CachingUserDetailsService(customUserDetailsService);
+		service.setUserCache(userCache);
+		return service;
+	}
+
 	@Bean
 	public UserDetailsServiceImpl customUserDetailsService(UserAccountService userAccountService) {
 		return new UserDetailsServiceImpl(userAccountService);
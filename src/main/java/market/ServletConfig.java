@@ -1,7 +1,15 @@
 package market;
 
+import market.interceptors.CartInterceptor;
+import market.interceptors.FragmentCacheInterceptor;
 import market.interceptors.RestUserCheckInterceptor;
-import market.interceptors.SessionCartInterceptor;
+import market.security.GuestCartCookie;
+import market.service.ProductService;
+import market.view.FragmentCache;
+import market.view.PageCacheFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -22,22 +30,41 @@ import org.springframework.web.servlet.view.tiles3.TilesViewResolver;
 	"market.sorting",
 	"market.dto.assembler",
 	"market.rest",
-	"market.dto.assembler"})
+	"market.dto.assembler",
+	"market.view"})
 public class ServletConfig implements WebMvcConfigurer {
+	private final FragmentCache fragmentCache;
+	private final GuestCartCookie guestCartCookie;
+
+	public ServletConfig(FragmentCache fragmentCache, GuestCartCookie guestCartCookie) {
+		this.fragmentCache = fragmentCache;
+		this.guestCartCookie = guestCartCookie;
+	}
 
 	@Override
 	public void addInterceptors(InterceptorRegistry registry) {
-		registry.addInterceptor(new SessionCartInterceptor())
+		registry.addInterceptor(new CartInterceptor(guestCartCookie))
 			.addPathPatterns("/**")
-			.excludePathPatterns("/rest/**");
-		registry.addInterceptor(new SessionCartInterceptor())
+			.excludePathPatterns("/rest/**", "/admin/**", "/resources/**");
+		registry.addInterceptor(new FragmentCacheInterceptor(fragmentCache))
 			.addPathPatterns("/**")
-			.excludePathPatterns("/admin/**");
+			.excludePathPatterns("/rest/**", "/admin/**");
 		registry.addInterceptor(new RestUserCheckInterceptor())
 			.addPathPatterns("/rest/cart**")
 			.addPathPatterns("/rest/customer**");
 	}
 
+	@Bean
+	public FilterRegistrationBean<PageCacheFilter> pageCacheFilter(ProductService productService,
+		@Value("${view.pageCache.capacity:200}") int capacity,
+		@Value("${view.pageCache.maxPageSize:1048576}") int maxPageSize)
+	{
+		FilterRegistrationBean<PageCacheFilter> registration =
+			new FilterRegistrationBean<>(new PageCacheFilter(productService, capacity, maxPageSize));
+		registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+		return registration;
+	}
+
 	@Bean
 	public ViewResolver viewResolver() {
 		return new TilesViewResolver();
@@ -0,0 +1,34 @@
+package market;
+
+import market.session.SessionAttributeConverter;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+
+/**
+ * Sessions are kept in the external store chosen with {@code spring.session.store-type}, so a session
+ * outlives the restart or failure of the node which served it. The store is configured by Spring Boot,
+ * only the conversion of the session attributes is customized here.
+ * <p>
+ * The rest of the state of a customer is shared by the nodes as well: the cart is written through
+ * to the database ({@link market.service.cart.CartStore}), the order submissions and the idempotency
+ * keys of orders are stored in their tables. So any request may be served by any node.
+ */
+@Configuration
+public class SessionConfig implements BeanClassLoaderAware {
+	private ClassLoader classLoader;
+
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	@Bean
+	public ConversionService springSessionConversionService() {
+		GenericConversionService conversionService = new GenericConversionService();
+		conversionService.addConverter(new SessionAttributeConverter(classLoader));
+		return conversionService;
+	}
+}
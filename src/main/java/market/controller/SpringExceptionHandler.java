@@ -4,7 +4,9 @@ import market.exception.*;
 import market.exception.dto.ValidationErrorDTO;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -22,6 +24,8 @@ import java.util.Locale;
  */
 @ControllerAdvice
 public class SpringExceptionHandler {
+	private static final String RETRY_AFTER_SECONDS = "5";
+
 	private final MessageSource messageSource;
 
 	public SpringExceptionHandler(MessageSource messageSource) {
@@ -55,7 +59,8 @@ public class SpringExceptionHandler {
 	 *
 	 * @return перечень нарушенных ограничений
 	 */
-	@ExceptionHandler({EmailExistsException.class, EmptyCartException.class})
+	@ExceptionHandler({EmailExistsException.class, EmptyCartException.class, OutOfStockException.class,
+		SoldOutException.class})
 	@ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
 	@ResponseBody
 	public ValidationErrorDTO handleEmailExistsException(CustomNotValidException ex) {
@@ -63,6 +68,20 @@ public class SpringExceptionHandler {
 		return processFieldErrors(fieldErrors);
 	}
 
+	/**
+	 * Заказ или товар распродажи не принят из-за перегрузки, клиенту предлагается повторить попытку позже.
+	 *
+	 * @return перечень нарушенных ограничений
+	 */
+	@ExceptionHandler({OrderQueueFullException.class, FlashSaleBusyException.class})
+	@ResponseBody
+	public ResponseEntity<ValidationErrorDTO> handleBusyException(CustomNotValidException ex) {
+		List<FieldError> fieldErrors = Arrays.asList(ex.getFieldError());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+			.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+			.body(processFieldErrors(fieldErrors));
+	}
+
 	/**
 	 * Ошибки валидации полученного от клиента объекта.
 	 * Ответ сервера сопровождается пояснениями.
@@ -10,11 +10,11 @@ import market.exception.UnknownEntityException;
 import market.service.DistilleryService;
 import market.service.ProductService;
 import market.sorting.ISorter;
+import market.sorting.SortingContext;
 import market.sorting.SortingValuesDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -63,16 +63,16 @@ public class ProductController {
 		@RequestParam(value = "dist", required = false, defaultValue = "0") long distilleryId,
 		Model model
 	) {
-		PageRequest request = productBackendSorting.updateSorting(sortingValues);
+		SortingContext sorting = productBackendSorting.updateSorting(sortingValues);
 		Page<Product> pagedProducts;
 		if (distilleryId == 0) {
-			pagedProducts = productService.findAll(request);
+			pagedProducts = productService.findAll(sorting.toPageRequest());
 		} else {
 			Distillery distillery = distilleryService.findById(distilleryId);
-			pagedProducts = productService.findByDistillery(distillery, request);
+			pagedProducts = productService.findByDistillery(distillery, sorting.toPageRequest());
 			model.addAttribute("currentDistilleryTitle", distillery.getTitle());
 		}
-		productBackendSorting.prepareModel(model, pagedProducts.map(productAssembler::toModel));
+		productBackendSorting.prepareModel(model, sorting, pagedProducts.map(productAssembler::toModel));
 
 		List<DistilleryDTO> distilleriesDto = distilleryService.findAll().stream()
 			.map(distilleryDTOAssembler::toModel)
@@ -4,10 +4,11 @@ import market.domain.Product;
 import market.dto.ProductDTO;
 import market.dto.assembler.ProductDtoAssembler;
 import market.service.ProductService;
+import market.service.order.FlashSaleGate;
 import market.sorting.ISorter;
+import market.sorting.SortingContext;
 import market.sorting.SortingValuesDTO;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -28,13 +29,15 @@ public class StorageController {
 	private final ProductService productService;
 	private final ISorter<ProductDTO> storageSorting;
 	private final ProductDtoAssembler productAssembler;
+	private final FlashSaleGate flashSaleGate;
 
 	public StorageController(ProductService productService, ISorter<ProductDTO> storageSorting,
-		ProductDtoAssembler productAssembler)
+		ProductDtoAssembler productAssembler, FlashSaleGate flashSaleGate)
 	{
 		this.productService = productService;
 		this.storageSorting = storageSorting;
 		this.productAssembler = productAssembler;
+		this.flashSaleGate = flashSaleGate;
 	}
 
 	@RequestMapping(method = RequestMethod.GET)
@@ -43,11 +46,12 @@ public class StorageController {
 		@RequestParam(value = "available", required = false, defaultValue = "all") String available,
 		Model model
 	) {
-		PageRequest request = storageSorting.updateSorting(sortingValues);
-		Page<Product> pagedProducts = productService.findByAvailability(available, request);
-		storageSorting.prepareModel(model, pagedProducts.map(productAssembler::toModel));
+		SortingContext sorting = storageSorting.updateSorting(sortingValues);
+		Page<Product> pagedProducts = productService.findByAvailability(available, sorting.toPageRequest());
+		storageSorting.prepareModel(model, sorting, pagedProducts.map(productAssembler::toModel));
 
 		model.addAttribute("currentlyAvailable", available);
+		model.addAttribute("flashSaleProductIds", new TreeSet<>(flashSaleGate.getProductIds()));
 		return STORAGE_BASE;
 	}
 
@@ -65,4 +69,26 @@ public class StorageController {
 		}
 		return "redirect:/" + STORAGE_BASE;
 	}
+
+	@RequestMapping(value = "/receipt", method = RequestMethod.POST)
+	public String postReceipt(
+		@RequestParam(value = "productId") long productId,
+		@RequestParam(value = "quantity") int quantity
+	) {
+		if (quantity > 0)
+			productService.receiveStock(productId, quantity);
+		return "redirect:/" + STORAGE_BASE;
+	}
+
+	@RequestMapping(value = "/flashSale", method = RequestMethod.POST)
+	public String postFlashSale(
+		@RequestParam(value = "productId") long productId,
+		@RequestParam(value = "active", required = false, defaultValue = "false") boolean active
+	) {
+		if (active)
+			flashSaleGate.start(productId);
+		else
+			flashSaleGate.stop(productId);
+		return "redirect:/" + STORAGE_BASE;
+	}
 }
@@ -8,9 +8,13 @@ import market.dto.CartItemDTO;
 import market.dto.ProductDTO;
 import market.dto.assembler.CartDtoAssembler;
 import market.dto.assembler.ProductDtoAssembler;
+import market.exception.FlashSaleBusyException;
+import market.exception.SoldOutException;
 import market.exception.UnknownEntityException;
+import market.security.GuestCartCookie;
 import market.service.CartService;
 import market.service.ProductService;
+import market.service.order.FlashSaleGate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,16 +25,17 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.security.Principal;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 
 import static java.util.stream.Collectors.toMap;
 
 @Controller
 @RequestMapping("/cart")
-@SessionAttributes({"cart"})
 public class CartController {
 	private static final Logger log = LoggerFactory.getLogger(CartController.class);
 
@@ -40,58 +45,49 @@ public class CartController {
 	private final ProductService productService;
 	private final CartDtoAssembler cartDtoAssembler;
 	private final ProductDtoAssembler productDtoAssembler;
+	private final GuestCartCookie guestCartCookie;
+	private final FlashSaleGate flashSaleGate;
 
 	@Value("${deliveryCost}")
 	private int deliveryCost;
 
 	public CartController(CartService cartService, ProductService productService, CartDtoAssembler cartDtoAssembler,
-		ProductDtoAssembler productDtoAssembler)
+		ProductDtoAssembler productDtoAssembler, GuestCartCookie guestCartCookie, FlashSaleGate flashSaleGate)
 	{
 		this.cartService = cartService;
 		this.productService = productService;
 		this.cartDtoAssembler = cartDtoAssembler;
 		this.productDtoAssembler = productDtoAssembler;
+		this.guestCartCookie = guestCartCookie;
+		this.flashSaleGate = flashSaleGate;
 	}
 
 	@RequestMapping(method = RequestMethod.GET)
-	public String getCart(
-		Principal principal, HttpServletRequest request, Model model,
-		@ModelAttribute(value = "cart") CartDTO cartDto)
-	{
+	public String getCart(Principal principal, HttpServletRequest request, Model model) {
+		Cart cart;
 		if (isAuthorized(principal)) {
-			Cart cart = cartService.getCartOrCreate(principal.getName());
-			request.getSession().setAttribute("cart", cartDtoAssembler.toModel(cart));
-			Map<Long, ProductDTO> productsById = cart.getCartItems().stream()
-				.map(CartItem::getProduct)
-				.map(productDtoAssembler::toModel)
-				.collect(toMap(ProductDTO::getProductId, p -> p));
-			model.addAttribute("productsById", productsById);
+			cart = cartService.getCartOrCreate(principal.getName());
+			model.addAttribute("cart", exposeUserCart(request, cart));
 		} else {
-			Map<Long, ProductDTO> productsById = cartDto.getCartItems().stream()
-				.map(CartItemDTO::getProductId)
-				.map(productService::findOne)
-				.filter(Optional::isPresent)
-				.map(Optional::get)
-				.map(productDtoAssembler::toModel)
-				.collect(toMap(ProductDTO::getProductId, p -> p));
-			model.addAttribute("productsById", productsById);
+			cart = cartDtoAssembler.toDomain(guestCart(request), productService);
+			model.addAttribute("cart", cartDtoAssembler.toAnonymousResource(cart));
 		}
+		Map<Long, ProductDTO> productsById = cart.getCartItems().stream()
+			.map(CartItem::getProduct)
+			.map(productDtoAssembler::toModel)
+			.collect(toMap(ProductDTO::getProductId, p -> p));
+		model.addAttribute("productsById", productsById);
 		model.addAttribute("deliveryCost", deliveryCost);
 		return CART_BASE;
 	}
 
 	@RequestMapping(value = "/clear", method = RequestMethod.POST)
-	public String clearCart(
-		Principal principal, Model model,
-		@ModelAttribute(value = "cart") CartDTO cartDto)
-	{
+	public String clearCart(Principal principal, HttpServletRequest request, HttpServletResponse response) {
 		if (isAuthorized(principal)) {
 			Cart clearedCart = cartService.clearCart(principal.getName());
-			model.addAttribute("cart", cartDtoAssembler.toModel(clearedCart));
+			exposeUserCart(request, clearedCart);
 		} else {
-			Cart cart = cartDtoAssembler.toDomain(cartDto, productService);
-			cart.clear();
-			model.addAttribute("cart", cartDtoAssembler.toModel(cart));
+			guestCartCookie.clear(request, response);
 		}
 		return "redirect:/" + CART_BASE;
 	}
@@ -102,15 +98,20 @@ public class CartController {
 	public String updateCartByForm(
 		Principal principal,
 		@Valid @ModelAttribute("cartItem") CartItemDTO cartItemDto,
-		BindingResult bindingResult, Model model
+		BindingResult bindingResult,
+		HttpServletRequest request, HttpServletResponse response
 	) {
 		if (bindingResult.hasErrors())
 			return CART_BASE;
 
+		if (!isAuthorized(principal)) {
+			updateGuestCart(request, response, cartItemDto);
+			return "redirect:/" + CART_BASE;
+		}
 		try {
 			Cart updatedCart = updateCart(principal, cartItemDto);
-			model.addAttribute("cart", cartDtoAssembler.toModel(updatedCart));
-		} catch (UnknownEntityException ex) {
+			exposeUserCart(request, updatedCart);
+		} catch (UnknownEntityException | SoldOutException | FlashSaleBusyException ex) {
 			bindingResult.addError(ex.getFieldError());
 			return CART_BASE;
 		}
@@ -120,6 +121,8 @@ public class CartController {
 	/**
 	 * Adding via AJAX
 	 * @return updated cart
+	 * @throws SoldOutException       if the product on flash sale is sold out
+	 * @throws FlashSaleBusyException if too many buyers are waiting for the product on flash sale
 	 */
 	@RequestMapping(method = RequestMethod.PUT,
 		consumes = MediaType.APPLICATION_JSON_VALUE,
@@ -128,39 +131,60 @@ public class CartController {
 	public CartDTO updateCartByAjax(
 		Principal principal,
 		@Valid @RequestBody CartItemDTO cartItemDto,
-		BindingResult bindingResult, Model model,
-		@ModelAttribute(value = "cart") CartDTO cartDto
-	) {
-		if (bindingResult.hasErrors())
-			return cartDto;
-
+		BindingResult bindingResult,
+		HttpServletRequest request, HttpServletResponse response
+	) throws SoldOutException, FlashSaleBusyException {
 		if (!isAuthorized(principal)) {
-			Optional<Product> productOptional = productService.findOne(cartItemDto.getProductId());
-			if (productOptional.isPresent()) {
-				Product product = productOptional.get();
-				if (product.isAvailable()) {
-					Cart cart = cartDtoAssembler.toDomain(cartDto, productService);
-					cart.update(product, cartItemDto.getQuantity());
-					CartDTO updatedCartDto = cartDtoAssembler.toModel(cart);
-					model.addAttribute("cart", updatedCartDto);
-					return updatedCartDto;
-				} else {
-					return cartDto;
-				}
-			}
+			return bindingResult.hasErrors()
+				? guestCart(request)
+				: updateGuestCart(request, response, cartItemDto);
 		}
+		if (bindingResult.hasErrors())
+			return cartDtoAssembler.toModel(cartService.getCartOrCreate(principal.getName()));
+
 		try {
 			Cart updatedCart = updateCart(principal, cartItemDto);
-			return cartDtoAssembler.toModel(updatedCart);
+			return exposeUserCart(request, updatedCart);
 		} catch (UnknownEntityException e) {
 			log.error("Can not add item to cart", e);
-			return cartDto;
+			return cartDtoAssembler.toModel(cartService.getCartOrCreate(principal.getName()));
 		}
 	}
 
-	private Cart updateCart(Principal principal, CartItemDTO cartItem) throws UnknownEntityException {
+	/**
+	 * Requests for a product on flash sale wait for their turn, see {@link FlashSaleGate};
+	 * guest carts are kept in the cookie and are not held.
+	 */
+	private Cart updateCart(Principal principal, CartItemDTO cartItem)
+		throws UnknownEntityException, SoldOutException, FlashSaleBusyException
+	{
 		String login = principal.getName();
-		return cartService.addToCart(login, cartItem.getProductId(), cartItem.getQuantity());
+		Map<Long, Integer> quantities = Collections.singletonMap(cartItem.getProductId(), cartItem.getQuantity());
+		try (FlashSaleGate.Admission admission = flashSaleGate.admit(quantities)) {
+			return cartService.addToCart(login, cartItem.getProductId(), cartItem.getQuantity());
+		}
+	}
+
+	/**
+	 * Unknown and unavailable products are not added to the guest cart.
+	 * @return updated guest cart
+	 */
+	private CartDTO updateGuestCart(HttpServletRequest request, HttpServletResponse response, CartItemDTO cartItemDto) {
+		CartDTO cartDto = guestCart(request);
+		Set<Long> productIds = cartDtoAssembler.productIdsOf(cartDto);
+		productIds.add(cartItemDto.getProductId());
+		Map<Long, Product> productsById = productService.findByIds(productIds);
+		Product product = productsById.get(cartItemDto.getProductId());
+		if ((product == null) || !product.isAvailable()) {
+			log.debug("Product " + cartItemDto.getProductId() + " is not added to guest cart");
+			return cartDto;
+		}
+
+		Cart cart = cartDtoAssembler.toDomain(cartDto, productsById);
+		cart.update(product, cartItemDto.getQuantity());
+		CartDTO updatedCartDto = cartDtoAssembler.toAnonymousResource(cart);
+		guestCartCookie.write(request, response, updatedCartDto);
+		return updatedCartDto;
 	}
 
 	//---------------------------------------------- Setting delivery option
@@ -176,17 +200,39 @@ public class CartController {
 	public CartDTO setDelivery(
 		Principal principal,
 		@PathVariable String delivery,
-		@ModelAttribute(value = "cart") CartDTO cartDto)
+		HttpServletRequest request, HttpServletResponse response)
 	{
 		boolean included = Boolean.parseBoolean(delivery);
 		if (isAuthorized(principal)) {
-			String login = principal.getName();
-			cartService.setDelivery(login, included);
+			Cart cart = cartService.setDelivery(principal.getName(), included);
+			return exposeUserCart(request, cart);
 		}
+		CartDTO cartDto = guestCart(request);
 		cartDto.setDeliveryIncluded(included);
+		guestCartCookie.write(request, response, cartDto);
+		return cartDto;
+	}
+
+	//---------------------------------------------- Cart holders
+
+	/**
+	 * The cart of the signed in user is kept in the session for the pages to show.
+	 * @return DTO of the user cart
+	 */
+	private CartDTO exposeUserCart(HttpServletRequest request, Cart cart) {
+		CartDTO cartDto = cartDtoAssembler.toModel(cart);
+		request.getSession().setAttribute("cart", cartDto);
 		return cartDto;
 	}
 
+	/**
+	 * @return cart of the anonymous customer, empty if there is none yet
+	 */
+	private CartDTO guestCart(HttpServletRequest request) {
+		CartDTO cartDto = guestCartCookie.read(request);
+		return (cartDto == null) ? new CartDTO() : cartDto;
+	}
+
 	private boolean isAuthorized(Principal principal) {
 		return principal != null;
 	}
@@ -5,6 +5,8 @@ import market.dto.*;
 import market.dto.assembler.*;
 import market.exception.*;
 import market.service.*;
+import market.service.order.*;
+import org.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.security.access.annotation.*;
 import org.springframework.stereotype.*;
@@ -16,8 +18,10 @@ import javax.servlet.http.*;
 import javax.validation.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 
+import static java.util.concurrent.CompletableFuture.*;
 import static java.util.stream.Collectors.*;
 
 /**
@@ -28,6 +32,7 @@ import static java.util.stream.Collectors.*;
 @Secured({"ROLE_USER"})
 @SessionAttributes({"createdOrder"})
 public class CheckoutController {
+	private static final Logger log = LoggerFactory.getLogger(CheckoutController.class);
 	private static final String CHECKOUT_BASE = "checkout";
 	private static final String CHECKOUT_DETAILS = CHECKOUT_BASE + "/details";
 	private static final String CHECKOUT_PAYMENT = CHECKOUT_BASE + "/payment";
@@ -36,7 +41,10 @@ public class CheckoutController {
 	private final UserAccountService userAccountService;
 	private final ContactsService contactsService;
 	private final OrderService orderService;
+	private final OrderSubmissionService orderSubmissionService;
+	private final OrderIdempotencyStore orderIdempotencyStore;
 	private final CartService cartService;
+	private final FlashSaleGate flashSaleGate;
 	private final OrderDtoAssembler orderDtoAssembler;
 	private final ContactsDtoAssembler contactsDtoAssembler;
 	private final UserAccountDtoAssembler userDtoAssembler;
@@ -45,15 +53,22 @@ public class CheckoutController {
 	@Value("${deliveryCost}")
 	private int deliveryCost;
 
+	@Value("${order.submission.async:false}")
+	private boolean asyncSubmission;
+
 	public CheckoutController(UserAccountService userAccountService, ContactsService contactsService,
-		OrderService orderService, CartService cartService, OrderDtoAssembler orderDtoAssembler,
-		ContactsDtoAssembler contactsDtoAssembler, UserAccountDtoAssembler userDtoAssembler,
-		ProductDtoAssembler productDtoAssembler)
+		OrderService orderService, OrderSubmissionService orderSubmissionService,
+		OrderIdempotencyStore orderIdempotencyStore, CartService cartService, FlashSaleGate flashSaleGate,
+		OrderDtoAssembler orderDtoAssembler, ContactsDtoAssembler contactsDtoAssembler,
+		UserAccountDtoAssembler userDtoAssembler, ProductDtoAssembler productDtoAssembler)
 	{
 		this.userAccountService = userAccountService;
 		this.contactsService = contactsService;
 		this.orderService = orderService;
+		this.orderSubmissionService = orderSubmissionService;
+		this.orderIdempotencyStore = orderIdempotencyStore;
 		this.cartService = cartService;
+		this.flashSaleGate = flashSaleGate;
 		this.orderDtoAssembler = orderDtoAssembler;
 		this.contactsDtoAssembler = contactsDtoAssembler;
 		this.userDtoAssembler = userDtoAssembler;
@@ -102,40 +117,95 @@ public class CheckoutController {
 		if (account == null)
 			return CHECKOUT_DETAILS;
 
-		Cart cart = cartService.getCartOrCreate(login);
+		Cart cart = cartService.getCartOrCreate(account.getId());
 		Map<Long, ProductDTO> productsById = cart.getCartItems().stream()
 			.map(CartItem::getProduct)
 			.map(productDtoAssembler::toModel)
 			.collect(toMap(ProductDTO::getProductId, Function.identity()));
 		model.addAttribute("productsById", productsById);
 		model.addAttribute("userName", account.getName());
-		model.addAttribute("contacts", contactsDtoAssembler.toModel(contactsService.getContacts(login)));
+		model.addAttribute("contacts", contactsDtoAssembler.toModel(contactsService.getContacts(account.getId())));
 		model.addAttribute("deliveryCost", deliveryCost);
 		model.addAttribute("creditCard", new CreditCardDTO());
+		model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 		return CHECKOUT_PAYMENT;
 	}
 
+	/**
+	 * With {@code order.submission.async} enabled the order is created by the order writers,
+	 * and the request thread is released while it waits in the queue.
+	 * <p>
+	 * An order of the products on flash sale waits for its turn, see {@link FlashSaleGate},
+	 * and holds it until the order is created.
+	 * <p>
+	 * The payment form carries an idempotency key, so a resubmitted form does not create
+	 * another order.
+	 */
 	@RequestMapping(value = "/payment", method = RequestMethod.POST)
-	public String paymentPost(
+	public CompletableFuture<String> paymentPost(
 		Principal principal,
 		@Valid CreditCardDTO creditCard,
 		BindingResult bindingResult,
-		HttpServletRequest request
+		HttpServletRequest request,
+		@RequestParam(value = "idempotencyKey", required = false) String idempotencyKey
 	) {
 		if (bindingResult.hasErrors())
-			return CHECKOUT_PAYMENT;
+			return completedFuture(CHECKOUT_PAYMENT);
 
 		String login = principal.getName();
+		HttpSession session = request.getSession();
+		FlashSaleGate.Admission admission;
+		try {
+			admission = flashSaleGate.admit(cartService.getCartOrCreate(login));
+		} catch (SoldOutException | FlashSaleBusyException ex) {
+			bindingResult.addError(ex.getFieldError());
+			return completedFuture(CHECKOUT_PAYMENT);
+		}
+		boolean admissionHandedOver = false;
 		try {
-			Order order = orderService.createUserOrder(login, deliveryCost, creditCard.getNumber());
-			request.getSession().setAttribute("createdOrder", orderDtoAssembler.toModel(order));
-			return "redirect:/" + CHECKOUT_CONFIRMATION;
-		} catch (EmptyCartException ex) {
+			if (!asyncSubmission) {
+				Order order = orderIdempotencyStore.execute(login, idempotencyKey,
+					() -> orderService.createUserOrder(login, deliveryCost, creditCard.getNumber()));
+				return completedFuture(confirm(session, order));
+			}
+			OrderSubmission submission = orderSubmissionService.submit(login, idempotencyKey, deliveryCost,
+				creditCard.getNumber());
+			admission.closeOn(submission.getCompletion());
+			admissionHandedOver = true;
+			return submission.getCompletion()
+				.thenApply(order -> confirm(session, order))
+				.exceptionally(ex -> rejected(submission, ex, bindingResult));
+		} catch (EmptyCartException | OutOfStockException | OrderQueueFullException ex) {
 			bindingResult.addError(ex.getFieldError());
-			return CHECKOUT_PAYMENT;
+			return completedFuture(CHECKOUT_PAYMENT);
+		} finally {
+			if (!admissionHandedOver)
+				admission.close();
 		}
 	}
 
+	/**
+	 * The order is rejected for the same reasons as in the synchronous submission, and they are
+	 * shown the same way; other failures are left to the exception handlers.
+	 */
+	private static String rejected(OrderSubmission submission, Throwable failure, BindingResult bindingResult) {
+		Throwable cause = (failure instanceof CompletionException) && (failure.getCause() != null)
+			? failure.getCause()
+			: failure;
+		if (!(cause instanceof CustomNotValidException)) {
+			log.error("Order submission #{} has failed", submission.getId(), cause);
+			throw (failure instanceof CompletionException) ? (CompletionException) failure : new CompletionException(failure);
+		}
+		log.info("Order submission #{} is rejected: {}", submission.getId(), cause.getClass().getSimpleName());
+		bindingResult.addError(((CustomNotValidException) cause).getFieldError());
+		return CHECKOUT_PAYMENT;
+	}
+
+	private String confirm(HttpSession session, Order order) {
+		session.setAttribute("createdOrder", orderDtoAssembler.toModel(order));
+		return "redirect:/" + CHECKOUT_CONFIRMATION;
+	}
+
 	//---------------------------------- Confirmation and gratitude
 
 	@RequestMapping(value = "/confirmation", method = RequestMethod.GET)
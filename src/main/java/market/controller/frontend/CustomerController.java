@@ -10,6 +10,7 @@ import market.dto.assembler.CartDtoAssembler;
 import market.dto.assembler.UserAccountDtoAssembler;
 import market.exception.EmailExistsException;
 import market.security.AuthenticationService;
+import market.security.GuestCartCookie;
 import market.service.CartService;
 import market.service.OrderService;
 import market.service.ProductService;
@@ -18,11 +19,11 @@ import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.SessionAttributes;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.security.Principal;
 import java.util.ArrayList;
@@ -32,7 +33,6 @@ import java.util.Map;
 
 @Controller
 @RequestMapping("/customer")
-@SessionAttributes({"cart"})
 public class CustomerController {
 	private static final String CUSTOMER_ORDERS = "customer/orders";
 	private static final String CUSTOMER_NEW = "customer/new";
@@ -45,10 +45,12 @@ public class CustomerController {
 	private final AuthenticationService authenticationService;
 	private final UserAccountDtoAssembler userAccountDtoAssembler;
 	private final CartDtoAssembler cartDtoAssembler;
+	private final GuestCartCookie guestCartCookie;
 
 	public CustomerController(UserAccountService userAccountService, OrderService orderService,
 		AuthenticationService authenticationService, CartService cartService, ProductService productService,
-		UserAccountDtoAssembler userAccountDtoAssembler, CartDtoAssembler cartDtoAssembler)
+		UserAccountDtoAssembler userAccountDtoAssembler, CartDtoAssembler cartDtoAssembler,
+		GuestCartCookie guestCartCookie)
 	{
 		this.userAccountService = userAccountService;
 		this.orderService = orderService;
@@ -57,6 +59,7 @@ public class CustomerController {
 		this.productService = productService;
 		this.userAccountDtoAssembler = userAccountDtoAssembler;
 		this.cartDtoAssembler = cartDtoAssembler;
+		this.guestCartCookie = guestCartCookie;
 	}
 
 	@Secured({"ROLE_USER"})
@@ -91,8 +94,8 @@ public class CustomerController {
 	public String postSignUp(
 		Model model,
 		@Valid UserDTO user,
-		@ModelAttribute(value = "cart") CartDTO cartDto,
-		BindingResult bindingResult
+		BindingResult bindingResult,
+		HttpServletRequest request, HttpServletResponse response
 	) {
 		if (bindingResult.hasErrors())
 			return CUSTOMER_NEW;
@@ -109,9 +112,11 @@ public class CustomerController {
 
 		model.addAttribute("userAccount", userAccountDtoAssembler.toModel(newAccount));
 
-		Cart unauthorisedCart = cartDtoAssembler.toDomain(cartDto, productService);
+		CartDTO cartDto = guestCartCookie.read(request);
+		Cart unauthorisedCart = cartDtoAssembler.toDomain((cartDto == null) ? new CartDTO() : cartDto, productService);
 		Cart updatedCart = cartService.addAllToCart(newAccount.getEmail(), unauthorisedCart.getCartItems());
-		model.addAttribute("cart", cartDtoAssembler.toModel(updatedCart));
+		request.getSession().setAttribute("cart", cartDtoAssembler.toModel(updatedCart));
+		guestCartCookie.clear(request, response);
 
 		return "redirect:" + ROOT;
 	}
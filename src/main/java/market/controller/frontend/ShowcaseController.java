@@ -13,9 +13,9 @@ import market.service.DistilleryService;
 import market.service.ProductService;
 import market.service.RegionService;
 import market.sorting.ISorter;
+import market.sorting.SortingContext;
 import market.sorting.SortingValuesDTO;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -69,16 +69,16 @@ public class ShowcaseController {
 	) {
 		Region region = regionService.findOne(regionId);
 
-		PageRequest request = productSorting.updateSorting(sortingValues);
+		SortingContext sorting = productSorting.updateSorting(sortingValues);
 		Page<Product> pagedProducts;
 		if (distilleryId == 0) {
-			pagedProducts = productService.findByRegion(region, request);
+			pagedProducts = productService.findByRegion(region, sorting.toPageRequest());
 		} else {
 			Distillery distillery = distilleryService.findById(distilleryId);
-			pagedProducts = productService.findByDistillery(distillery, request);
+			pagedProducts = productService.findByDistillery(distillery, sorting.toPageRequest());
 			model.addAttribute("currentDistilleryTitle", distillery.getTitle());
 		}
-		productSorting.prepareModel(model, pagedProducts.map(productAssembler::toModel));
+		productSorting.prepareModel(model, sorting, pagedProducts.map(productAssembler::toModel));
 
 		List<DistilleryDTO> distilleriesDto = distilleryService.findByRegion(region).stream()
 			.map(distilleryDTOAssembler::toModel)
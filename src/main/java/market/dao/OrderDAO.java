@@ -1,18 +1,54 @@
 package market.dao;
 
+import market.dao.projection.OrderSummary;
 import market.domain.Order;
-import market.domain.UserAccount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
-public interface OrderDAO extends CrudRepository<Order, Long>, JpaRepository<Order, Long> {
+public interface OrderDAO extends CrudRepository<Order, Long>, JpaRepository<Order, Long>, OrderDAOCustom {
+	String SUMMARIES_BY_EMAIL = "SELECT new market.dao.projection.OrderSummary(o.id, o.dateCreated, o.executed,"
+		+ " o.deliveryIncluded, o.deliveryCost, o.productsCost, a.name, a.email, c.phone, c.address, b.number,"
+		+ " b.totalCost, b.payed, b.ccNumber)"
+		+ " FROM Order o JOIN o.userAccount a LEFT JOIN a.contacts c JOIN o.bill b"
+		+ " WHERE a.email = :email";
 
-	List<Order> findByUserAccountOrderByDateCreatedDesc(UserAccount userAccount);
+
+	@EntityGraph("Order.details")
+	List<Order> findByUserAccountIdOrderByDateCreatedDesc(long accountId);
+
+	/**
+	 * @return order with its account, bill and ordered products
+	 */
+	@EntityGraph("Order.details")
+	Optional<Order> findWithDetailsById(long id);
+
+	/**
+	 * Reads the first chunk of the orders of the specified user, newest first.
+	 * Items of the orders are not filled.
+	 *
+	 * @see #findSummariesByEmailBefore(String, Date, long, Pageable)
+	 */
+	@Query(SUMMARIES_BY_EMAIL + " ORDER BY o.dateCreated DESC, o.id DESC")
+	List<OrderSummary> findSummariesByEmail(@Param("email") String email, Pageable chunk);
+
+	/**
+	 * Reads the next chunk of the orders of the specified user: the ones following the order
+	 * with the specified creation date and id, newest first. Items of the orders are not filled.
+	 */
+	@Query(SUMMARIES_BY_EMAIL
+		+ " AND (o.dateCreated < :date OR (o.dateCreated = :date AND o.id < :id))"
+		+ " ORDER BY o.dateCreated DESC, o.id DESC")
+	List<OrderSummary> findSummariesByEmailBefore(@Param("email") String email,
+		@Param("date") Date lastDate, @Param("id") long lastId, Pageable chunk);
 
 	Page<Order> findByExecuted(boolean stored, Pageable pageable);
 
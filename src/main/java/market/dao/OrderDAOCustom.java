@@ -0,0 +1,21 @@
+package market.dao;
+
+import market.dao.projection.OrderSummary;
+import market.sorting.KeysetRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.Date;
+
+public interface OrderDAOCustom {
+
+	/**
+	 * Fetches summaries of the orders following the request cursor. Neither offset nor count query is used,
+	 * so the cost does not depend on how far the list has been scrolled. Just the columns shown
+	 * in the orders list are selected: two queries per page, whatever the number of orders and their items.
+	 * Orders without an account are included.
+	 *
+	 * @param executed     required execution state, or {@code null} for any
+	 * @param createdAfter lower bound of the creation date, or {@code null} for any
+	 */
+	Slice<OrderSummary> findSummaries(Boolean executed, Date createdAfter, KeysetRequest request);
+}
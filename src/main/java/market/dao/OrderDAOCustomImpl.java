@@ -0,0 +1,206 @@
+package market.dao;
+
+import market.dao.projection.OrderSummary;
+import market.domain.Bill;
+import market.domain.Contacts;
+import market.domain.Distillery;
+import market.domain.Order;
+import market.domain.OrderedProduct;
+import market.domain.Product;
+import market.domain.UserAccount;
+import market.sorting.KeysetCursor;
+import market.sorting.KeysetRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toMap;
+
+public class OrderDAOCustomImpl implements OrderDAOCustom {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public Slice<OrderSummary> findSummaries(Boolean executed, Date createdAfter, KeysetRequest request) {
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		CriteriaQuery<OrderSummary> query = cb.createQuery(OrderSummary.class);
+		Root<Order> order = query.from(Order.class);
+		Join<Order, UserAccount> account = order.join("userAccount", JoinType.LEFT);
+		Join<UserAccount, Contacts> contacts = account.join("contacts", JoinType.LEFT);
+		Join<Order, Bill> bill = order.join("bill", JoinType.LEFT);
+		query.select(cb.construct(OrderSummary.class,
+			order.get("id"), order.get("dateCreated"), order.get("executed"), order.get("deliveryIncluded"),
+			order.get("deliveryCost"), order.get("productsCost"),
+			account.get("name"), account.get("email"), contacts.get("phone"), contacts.get("address"),
+			bill.get("number"), bill.get("totalCost"), bill.get("payed"), bill.get("ccNumber")));
+		Slice<OrderSummary> slice = fetchSlice(query, order, executed, createdAfter, request);
+		if (slice.hasContent())
+			fillItems(slice.getContent());
+		return slice;
+	}
+
+	/**
+	 * Loads items of all the passed orders with a single query.
+	 */
+	private void fillItems(List<OrderSummary> summaries) {
+		Map<Long, OrderSummary> summariesById = summaries.stream()
+			.collect(toMap(OrderSummary::getId, summary -> summary));
+
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		CriteriaQuery<OrderSummary.Item> query = cb.createQuery(OrderSummary.Item.class);
+		Root<OrderedProduct> orderedProduct = query.from(OrderedProduct.class);
+		Path<Long> orderId = orderedProduct.get("pk").get("orderId");
+		Join<OrderedProduct, Product> product = orderedProduct.join("product");
+		Join<Product, Distillery> distillery = product.join("distillery");
+		query.select(cb.construct(OrderSummary.Item.class,
+			orderId, product.get("id"), distillery.get("title"), product.get("name"), product.get("price"),
+			orderedProduct.get("quantity")))
+			.where(orderId.in(summariesById.keySet()))
+			.orderBy(cb.asc(distillery.get("title")), cb.asc(product.get("name")));
+
+		Map<Long, List<OrderSummary.Item>> itemsByOrderId = em.createQuery(query).getResultList().stream()
+			.collect(groupingBy(OrderSummary.Item::getOrderId));
+		itemsByOrderId.forEach((id, items) -> summariesById.get(id).setItems(items));
+	}
+
+	/**
+	 * Restricts the query to the page following the request cursor and executes it.
+	 *
+	 * @param order root of the query, the selection must be set already
+	 */
+	private <T> Slice<T> fetchSlice(CriteriaQuery<T> query, Root<Order> order, Boolean executed, Date createdAfter,
+		KeysetRequest request)
+	{
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		List<Predicate> predicates = new ArrayList<>();
+		if (executed != null)
+			predicates.add(cb.equal(order.get("executed"), executed));
+		if (createdAfter != null)
+			predicates.add(cb.greaterThan(order.get("dateCreated"), createdAfter));
+
+		Path<Comparable<Object>> sortPath = path(order, request.getSortBy());
+		Path<Long> idPath = order.get("id");
+		boolean ascending = request.getDirection().isAscending();
+		// properties of the joined entities may be empty, those are ordered as greater than any value
+		boolean nullable = request.getSortBy().indexOf('.') >= 0;
+		if (!request.isFirst()) {
+			KeysetCursor after = request.getAfter();
+			if (after.getValue() == null) {
+				if (nullable)
+					predicates.add(seekNull(cb, sortPath, idPath, ascending, after.getId()));
+			} else {
+				Comparable<Object> lastValue = parseValue(sortPath.getJavaType(), after.getValue());
+				if (lastValue != null)
+					predicates.add(seek(cb, sortPath, idPath, ascending, nullable, lastValue, after.getId()));
+			}
+		}
+
+		List<javax.persistence.criteria.Order> orderBy = new ArrayList<>(3);
+		if (nullable) {
+			Expression<Integer> isNull = cb.<Integer>selectCase()
+				.when(cb.isNull(sortPath), 1)
+				.otherwise(0);
+			orderBy.add(ascending ? cb.asc(isNull) : cb.desc(isNull));
+		}
+		orderBy.add(ascending ? cb.asc(sortPath) : cb.desc(sortPath));
+		orderBy.add(ascending ? cb.asc(idPath) : cb.desc(idPath));
+		query.where(predicates.toArray(new Predicate[0]))
+			.orderBy(orderBy);
+
+		List<T> content = em.createQuery(query)
+			.setMaxResults(request.getSize() + 1)
+			.getResultList();
+		boolean hasNext = content.size() > request.getSize();
+		if (hasNext)
+			content = content.subList(0, request.getSize());
+		return new SliceImpl<>(content, PageRequest.of(0, request.getSize()), hasNext);
+	}
+
+	/**
+	 * Resolves dotted property path, joining the associations on the way (left join,
+	 * as Spring Data does for sorting). Associations already joined by the query are reused.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Path<T> path(Root<?> root, String propertyPath) {
+		String[] properties = propertyPath.split("\\.");
+		From<?, ?> from = root;
+		for (int i = 0; i < properties.length - 1; i++)
+			from = join(from, properties[i]);
+		return from.get(properties[properties.length - 1]);
+	}
+
+	private static From<?, ?> join(From<?, ?> from, String attribute) {
+		for (Join<?, ?> join : from.getJoins()) {
+			if (join.getAttribute().getName().equals(attribute))
+				return join;
+		}
+		return from.join(attribute, JoinType.LEFT);
+	}
+
+	/**
+	 * (sortKey, id) > (lastValue, lastId) for ascending order, and < for descending;
+	 * empty keys follow the values in ascending order and precede them in descending.
+	 */
+	private static Predicate seek(CriteriaBuilder cb, Path<Comparable<Object>> sortPath, Path<Long> idPath,
+		boolean ascending, boolean nullable, Comparable<Object> lastValue, long lastId)
+	{
+		Predicate beyondValue = ascending ? cb.greaterThan(sortPath, lastValue) : cb.lessThan(sortPath, lastValue);
+		Predicate beyondId = ascending ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+		Predicate beyond = cb.or(beyondValue, cb.and(cb.equal(sortPath, lastValue), beyondId));
+		return (nullable && ascending) ? cb.or(beyond, cb.isNull(sortPath)) : beyond;
+	}
+
+	/**
+	 * Rows following the last row with the empty sort key.
+	 */
+	private static Predicate seekNull(CriteriaBuilder cb, Path<Comparable<Object>> sortPath, Path<Long> idPath,
+		boolean ascending, long lastId)
+	{
+		if (ascending)
+			return cb.and(cb.isNull(sortPath), cb.greaterThan(idPath, lastId));
+		return cb.or(cb.and(cb.isNull(sortPath), cb.lessThan(idPath, lastId)), cb.isNotNull(sortPath));
+	}
+
+	/**
+	 * @return cursor value converted to the type of the sort property, or {@code null} if it does not fit;
+	 * a corrupted cursor starts the list from the first page
+	 */
+	@SuppressWarnings("unchecked")
+	private static Comparable<Object> parseValue(Class<?> type, String value) {
+		Class<?> valueType = ClassUtils.resolvePrimitiveIfNecessary(type);
+		try {
+			Object parsed;
+			if (Date.class.isAssignableFrom(valueType))
+				parsed = new Date(Long.parseLong(value));
+			else if (Number.class.isAssignableFrom(valueType))
+				parsed = NumberUtils.parseNumber(value, (Class<Number>) valueType);
+			else if (Boolean.class.equals(valueType))
+				parsed = Boolean.valueOf(value);
+			else
+				parsed = value;
+			return (Comparable<Object>) parsed;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
@@ -5,17 +5,51 @@ import market.domain.Product;
 import market.domain.Region;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pages of products are shown outside of transactions, so they are fetched with
+ * their distilleries and regions.
+ */
 public interface ProductDAO extends CrudRepository<Product, Long>, JpaRepository<Product, Long> {
 
+	@EntityGraph("Product.distillery")
+	@Override
+	Page<Product> findAll(Pageable request);
+
+	@EntityGraph("Product.distillery")
 	Page<Product> findByDistilleryOrderByName(Distillery distillery, Pageable request);
 
+	@EntityGraph("Product.distillery")
 	@Query(value = "SELECT p FROM Product p WHERE p.distillery IN (SELECT d FROM Distillery d WHERE d.region = :region) order by p.name")
 	Page<Product> findByRegionOrderByName(@Param("region") Region region, Pageable request);
 
+	@EntityGraph("Product.distillery")
 	Page<Product> findByAvailableOrderByName(boolean available, Pageable request);
+
+	@EntityGraph("Product.distillery")
+	List<Product> findByIdIn(Collection<Long> ids);
+
+	/**
+	 * @return ids of the specified products which availability differs from the passed one
+	 */
+	@Query(value = "SELECT p.id FROM Product p WHERE p.id IN :ids AND p.available <> :available")
+	List<Long> findIdsByAvailableNot(@Param("ids") Collection<Long> ids, @Param("available") boolean available);
+
+	/**
+	 * Sets availability of the specified products with a single statement, bypassing the persistence context.
+	 *
+	 * @return number of the products which availability has changed
+	 */
+	@Modifying
+	@Query(value = "UPDATE Product p SET p.available = :available WHERE p.id IN :ids AND p.available <> :available")
+	int updateAvailability(@Param("ids") Collection<Long> ids, @Param("available") boolean available);
 }
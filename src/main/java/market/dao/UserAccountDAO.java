@@ -2,9 +2,14 @@ package market.dao;
 
 import market.domain.UserAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface UserAccountDAO extends CrudRepository<UserAccount, Long>, JpaRepository<UserAccount, Long> {
 
 	UserAccount findByEmail(String email);
+
+	@Query("SELECT a.id FROM UserAccount a WHERE a.email = :email")
+	Long findIdByEmail(@Param("email") String email);
 }
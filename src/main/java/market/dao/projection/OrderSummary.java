@@ -0,0 +1,167 @@
+package market.dao.projection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read-only view of an order for the orders lists: the order with its customer, bill
+ * and items, selected column by column instead of loading the entities.
+ */
+public class OrderSummary {
+	private final long id;
+	private final Date dateCreated;
+	private final boolean executed;
+	private final boolean deliveryIncluded;
+	private final int deliveryCost;
+	private final double productsCost;
+	private final String customerName;
+	private final String customerEmail;
+	private final String customerPhone;
+	private final String customerAddress;
+	private final int billNumber;
+	private final double billTotalCost;
+	private final boolean billPayed;
+	private final String billCcNumber;
+	private List<Item> items = new ArrayList<>();
+
+	public OrderSummary(long id, Date dateCreated, boolean executed, boolean deliveryIncluded, int deliveryCost,
+		double productsCost, String customerName, String customerEmail, String customerPhone, String customerAddress,
+		int billNumber, double billTotalCost, boolean billPayed, String billCcNumber)
+	{
+		this.id = id;
+		this.dateCreated = dateCreated;
+		this.executed = executed;
+		this.deliveryIncluded = deliveryIncluded;
+		this.deliveryCost = deliveryCost;
+		this.productsCost = productsCost;
+		this.customerName = customerName;
+		this.customerEmail = customerEmail;
+		this.customerPhone = customerPhone;
+		this.customerAddress = customerAddress;
+		this.billNumber = billNumber;
+		this.billTotalCost = billTotalCost;
+		this.billPayed = billPayed;
+		this.billCcNumber = billCcNumber;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+
+	public boolean isExecuted() {
+		return executed;
+	}
+
+	public boolean isDeliveryIncluded() {
+		return deliveryIncluded;
+	}
+
+	public int getDeliveryCost() {
+		return deliveryCost;
+	}
+
+	public double getProductsCost() {
+		return productsCost;
+	}
+
+	public String getCustomerName() {
+		return customerName;
+	}
+
+	public String getCustomerEmail() {
+		return customerEmail;
+	}
+
+	/**
+	 * @return phone of the customer, or {@code null} if the customer has no contacts
+	 */
+	public String getCustomerPhone() {
+		return customerPhone;
+	}
+
+	/**
+	 * @return address of the customer, or {@code null} if the customer has no contacts
+	 */
+	public String getCustomerAddress() {
+		return customerAddress;
+	}
+
+	public int getBillNumber() {
+		return billNumber;
+	}
+
+	public double getBillTotalCost() {
+		return billTotalCost;
+	}
+
+	public boolean isBillPayed() {
+		return billPayed;
+	}
+
+	public String getBillCcNumber() {
+		return billCcNumber;
+	}
+
+	public List<Item> getItems() {
+		return Collections.unmodifiableList(items);
+	}
+
+	public void setItems(List<Item> items) {
+		this.items = new ArrayList<>(items);
+	}
+
+	/**
+	 * Ordered product with the product columns shown in the list.
+	 */
+	public static class Item {
+		private final long orderId;
+		private final long productId;
+		private final String distilleryTitle;
+		private final String productName;
+		private final double price;
+		private final int quantity;
+
+		public Item(long orderId, long productId, String distilleryTitle, String productName, double price, int quantity) {
+			this.orderId = orderId;
+			this.productId = productId;
+			this.distilleryTitle = distilleryTitle;
+			this.productName = productName;
+			this.price = price;
+			this.quantity = quantity;
+		}
+
+		public long getOrderId() {
+			return orderId;
+		}
+
+		public long getProductId() {
+			return productId;
+		}
+
+		public String getDistilleryTitle() {
+			return distilleryTitle;
+		}
+
+		public String getProductName() {
+			return productName;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public double getCost() {
+			return price * quantity;
+		}
+	}
+}
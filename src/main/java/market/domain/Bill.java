@@ -1,11 +1,12 @@
 package market.domain;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToOne;
 import javax.persistence.PrimaryKeyJoinColumn;
@@ -27,7 +28,11 @@ public class Bill implements Serializable {
 
 	@Id
 	@Column(name = "id", unique = true, nullable = false)
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = "bill_id")
+	@GenericGenerator(name = "bill_id", strategy = "enhanced-sequence", parameters = {
+		@Parameter(name = "sequence_name", value = "bill_id_seq"),
+		@Parameter(name = "increment_size", value = "50"),
+		@Parameter(name = "optimizer", value = "hilo")})
 	private Long id;
 
 	@OneToOne
@@ -28,7 +28,7 @@ public class Cart implements Serializable {
 	@PrimaryKeyJoinColumn
 	private UserAccount userAccount;
 
-	@OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true,
+	@OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true,
 		targetEntity = CartItem.class, mappedBy = "cart")
 	private List<CartItem> cartItems = new ArrayList<>(0);
 
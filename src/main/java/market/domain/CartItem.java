@@ -19,7 +19,7 @@ public class CartItem implements Serializable {
 
 	@MapsId("productId")
 	@JoinColumn(name = "product_id", referencedColumnName = "id")
-	@ManyToOne(optional = false, fetch = FetchType.EAGER)
+	@ManyToOne(optional = false, fetch = FetchType.LAZY)
 	private Product product;
 
 	@Column(name = "quantity")
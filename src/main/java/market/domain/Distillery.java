@@ -30,7 +30,7 @@ public class Distillery implements Serializable {
 	@Pattern(regexp = "^[^#$%^*()']*$")
 	private String title;
 
-	@ManyToOne(fetch = FetchType.EAGER)
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "region_id", nullable = false)
 	private Region region;
 
@@ -82,7 +82,7 @@ public class Distillery implements Serializable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id, title, region, description);
+		return Objects.hash(id, title, description); // lazy region is left out
 	}
 
 	public static class Builder {
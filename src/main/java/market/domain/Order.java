@@ -14,9 +14,17 @@ import static javax.persistence.TemporalType.TIMESTAMP;
 
 /**
  * Order of the {@link UserAccount}.
+ * <p>
+ * Associations are lazy; {@code Order.details} graph fetches everything the order views show.
  */
 @Entity
 @Table(name = "customer_order")
+@NamedEntityGraph(name = "Order.details",
+	attributeNodes = {
+		@NamedAttributeNode("userAccount"),
+		@NamedAttributeNode("bill"),
+		@NamedAttributeNode(value = "orderedProducts", subgraph = "orderedProducts.product")},
+	subgraphs = @NamedSubgraph(name = "orderedProducts.product", attributeNodes = @NamedAttributeNode("product")))
 public class Order implements Serializable {
 	private static final long serialVersionUID = -8328584058042877489L;
 
@@ -26,18 +34,18 @@ public class Order implements Serializable {
 	@GenericGenerator(name = "gen", strategy = "foreign", parameters = @Parameter(name = "property", value = "bill"))
 	private Long id;
 
-	@ManyToOne(fetch = FetchType.EAGER)
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "user_account_id")
 	private UserAccount userAccount;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER,
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY,
 		targetEntity = OrderedProduct.class, mappedBy = "order")
 //    @OneToMany(fetch = FetchType.LAZY, mappedBy ="pk.order", cascade =
 //            {CascadeType.PERSIST, CascadeType.MERGE})
 //    @Cascade({CascadeType.SAVE_UPDATE, CascadeType.DELETE_ORPHAN})
 	private Set<OrderedProduct> orderedProducts = new HashSet<>(0);
 
-	@OneToOne(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToOne(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	private Bill bill;
 
 	@Column(name = "products_cost", nullable = false)
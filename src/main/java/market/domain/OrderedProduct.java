@@ -29,7 +29,7 @@ public class OrderedProduct implements Serializable {
 
 	@MapsId("productId")
 	@JoinColumn(name = "product_id", referencedColumnName = "id")
-	@ManyToOne(optional = false, fetch = FetchType.EAGER)
+	@ManyToOne(optional = false, fetch = FetchType.LAZY)
 	private Product product;
 
 	@Column(name = "quantity")
@@ -76,12 +76,11 @@ public class OrderedProduct implements Serializable {
 		OrderedProduct that = (OrderedProduct) o;
 		return quantity == that.quantity &&
 			Objects.equals(pk, that.pk) &&
-			Objects.equals(order, that.order) &&
 			Objects.equals(product, that.product);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(pk, order, product, quantity);
+		return Objects.hash(product, quantity); // pk gets the order id on persist, order refers back to this
 	}
 }
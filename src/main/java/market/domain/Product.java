@@ -10,6 +10,9 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.Table;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -20,6 +23,9 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "product")
+@NamedEntityGraph(name = "Product.distillery",
+	attributeNodes = @NamedAttributeNode(value = "distillery", subgraph = "distillery.region"),
+	subgraphs = @NamedSubgraph(name = "distillery.region", attributeNodes = @NamedAttributeNode("region")))
 public class Product implements Serializable {
 	private static final long serialVersionUID = -5637368176838137416L;
 
@@ -28,7 +34,7 @@ public class Product implements Serializable {
 	@Column(name = "id", insertable = false, updatable = false, nullable = false)
 	private long id;
 
-	@ManyToOne(fetch = FetchType.EAGER)
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "distillery_id", nullable = false)
 	private Distillery distillery;
 
@@ -151,7 +157,7 @@ public class Product implements Serializable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id, distillery, name, price, description, volume, alcohol, age, available);
+		return Objects.hash(id, name, price, description, volume, alcohol, age, available); // lazy distillery is left out
 	}
 
 	public static class Builder {
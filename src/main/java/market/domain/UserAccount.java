@@ -1,5 +1,8 @@
 package market.domain;
 
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
+
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.HashSet;
@@ -30,10 +33,11 @@ public class UserAccount implements Serializable {
 	@OneToOne(mappedBy = "userAccount", cascade = CascadeType.ALL)
 	private Contacts contacts;
 
-	@OneToOne(mappedBy = "userAccount", cascade = CascadeType.ALL)
+	@OneToOne(mappedBy = "userAccount", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	@LazyToOne(LazyToOneOption.NO_PROXY) // live carts are read by CartStore, not through the account
 	private Cart cart;
 
-	@ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.ALL})
+	@ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.ALL})
 	@JoinTable(name = "user_role",
 		joinColumns = {
 			@JoinColumn(name = "user_id")},
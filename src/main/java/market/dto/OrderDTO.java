@@ -2,12 +2,14 @@ package market.dto;
 
 import org.springframework.hateoas.RepresentationModel;
 
+import java.io.Serializable;
 import java.util.Date;
 
 /**
- *
+ * Kept in the session as the created order; links are not serialized.
  */
-public class OrderDTO extends RepresentationModel<OrderDTO> {
+public class OrderDTO extends RepresentationModel<OrderDTO> implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private String user;
 	private long orderId;
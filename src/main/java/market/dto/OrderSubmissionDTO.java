@@ -0,0 +1,28 @@
+package market.dto;
+
+import org.springframework.hateoas.RepresentationModel;
+
+/**
+ * Адаптер принятого к оформлению заказа.
+ */
+public class OrderSubmissionDTO extends RepresentationModel<OrderSubmissionDTO> {
+
+	private long submissionId;
+	private String status;
+
+	public long getSubmissionId() {
+		return submissionId;
+	}
+
+	public void setSubmissionId(long submissionId) {
+		this.submissionId = submissionId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+}
@@ -11,28 +11,31 @@ import market.service.ProductService;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-
 /**
  *
  */
 @Component
 public class CartDtoAssembler extends RepresentationModelAssemblerSupport<Cart, CartDTO> {
 
-	public CartDtoAssembler() {
+	private final ControllerLinks links;
+
+	public CartDtoAssembler(ControllerLinks links) {
 		super(CartRestController.class, CartDTO.class);
+		this.links = links;
 	}
 
 	@Override
 	public CartDTO toModel(Cart cart) {
 		CartDTO dto = toAnonymousResource(cart);
 		dto.setUser(cart.getUserAccount().getEmail());
-		dto.add(linkTo(ContactsRestController.class).withRel("Customer contacts"));
-		dto.add(linkTo(CartRestController.class).slash("payment").withRel("Payment"));
+		dto.add(links.link(ContactsRestController.class, "Customer contacts"));
+		dto.add(links.link(CartRestController.class, "Payment", "payment"));
 		return dto;
 	}
 
@@ -62,16 +65,30 @@ public class CartDtoAssembler extends RepresentationModelAssemblerSupport<Cart,
 	 * @return domain cart created from DTO
 	 */
 	public Cart toDomain(CartDTO cartDTO, ProductService productService) {
+		return toDomain(cartDTO, productService.findByIds(productIdsOf(cartDTO)));
+	}
+
+	/**
+	 * @param productsById products of the cart items, e.g. resolved with {@link ProductService#findByIds}
+	 * @return domain cart created from DTO
+	 */
+	public Cart toDomain(CartDTO cartDTO, Map<Long, Product> productsById) {
 		Cart cart = new Cart();
 		cart.setDeliveryIncluded(cartDTO.isDeliveryIncluded());
 		for (CartItemDTO cartItemDto : cartDTO.getCartItems()) {
-			Optional<Product> productOptional = productService.findOne(cartItemDto.getProductId());
-			if (productOptional.isPresent()) {
-				Product product = productOptional.get();
-				if (product.isAvailable())
-					cart.update(product, cartItemDto.getQuantity());
-			}
+			Product product = productsById.get(cartItemDto.getProductId());
+			if (product != null && product.isAvailable())
+				cart.update(product, cartItemDto.getQuantity());
 		}
 		return cart;
 	}
+
+	/**
+	 * @return ids of the products of the cart items
+	 */
+	public Set<Long> productIdsOf(CartDTO cartDTO) {
+		return cartDTO.getCartItems().stream()
+			.map(CartItemDTO::getProductId)
+			.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
 }
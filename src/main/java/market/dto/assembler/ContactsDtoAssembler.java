@@ -6,16 +6,17 @@ import market.rest.CartRestController;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-
 /**
  *
  */
 @Component
 public class ContactsDtoAssembler extends RepresentationModelAssemblerSupport<Contacts, ContactsDTO> {
 
-	public ContactsDtoAssembler() {
+	private final ControllerLinks links;
+
+	public ContactsDtoAssembler(ControllerLinks links) {
 		super(CartRestController.class, ContactsDTO.class);
+		this.links = links;
 	}
 
 	@Override
@@ -24,7 +25,7 @@ public class ContactsDtoAssembler extends RepresentationModelAssemblerSupport<Co
 		dto.setPhone(contacts.getPhone());
 		dto.setAddress(contacts.getAddress());
 		dto.setCityAndRegion(contacts.getCityAndRegion());
-		dto.add(linkTo(CartRestController.class).withRel("Shopping cart"));
+		dto.add(links.link(CartRestController.class, "Shopping cart"));
 		return dto;
 	}
 
@@ -0,0 +1,66 @@
+package market.dto.assembler;
+
+import org.springframework.hateoas.Link;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+/**
+ * Links to the controllers, built the same way as with {@code linkTo(controller).slash(...)}.
+ * <p>
+ * The base URI of a controller depends on the current request only, so it is resolved once
+ * per request and kept in the request attributes; links to the items are made by appending
+ * their path segments to it. Segments are appended as is, so they must not need encoding.
+ */
+@Component
+public class ControllerLinks {
+	private static final String BASES_ATTRIBUTE = ControllerLinks.class.getName() + ".bases";
+
+	/**
+	 * @return link to the specified path below the controller mapping
+	 */
+	public Link link(Class<?> controller, String rel, Object... path) {
+		return new Link(href(controller, path), rel);
+	}
+
+	/**
+	 * @return self link to the specified path below the controller mapping
+	 */
+	public Link self(Class<?> controller, Object... path) {
+		return new Link(href(controller, path));
+	}
+
+	private String href(Class<?> controller, Object... path) {
+		String base = base(controller);
+		if (path.length == 0)
+			return base;
+
+		StringBuilder href = new StringBuilder(base);
+		for (Object segment : path)
+			href.append('/').append(segment);
+		return href.toString();
+	}
+
+	private static String base(Class<?> controller) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null)
+			return resolveBase(controller);
+
+		@SuppressWarnings("unchecked")
+		Map<Class<?>, String> bases = (Map<Class<?>, String>) attributes.getAttribute(BASES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (bases == null) {
+			bases = new HashMap<>();
+			attributes.setAttribute(BASES_ATTRIBUTE, bases, RequestAttributes.SCOPE_REQUEST);
+		}
+		return bases.computeIfAbsent(controller, ControllerLinks::resolveBase);
+	}
+
+	private static String resolveBase(Class<?> controller) {
+		return linkTo(controller).withSelfRel().getHref();
+	}
+}
@@ -9,13 +9,17 @@ import org.springframework.stereotype.Component;
 @Component
 public class DistilleryDtoAssembler extends RepresentationModelAssemblerSupport<Distillery, DistilleryDTO> {
 
-	public DistilleryDtoAssembler() {
+	private final ControllerLinks links;
+
+	public DistilleryDtoAssembler(ControllerLinks links) {
 		super(DistilleryController.class, DistilleryDTO.class);
+		this.links = links;
 	}
 
 	@Override
 	public DistilleryDTO toModel(Distillery distillery) {
-		DistilleryDTO dto = createModelWithId(distillery.getId(), distillery);
+		DistilleryDTO dto = instantiateModel(distillery);
+		dto.add(links.self(DistilleryController.class, distillery.getId()));
 		dto.setId(distillery.getId());
 		dto.setTitle(distillery.getTitle());
 		dto.setDescription(distillery.getDescription());
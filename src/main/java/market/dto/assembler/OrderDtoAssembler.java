@@ -1,5 +1,6 @@
 package market.dto.assembler;
 
+import market.dao.projection.OrderSummary;
 import market.domain.Order;
 import market.dto.OrderDTO;
 import market.rest.OrdersRestController;
@@ -12,13 +13,17 @@ import org.springframework.stereotype.Component;
 @Component
 public class OrderDtoAssembler extends RepresentationModelAssemblerSupport<Order, OrderDTO> {
 
-	public OrderDtoAssembler() {
+	private final ControllerLinks links;
+
+	public OrderDtoAssembler(ControllerLinks links) {
 		super(OrdersRestController.class, OrderDTO.class);
+		this.links = links;
 	}
 
 	@Override
 	public OrderDTO toModel(Order order) {
-		OrderDTO dto = createModelWithId(order.getId(), order);
+		OrderDTO dto = instantiateModel(order);
+		dto.add(links.self(OrdersRestController.class, order.getId()));
 		dto.setOrderId(order.getId());
 		dto.setUser(order.getUserAccount().getEmail());
 		dto.setBillNumber(order.getBill().getNumber());
@@ -31,4 +36,20 @@ public class OrderDtoAssembler extends RepresentationModelAssemblerSupport<Order
 		dto.setExecuted(order.isExecuted());
 		return dto;
 	}
+
+	public OrderDTO toModel(OrderSummary summary) {
+		OrderDTO dto = new OrderDTO();
+		dto.add(links.self(OrdersRestController.class, summary.getId()));
+		dto.setOrderId(summary.getId());
+		dto.setUser(summary.getCustomerEmail());
+		dto.setBillNumber(summary.getBillNumber());
+		dto.setProductsCost(summary.getProductsCost());
+		dto.setDateCreated(summary.getDateCreated());
+		dto.setDeliveryCost(summary.getDeliveryCost());
+		dto.setTotalCost(summary.isDeliveryIncluded() ? (summary.getProductsCost() + summary.getDeliveryCost()) : summary.getProductsCost());
+		dto.setDeliveryIncluded(summary.isDeliveryIncluded());
+		dto.setPayed(summary.isBillPayed());
+		dto.setExecuted(summary.isExecuted());
+		return dto;
+	}
 }
@@ -0,0 +1,34 @@
+package market.dto.assembler;
+
+import market.dto.OrderSubmissionDTO;
+import market.rest.CartRestController;
+import market.rest.OrdersRestController;
+import market.service.order.OrderSubmission;
+import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ *
+ */
+@Component
+public class OrderSubmissionDtoAssembler extends RepresentationModelAssemblerSupport<OrderSubmission, OrderSubmissionDTO> {
+
+	private final ControllerLinks links;
+
+	public OrderSubmissionDtoAssembler(ControllerLinks links) {
+		super(CartRestController.class, OrderSubmissionDTO.class);
+		this.links = links;
+	}
+
+	@Override
+	public OrderSubmissionDTO toModel(OrderSubmission submission) {
+		OrderSubmissionDTO dto = instantiateModel(submission);
+		dto.setSubmissionId(submission.getId());
+		dto.setStatus(submission.getStatus().name());
+		dto.add(links.self(CartRestController.class, "payment", submission.getId()));
+		Long orderId = submission.getOrderId();
+		if (orderId != null)
+			dto.add(links.link(OrdersRestController.class, "order", orderId));
+		return dto;
+	}
+}
@@ -7,21 +7,23 @@ import market.rest.ProductsRestController;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-
 /**
  *
  */
 @Component
 public class ProductDtoAssembler extends RepresentationModelAssemblerSupport<Product, ProductDTO> {
 
-	public ProductDtoAssembler() {
+	private final ControllerLinks links;
+
+	public ProductDtoAssembler(ControllerLinks links) {
 		super(ProductsRestController.class, ProductDTO.class);
+		this.links = links;
 	}
 
 	@Override
 	public ProductDTO toModel(Product product) {
-		ProductDTO dto = createModelWithId(product.getId(), product);
+		ProductDTO dto = instantiateModel(product);
+		dto.add(links.self(ProductsRestController.class, product.getId()));
 		dto.setProductId(product.getId());
 		dto.setDistillery(product.getDistillery() == null ? null : product.getDistillery().getTitle());
 		dto.setName(product.getName());
@@ -31,8 +33,8 @@ public class ProductDtoAssembler extends RepresentationModelAssemblerSupport<Pro
 		dto.setVolume(product.getVolume());
 		dto.setDescription(product.getDescription());
 		dto.setAvailable(product.isAvailable());
-		dto.add(linkTo(ProductsRestController.class).withRel("products"));
-		dto.add(linkTo(CartRestController.class).withRel("cart"));
+		dto.add(links.link(ProductsRestController.class, "products"));
+		dto.add(links.link(CartRestController.class, "cart"));
 		return dto;
 	}
 
@@ -1,8 +1,8 @@
 package market.dto.assembler;
 
-import market.domain.Product;
 import market.dto.ProductPreviewDTO;
 import market.rest.ProductsRestController;
+import market.service.catalog.ProductPreview;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
 
@@ -10,19 +10,23 @@ import org.springframework.stereotype.Component;
  *
  */
 @Component
-public class ProductPreviewAssembler extends RepresentationModelAssemblerSupport<Product, ProductPreviewDTO> {
+public class ProductPreviewAssembler extends RepresentationModelAssemblerSupport<ProductPreview, ProductPreviewDTO> {
 
-	public ProductPreviewAssembler() {
+	private final ControllerLinks links;
+
+	public ProductPreviewAssembler(ControllerLinks links) {
 		super(ProductsRestController.class, ProductPreviewDTO.class);
+		this.links = links;
 	}
 
 	@Override
-	public ProductPreviewDTO toModel(Product product) {
-		ProductPreviewDTO dto = createModelWithId(product.getId(), product);
-		dto.setProductId(product.getId());
-		dto.setDistillery(product.getDistillery().getTitle());
-		dto.setName(product.getName());
-		dto.setPrice(product.getPrice());
+	public ProductPreviewDTO toModel(ProductPreview preview) {
+		ProductPreviewDTO dto = instantiateModel(preview);
+		dto.add(links.self(ProductsRestController.class, preview.getProductId()));
+		dto.setProductId(preview.getProductId());
+		dto.setDistillery(preview.getDistillery());
+		dto.setName(preview.getName());
+		dto.setPrice(preview.getPrice());
 		return dto;
 	}
 }
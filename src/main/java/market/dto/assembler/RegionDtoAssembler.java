@@ -9,13 +9,17 @@ import org.springframework.stereotype.Component;
 @Component
 public class RegionDtoAssembler extends RepresentationModelAssemblerSupport<Region, RegionDTO> {
 
-	public RegionDtoAssembler() {
+	private final ControllerLinks links;
+
+	public RegionDtoAssembler(ControllerLinks links) {
 		super(RegionController.class, RegionDTO.class);
+		this.links = links;
 	}
 
 	@Override
 	public RegionDTO toModel(Region region) {
-		RegionDTO dto = createModelWithId(region.getId(), region);
+		RegionDTO dto = instantiateModel(region);
+		dto.add(links.self(RegionController.class, region.getId()));
 		dto.setId(region.getId());
 		dto.setName(region.getName());
 		dto.setSubtitle(region.getSubtitle());
@@ -7,27 +7,29 @@ import market.rest.CartRestController;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-
 /**
  *
  */
 @Component
 public class UserAccountDtoAssembler extends RepresentationModelAssemblerSupport<UserAccount, UserDTO> {
 
-	public UserAccountDtoAssembler() {
+	private final ControllerLinks links;
+
+	public UserAccountDtoAssembler(ControllerLinks links) {
 		super(CartRestController.class, UserDTO.class);
+		this.links = links;
 	}
 
 	@Override
 	public UserDTO toModel(UserAccount userAccount) {
-		UserDTO dto = createModelWithId(userAccount.getId(), userAccount);
+		UserDTO dto = instantiateModel(userAccount);
+		dto.add(links.self(CartRestController.class, userAccount.getId()));
 		dto.setEmail(userAccount.getEmail());
 		dto.setPassword("hidden");
 		dto.setName(userAccount.getName());
 		dto.setPhone(userAccount.getContacts().getPhone());
 		dto.setAddress(userAccount.getContacts().getAddress());
-		dto.add(linkTo(CartRestController.class).withRel("Shopping cart"));
+		dto.add(links.link(CartRestController.class, "Shopping cart"));
 		return dto;
 	}
 
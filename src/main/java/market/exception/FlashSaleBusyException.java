@@ -0,0 +1,11 @@
+package market.exception;
+
+/**
+ * Запрос не может быть принят: очередь покупателей товара распродажи заполнена.
+ */
+public class FlashSaleBusyException extends CustomNotValidException {
+
+	public FlashSaleBusyException() {
+		super("Busy", "cart", "product");
+	}
+}
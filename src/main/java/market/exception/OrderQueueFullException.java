@@ -0,0 +1,11 @@
+package market.exception;
+
+/**
+ * Заказ не может быть принят: очередь оформления заказов заполнена.
+ */
+public class OrderQueueFullException extends CustomNotValidException {
+
+	public OrderQueueFullException() {
+		super("Busy", "cart", "items");
+	}
+}
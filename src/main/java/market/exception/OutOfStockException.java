@@ -0,0 +1,11 @@
+package market.exception;
+
+/**
+ * Заказ не может быть оформлен: товара на складе меньше, чем в корзине.
+ */
+public class OutOfStockException extends CustomNotValidException {
+
+	public OutOfStockException() {
+		super("NotEnough", "cart", "items");
+	}
+}
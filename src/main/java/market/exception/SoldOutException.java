@@ -0,0 +1,11 @@
+package market.exception;
+
+/**
+ * Товар распродажи закончился.
+ */
+public class SoldOutException extends CustomNotValidException {
+
+	public SoldOutException() {
+		super("SoldOut", "cart", "items");
+	}
+}
@@ -0,0 +1,33 @@
+package market.interceptors;
+
+import market.security.GuestCartCookie;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Перехватчик корзины.
+ * <p>
+ * Делает корзину доступной страницам как атрибут запроса: корзину вошедшего пользователя
+ * из существующей сессии, корзину анонимного покупателя из cookie. Сессию не создаёт.
+ */
+public class CartInterceptor extends HandlerInterceptorAdapter {
+	private final GuestCartCookie guestCartCookie;
+
+	public CartInterceptor(GuestCartCookie guestCartCookie) {
+		this.guestCartCookie = guestCartCookie;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		HttpSession session = request.getSession(false);
+		Object cart = (session == null) ? null : session.getAttribute("cart");
+		if ((cart == null) && (request.getUserPrincipal() == null))
+			cart = guestCartCookie.read(request);
+		if (cart != null)
+			request.setAttribute("cart", cart);
+		return super.preHandle(request, response, handler);
+	}
+}
@@ -0,0 +1,26 @@
+package market.interceptors;
+
+import market.view.FragmentCache;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Перехватчик кэша фрагментов страниц.
+ * <p>
+ * Запоминает версию каталога, с которой обслуживается запрос, до обращения контроллера к каталогу.
+ */
+public class FragmentCacheInterceptor extends HandlerInterceptorAdapter {
+	private final FragmentCache fragmentCache;
+
+	public FragmentCacheInterceptor(FragmentCache fragmentCache) {
+		this.fragmentCache = fragmentCache;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		fragmentCache.begin(request);
+		return super.preHandle(request, response, handler);
+	}
+}
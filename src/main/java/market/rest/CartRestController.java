@@ -6,72 +6,143 @@ import market.dto.CartDTO;
 import market.dto.CartItemDTO;
 import market.dto.CreditCardDTO;
 import market.dto.OrderDTO;
+import market.dto.OrderSubmissionDTO;
 import market.dto.assembler.CartDtoAssembler;
 import market.dto.assembler.OrderDtoAssembler;
+import market.dto.assembler.OrderSubmissionDtoAssembler;
 import market.exception.EmptyCartException;
+import market.exception.FlashSaleBusyException;
+import market.exception.OrderQueueFullException;
+import market.exception.OutOfStockException;
+import market.exception.SoldOutException;
 import market.exception.UnknownEntityException;
 import market.service.CartService;
 import market.service.OrderService;
+import market.service.OrderSubmissionService;
+import market.service.order.FlashSaleGate;
+import market.service.order.OrderIdempotencyStore;
+import market.service.order.OrderSubmission;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.net.URI;
 import java.security.Principal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping(value = "/rest/cart")
 @Secured({"ROLE_USER"})
 public class CartRestController {
+	private static final String RESPOND_ASYNC = "respond-async";
+
 	private final CartService cartService;
 	private final OrderService orderService;
+	private final OrderSubmissionService orderSubmissionService;
+	private final OrderIdempotencyStore orderIdempotencyStore;
+	private final FlashSaleGate flashSaleGate;
 	private final CartDtoAssembler cartDtoAssembler;
 	private final OrderDtoAssembler orderDtoAssembler;
+	private final OrderSubmissionDtoAssembler orderSubmissionDtoAssembler;
 
 	@Value("${deliveryCost}")
 	private int deliveryCost;
 
 	public CartRestController(CartService cartService, OrderService orderService,
-		CartDtoAssembler cartDtoAssembler, OrderDtoAssembler orderDtoAssembler)
+		OrderSubmissionService orderSubmissionService, OrderIdempotencyStore orderIdempotencyStore,
+		FlashSaleGate flashSaleGate, CartDtoAssembler cartDtoAssembler, OrderDtoAssembler orderDtoAssembler,
+		OrderSubmissionDtoAssembler orderSubmissionDtoAssembler)
 	{
 		this.cartService = cartService;
 		this.orderService = orderService;
+		this.orderSubmissionService = orderSubmissionService;
+		this.orderIdempotencyStore = orderIdempotencyStore;
+		this.flashSaleGate = flashSaleGate;
 		this.cartDtoAssembler = cartDtoAssembler;
 		this.orderDtoAssembler = orderDtoAssembler;
+		this.orderSubmissionDtoAssembler = orderSubmissionDtoAssembler;
 	}
 
 	/**
 	 * Viewing the cart.
+	 *
+	 * @return the cart, or nothing if it has not changed since the client got it
 	 */
 	@RequestMapping(
 		method = RequestMethod.GET,
 		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
 	@ResponseBody
-	public CartDTO getCart(Principal principal) {
-		Cart cart = cartService.getCartOrCreate(principal.getName());
+	public CartDTO getCart(Principal principal, WebRequest request, HttpServletResponse response) {
+		String login = principal.getName();
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+		if (request.checkNotModified(EntityTags.of("cart", cartService.getCartVersion(login))))
+			return null;
+		Cart cart = cartService.getCartOrCreate(login);
 		return cartDtoAssembler.toAnonymousResource(cart);
 	}
 
 	/**
 	 * Adding a product.
+	 * <p>
+	 * Requests for a product on flash sale wait for their turn, see {@link FlashSaleGate}.
 	 *
 	 * @return updated cart
 	 * @throws UnknownEntityException if the specified product does not exist
+	 * @throws SoldOutException       if the product on flash sale is sold out
+	 * @throws FlashSaleBusyException if too many buyers are waiting for the product on flash sale
 	 */
 	@RequestMapping(
 		method = RequestMethod.PUT,
 		consumes = MediaUtf8.APPLICATION_JSON_UTF8_VALUE,
 		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
 	@ResponseBody
-	public CartDTO addItem(Principal principal, @RequestBody CartItemDTO item) throws UnknownEntityException {
+	public CartDTO addItem(Principal principal, @RequestBody CartItemDTO item)
+		throws UnknownEntityException, SoldOutException, FlashSaleBusyException
+	{
 		String login = principal.getName();
-		Cart cart = cartService.addToCart(login, item.getProductId(), item.getQuantity());
-		return cartDtoAssembler.toAnonymousResource(cart);
+		Map<Long, Integer> quantities = Collections.singletonMap(item.getProductId(), item.getQuantity());
+		try (FlashSaleGate.Admission admission = flashSaleGate.admit(quantities)) {
+			Cart cart = cartService.addToCart(login, item.getProductId(), item.getQuantity());
+			return cartDtoAssembler.toAnonymousResource(cart);
+		}
+	}
+
+	/**
+	 * Changing several products at once, e.g. when restoring a saved cart.
+	 * Items are applied in order, the last quantity of a product wins; zero quantity removes
+	 * the product. Unknown and unavailable products are skipped.
+	 *
+	 * @return updated cart
+	 * @throws SoldOutException       if a product on flash sale is sold out
+	 * @throws FlashSaleBusyException if too many buyers are waiting for a product on flash sale
+	 */
+	@RequestMapping(value = "/items",
+		method = RequestMethod.PUT,
+		consumes = MediaUtf8.APPLICATION_JSON_UTF8_VALUE,
+		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
+	@ResponseBody
+	public CartDTO addItems(Principal principal, @RequestBody List<CartItemDTO> items)
+		throws SoldOutException, FlashSaleBusyException
+	{
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for (CartItemDTO item : items)
+			quantities.put(item.getProductId(), item.getQuantity());
+		try (FlashSaleGate.Admission admission = flashSaleGate.admit(quantities)) {
+			Cart cart = cartService.addAllToCart(principal.getName(), quantities);
+			return cartDtoAssembler.toAnonymousResource(cart);
+		}
 	}
 
 	/**
@@ -106,22 +177,75 @@ public class CartRestController {
 
 	/**
 	 * Order registration.
+	 * <p>
+	 * With {@code Prefer: respond-async} header the order is only validated and enqueued:
+	 * the response is {@code 202 Accepted} with the submission status, which may be polled
+	 * at the {@code Location} until the order is created.
+	 * <p>
+	 * A request repeated with the same {@code Idempotency-Key} header gets the order created
+	 * by the first one, instead of creating another, whether either of them was asynchronous or not.
 	 *
-	 * @return created order
-	 * @throws EmptyCartException if the cart is empty
+	 * @return created order, or accepted submission
+	 * @throws EmptyCartException      if the cart is empty
+	 * @throws OutOfStockException     if some products of the cart are short in stock
+	 * @throws OrderQueueFullException if the order queue is full
+	 * @throws SoldOutException        if a product of the cart on flash sale is sold out
+	 * @throws FlashSaleBusyException  if too many buyers are waiting for a product of the cart on flash sale
 	 */
 	@RequestMapping(value = "/payment",
 		method = RequestMethod.POST,
 		consumes = MediaUtf8.APPLICATION_JSON_UTF8_VALUE,
 		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
 	@ResponseBody
-	public ResponseEntity<OrderDTO> payByCard(Principal principal, @Valid @RequestBody CreditCardDTO card) throws EmptyCartException {
+	public ResponseEntity<?> payByCard(
+		Principal principal, @Valid @RequestBody CreditCardDTO card,
+		@RequestHeader(value = "Prefer", required = false) String prefer,
+		@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+	) throws EmptyCartException, OutOfStockException, OrderQueueFullException, SoldOutException,
+		FlashSaleBusyException
+	{
 		String login = principal.getName();
-		Order order = orderService.createUserOrder(login, deliveryCost, card.getNumber());
-		OrderDTO dto = orderDtoAssembler.toModel(order);
+		FlashSaleGate.Admission admission = flashSaleGate.admit(cartService.getCartOrCreate(login));
+		boolean admissionHandedOver = false;
+		try {
+			if ((prefer != null) && prefer.contains(RESPOND_ASYNC)) {
+				OrderSubmission submission = orderSubmissionService.submit(login, idempotencyKey, deliveryCost,
+					card.getNumber());
+				// the admission is held until the order is written, not just queued
+				admission.closeOn(submission.getCompletion());
+				admissionHandedOver = true;
+				OrderSubmissionDTO dto = orderSubmissionDtoAssembler.toModel(submission);
+				return new ResponseEntity<>(dto, locationOf(dto), HttpStatus.ACCEPTED);
+			}
+
+			Order order = orderIdempotencyStore.execute(login, idempotencyKey,
+				() -> orderService.createUserOrder(login, deliveryCost, card.getNumber()));
+			OrderDTO dto = orderDtoAssembler.toModel(order);
+			return new ResponseEntity<>(dto, locationOf(dto), HttpStatus.CREATED);
+		} finally {
+			if (!admissionHandedOver)
+				admission.close();
+		}
+	}
+
+	/**
+	 * Status of the order accepted for asynchronous registration.
+	 *
+	 * @return submission status, with the link to the order when created
+	 * @throws UnknownEntityException if the submission does not exist or has expired
+	 */
+	@RequestMapping(value = "/payment/{submissionId}",
+		method = RequestMethod.GET,
+		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
+	@ResponseBody
+	public OrderSubmissionDTO getSubmission(Principal principal, @PathVariable long submissionId) throws UnknownEntityException {
+		OrderSubmission submission = orderSubmissionService.getSubmission(principal.getName(), submissionId);
+		return orderSubmissionDtoAssembler.toModel(submission);
+	}
 
+	private static HttpHeaders locationOf(RepresentationModel<?> dto) {
 		HttpHeaders headers = new HttpHeaders();
 		dto.getLink("self").ifPresent(link -> headers.setLocation(URI.create(link.getHref())));
-		return new ResponseEntity<>(dto, headers, HttpStatus.CREATED);
+		return headers;
 	}
 }
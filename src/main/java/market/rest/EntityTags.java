@@ -0,0 +1,15 @@
+package market.rest;
+
+/**
+ * Strong entity tags of the REST resources, made of the version of the resource state.
+ * Versions are shared by the application nodes, so every node makes the same tag.
+ */
+final class EntityTags {
+
+	private EntityTags() {
+	}
+
+	static String of(String resource, long version) {
+		return '"' + resource + '-' + version + '"';
+	}
+}
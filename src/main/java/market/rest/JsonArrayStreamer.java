@@ -0,0 +1,79 @@
+package market.rest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Writes JSON arrays to the response element by element, as the elements are produced,
+ * so the whole array is never held in memory.
+ * <p>
+ * Elements are serialized with the same object mapper as the {@code @ResponseBody} values
+ * of the same type, so the output does not differ from a serialized list.
+ */
+@Component
+public class JsonArrayStreamer {
+
+	private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter;
+	private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+	public JsonArrayStreamer(ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter) {
+		this.handlerAdapter = handlerAdapter;
+	}
+
+	/**
+	 * Writes all the elements passed by the producer to its sink as a JSON array.
+	 * The response is committed by the first written elements, so failures of the producer
+	 * can only break off the output. The array is then left unclosed, so the client cannot
+	 * take the broken output for a complete list.
+	 */
+	public <T> void write(HttpServletResponse response, Class<T> elementType, Consumer<Consumer<T>> producer)
+		throws IOException
+	{
+		ObjectWriter writer = writers.computeIfAbsent(elementType, this::createWriter);
+		response.setContentType(MediaUtf8.APPLICATION_JSON_UTF8_VALUE);
+		try (JsonGenerator generator = writer.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+			generator.writeStartArray();
+			try {
+				producer.accept(element -> {
+					try {
+						writer.writeValue(generator, element);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			generator.writeEndArray();
+		}
+	}
+
+	private ObjectWriter createWriter(Class<?> elementType) {
+		for (HttpMessageConverter<?> converter : handlerAdapter.getObject().getMessageConverters()) {
+			if ((converter instanceof AbstractJackson2HttpMessageConverter)
+				&& converter.canWrite(elementType, MediaType.APPLICATION_JSON))
+			{
+				return ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper()
+					.writerFor(elementType)
+					.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+			}
+		}
+		throw new IllegalStateException("No JSON converter for " + elementType.getName());
+	}
+}
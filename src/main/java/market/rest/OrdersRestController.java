@@ -13,10 +13,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.security.Principal;
-import java.util.List;
-
-import static java.util.stream.Collectors.toList;
 
 /**
  * Customer orders history.
@@ -28,25 +27,26 @@ import static java.util.stream.Collectors.toList;
 public class OrdersRestController {
 	private final OrderService orderService;
 	private final OrderDtoAssembler orderDtoAssembler;
+	private final JsonArrayStreamer jsonArrayStreamer;
 
-	public OrdersRestController(OrderService orderService, OrderDtoAssembler orderDtoAssembler) {
+	public OrdersRestController(OrderService orderService, OrderDtoAssembler orderDtoAssembler,
+		JsonArrayStreamer jsonArrayStreamer)
+	{
 		this.orderService = orderService;
 		this.orderDtoAssembler = orderDtoAssembler;
+		this.jsonArrayStreamer = jsonArrayStreamer;
 	}
 
 	/**
-	 * View orders.
-	 *
-	 * @return orders list of the specified customer
+	 * View orders: orders list of the specified customer, written to the response
+	 * one by one as they are read from the database.
 	 */
 	@RequestMapping(
 		method = RequestMethod.GET,
 		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
-	@ResponseBody
-	public List<OrderDTO> getOrders(Principal principal) {
-		return orderService.getUserOrders(principal.getName()).stream()
-			.map(orderDtoAssembler::toModel)
-			.collect(toList());
+	public void getOrders(Principal principal, HttpServletResponse response) throws IOException {
+		jsonArrayStreamer.write(response, OrderDTO.class,
+			sink -> orderService.forEachUserOrder(principal.getName(), order -> sink.accept(orderDtoAssembler.toModel(order))));
 	}
 
 	/**
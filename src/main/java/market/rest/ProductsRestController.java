@@ -8,15 +8,17 @@ import market.dto.assembler.ProductPreviewAssembler;
 import market.exception.UnknownEntityException;
 import market.service.ProductService;
 import org.springframework.hateoas.server.ExposesResourceFor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 @Controller
 @RequestMapping(value = "/rest/products")
@@ -26,42 +28,60 @@ public class ProductsRestController {
 	private final ProductService productService;
 	private final ProductPreviewAssembler productPreviewAssembler;
 	private final ProductDtoAssembler productAssembler;
+	private final JsonArrayStreamer jsonArrayStreamer;
 
 	public ProductsRestController(ProductService productService,
-		ProductPreviewAssembler productPreviewAssembler, ProductDtoAssembler productAssembler)
+		ProductPreviewAssembler productPreviewAssembler, ProductDtoAssembler productAssembler,
+		JsonArrayStreamer jsonArrayStreamer)
 	{
 		this.productService = productService;
 		this.productPreviewAssembler = productPreviewAssembler;
 		this.productAssembler = productAssembler;
+		this.jsonArrayStreamer = jsonArrayStreamer;
 	}
 
 	/**
-	 * All the products.
+	 * All the products, written to the response one by one.
+	 * Not sent again if the catalog has not changed since the client got it.
 	 */
 	@RequestMapping(
 		method = RequestMethod.GET,
 		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
-	@ResponseBody
-	public Collection<ProductPreviewDTO> getProducts() {
-		return productService.findAll().stream()
-			.sorted(Comparator.comparing(Product::getId))
-			.map(productPreviewAssembler::toModel)
-			.collect(Collectors.toList());
+	public void getProducts(WebRequest request, HttpServletResponse response) throws IOException {
+		if (catalogNotModified(request, response))
+			return;
+		jsonArrayStreamer.write(response, ProductPreviewDTO.class,
+			sink -> productService.findPreviews().forEach(preview -> sink.accept(productPreviewAssembler.toModel(preview))));
 	}
 
 	/**
 	 * Viewing a single product.
 	 *
-	 * @return product with the specified id
+	 * @return product with the specified id, or nothing if the catalog has not changed since the client got it
 	 * @throws UnknownEntityException if the product with the specified id doesn't exist
 	 */
 	@RequestMapping(value = "/{id}",
 		method = RequestMethod.GET,
 		produces = MediaUtf8.APPLICATION_JSON_UTF8_VALUE)
 	@ResponseBody
-	public ProductDTO getProduct(@PathVariable long id) throws UnknownEntityException {
+	public ProductDTO getProduct(@PathVariable long id, WebRequest request, HttpServletResponse response)
+		throws UnknownEntityException
+	{
+		if (catalogNotModified(request, response))
+			return null;
 		return productService.findOne(id)
 			.map(productAssembler::toModel)
 			.orElseThrow(() -> new UnknownEntityException(Product.class, id));
 	}
+
+	/**
+	 * Checks the catalog version against the conditional headers of the request,
+	 * setting the response status and headers.
+	 */
+	private boolean catalogNotModified(WebRequest request, HttpServletResponse response) {
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+		long lastModified = productService.getCatalogLastModified();
+		String etag = EntityTags.of("catalog", productService.getCatalogVersion());
+		return request.checkNotModified(etag, lastModified);
+	}
 }
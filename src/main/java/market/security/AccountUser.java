@@ -0,0 +1,30 @@
+package market.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Аутентифицированный пользователь, знающий идентификатор своего аккаунта.
+ * <p>
+ * Идентификатор хранится вместе с контекстом безопасности, поэтому запросам вошедшего
+ * пользователя не требуется искать аккаунт по адресу электронной почты.
+ */
+public class AccountUser extends User {
+	private static final long serialVersionUID = -3072615834709187302L;
+
+	private final long accountId;
+
+	public AccountUser(long accountId, String username, String password, boolean enabled,
+		boolean accountNonExpired, boolean credentialsNonExpired, boolean accountNonLocked,
+		Collection<? extends GrantedAuthority> authorities)
+	{
+		super(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+		this.accountId = accountId;
+	}
+
+	public long getAccountId() {
+		return accountId;
+	}
+}
@@ -1,12 +1,9 @@
 package market.security;
 
 import market.domain.Cart;
-import market.domain.UserAccount;
 import market.dto.CartDTO;
 import market.dto.assembler.CartDtoAssembler;
-import market.service.UserAccountService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import market.service.CartService;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
@@ -21,18 +18,19 @@ import java.util.Set;
  * Обработчик успешной аутентификации пользователя.
  */
 public class CustomAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
-	private static final Logger log = LoggerFactory.getLogger(CustomAuthenticationSuccessHandler.class);
 
 	private final ServletContext servletContext;
-	private final UserAccountService userAccountService;
+	private final CartService cartService;
 	private final CartDtoAssembler cartDtoAssembler;
+	private final GuestCartCookie guestCartCookie;
 
-	public CustomAuthenticationSuccessHandler(ServletContext servletContext, UserAccountService userAccountService,
-		CartDtoAssembler cartDtoAssembler)
+	public CustomAuthenticationSuccessHandler(ServletContext servletContext, CartService cartService,
+		CartDtoAssembler cartDtoAssembler, GuestCartCookie guestCartCookie)
 	{
 		this.servletContext = servletContext;
-		this.userAccountService = userAccountService;
+		this.cartService = cartService;
 		this.cartDtoAssembler = cartDtoAssembler;
+		this.guestCartCookie = guestCartCookie;
 	}
 
 	@Override
@@ -41,9 +39,10 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
 	{
 		Set<String> roles = AuthorityUtils.authorityListToSet(authentication.getAuthorities());
 		if (roles.contains("ROLE_USER")) {
-			UserAccount account = userAccountService.findByEmail(authentication.getName());
-			CartDTO cartDto = prepareCartDto(account);
+			Cart cart = cartService.getCartOrCreate(authentication.getName());
+			CartDTO cartDto = cartDtoAssembler.toModel(cart);
 			request.getSession().setAttribute("cart", cartDto);
+			guestCartCookie.clear(request, response);
 		}
 		if (isStaff(roles)) {
 			response.sendRedirect(servletContext.getContextPath() + "/admin/");
@@ -53,15 +52,6 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
 		request.getSession(false).setMaxInactiveInterval(30);
 	}
 
-	private CartDTO prepareCartDto(UserAccount account) {
-		Cart cart = account.getCart();
-		if (cart == null) {
-			log.warn(String.format("Account #%d has no cart, this shall never happen", account.getId()));
-			return null;
-		}
-		return cartDtoAssembler.toModel(cart);
-	}
-
 	private boolean isStaff(Set<String> roles) {
 		return roles.contains("ROLE_ADMIN") || roles.contains("ROLE_STAFF");
 	}
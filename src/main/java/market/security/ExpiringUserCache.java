@@ -0,0 +1,90 @@
+package market.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш пользователей для аутентификации по паролю и по cookie remember-me.
+ * <p>
+ * Число пользователей в кэше ограничено: вытесняются давно не использованные. Пользователь
+ * хранится ограниченное время, поэтому изменения аккаунта и ролей, внесённые в обход
+ * приложения, становятся видны не позже чем через это время.
+ * <p>
+ * Кэш хранит и выдаёт копии: после аутентификации пароль пользователя стирается,
+ * а копия в кэше должна его сохранить.
+ */
+@Component
+public class ExpiringUserCache implements UserCache {
+	private final long ttlMillis;
+
+	/**
+	 * Упорядочен по обращениям, защищён самим собой.
+	 */
+	private final Map<String, Entry> entries;
+
+	public ExpiringUserCache(
+		@Value("${security.userCache.capacity:10000}") int capacity,
+		@Value("${security.userCache.ttl:300000}") long ttlMillis)
+	{
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	@Override
+	public UserDetails getUserFromCache(String username) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(username);
+			if ((entry != null) && (entry.expiresAt <= System.currentTimeMillis())) {
+				entries.remove(username);
+				entry = null;
+			}
+		}
+		return (entry == null) ? null : copy(entry.user);
+	}
+
+	@Override
+	public void putUserInCache(UserDetails user) {
+		Entry entry = new Entry(copy(user), System.currentTimeMillis() + ttlMillis);
+		synchronized (entries) {
+			entries.put(user.getUsername(), entry);
+		}
+	}
+
+	@Override
+	public void removeUserFromCache(String username) {
+		synchronized (entries) {
+			entries.remove(username);
+		}
+	}
+
+	private static UserDetails copy(UserDetails user) {
+		if (user instanceof AccountUser) {
+			return new AccountUser(((AccountUser) user).getAccountId(), user.getUsername(), user.getPassword(),
+				user.isEnabled(), user.isAccountNonExpired(), user.isCredentialsNonExpired(), user.isAccountNonLocked(),
+				user.getAuthorities());
+		}
+		return User.withUserDetails(user).build();
+	}
+
+	private static class Entry {
+		final UserDetails user;
+		final long expiresAt;
+
+		Entry(UserDetails user, long expiresAt) {
+			this.user = user;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
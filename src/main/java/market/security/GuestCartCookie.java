@@ -0,0 +1,149 @@
+package market.security;
+
+import market.dto.CartDTO;
+import market.dto.CartItemDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.WebUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Корзина анонимного покупателя, хранимая в подписанном cookie.
+ * <p>
+ * Пока покупатель не вошёл в систему, корзина не занимает памяти сервера: cookie содержит
+ * признак доставки и пары «товар:количество», например {@code 1|12:2|15:1}, и подпись HMAC-SHA256.
+ * Cookie с неверной подписью или неверного формата считается отсутствующим. Ключ подписи задаётся
+ * свойством {@code cart.guestCookie.secret} и должен совпадать на всех узлах приложения, иначе
+ * корзина теряется при переходе покупателя на другой узел; без ключа приложение не запускается.
+ */
+@Component
+public class GuestCartCookie {
+	private static final Logger log = LoggerFactory.getLogger(GuestCartCookie.class);
+
+	public static final String NAME = "GUEST_CART";
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final char SIGNATURE_SEPARATOR = '.';
+	private static final String ITEM_SEPARATOR = "|";
+	private static final char QUANTITY_SEPARATOR = ':';
+	private static final int SECRET_MIN_LENGTH = 32;
+
+	private final SecretKeySpec key;
+	private final int maxAge;
+	private final int maxItems;
+
+	public GuestCartCookie(
+		@Value("${cart.guestCookie.secret}") String secret,
+		@Value("${cart.guestCookie.maxAge:1209600}") int maxAge,
+		@Value("${cart.guestCookie.maxItems:50}") int maxItems)
+	{
+		byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+		if (keyBytes.length < SECRET_MIN_LENGTH)
+			throw new IllegalArgumentException("cart.guestCookie.secret must be at least " + SECRET_MIN_LENGTH + " bytes long");
+		this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+		this.maxAge = maxAge;
+		this.maxItems = maxItems;
+	}
+
+	/**
+	 * @return корзина из cookie запроса с товарами и признаком доставки, без стоимостей,
+	 * или null, если действительного cookie нет
+	 */
+	public CartDTO read(HttpServletRequest request) {
+		Cookie cookie = WebUtils.getCookie(request, NAME);
+		return (cookie == null) ? null : decode(cookie.getValue());
+	}
+
+	/**
+	 * Сохраняет корзину в cookie ответа, пустая корзина удаляет cookie.
+	 */
+	public void write(HttpServletRequest request, HttpServletResponse response, CartDTO cart) {
+		if (cart.getCartItems().isEmpty() && !cart.isDeliveryIncluded()) {
+			clear(request, response);
+			return;
+		}
+		response.addCookie(cookie(request, encode(cart), maxAge));
+	}
+
+	public void clear(HttpServletRequest request, HttpServletResponse response) {
+		if (WebUtils.getCookie(request, NAME) != null)
+			response.addCookie(cookie(request, "", 0));
+	}
+
+	private static Cookie cookie(HttpServletRequest request, String value, int maxAge) {
+		Cookie cookie = new Cookie(NAME, value);
+		cookie.setPath(StringUtils.isEmpty(request.getContextPath()) ? "/" : request.getContextPath());
+		cookie.setHttpOnly(true);
+		cookie.setMaxAge(maxAge);
+		return cookie;
+	}
+
+	String encode(CartDTO cart) {
+		StringBuilder payload = new StringBuilder(cart.isDeliveryIncluded() ? "1" : "0");
+		cart.getCartItems().stream()
+			.limit(maxItems)
+			.forEach(item -> payload.append(ITEM_SEPARATOR)
+				.append(item.getProductId()).append(QUANTITY_SEPARATOR).append(item.getQuantity()));
+		String signature = sign(payload.toString());
+		return payload.append(SIGNATURE_SEPARATOR).append(signature).toString();
+	}
+
+	CartDTO decode(String value) {
+		int separator = value.lastIndexOf(SIGNATURE_SEPARATOR);
+		if (separator < 0)
+			return null;
+		String payload = value.substring(0, separator);
+		byte[] signature = value.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+		if (!MessageDigest.isEqual(signature, sign(payload).getBytes(StandardCharsets.US_ASCII))) {
+			log.debug("Guest cart cookie with invalid signature is ignored");
+			return null;
+		}
+
+		String[] parts = StringUtils.delimitedListToStringArray(payload, ITEM_SEPARATOR);
+		if ((parts.length - 1 > maxItems) || !("0".equals(parts[0]) || "1".equals(parts[0])))
+			return null;
+		List<CartItemDTO> items = new ArrayList<>(parts.length - 1);
+		try {
+			for (int i = 1; i < parts.length; i++) {
+				int quantitySeparator = parts[i].indexOf(QUANTITY_SEPARATOR);
+				long productId = Long.parseLong(parts[i].substring(0, Math.max(quantitySeparator, 0)));
+				int quantity = Integer.parseInt(parts[i].substring(quantitySeparator + 1));
+				if (quantity <= 0)
+					return null;
+				items.add(new CartItemDTO(productId, quantity));
+			}
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+
+		CartDTO cart = new CartDTO();
+		cart.setDeliveryIncluded("1".equals(parts[0]));
+		cart.setCartItems(items);
+		cart.setItemsCount(items.size());
+		return cart;
+	}
+
+	private String sign(String payload) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -6,7 +6,6 @@ import market.service.UserAccountService;
 import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -37,7 +36,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 		return buildUser(userEntity);
 	}
 
-	private User buildUser(UserAccount account) {
+	private AccountUser buildUser(UserAccount account) {
 		String login = account.getEmail();
 		String password = account.getPassword();
 		boolean enabled = account.isActive();
@@ -51,8 +50,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 		}
 		authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
 
-		User user = new User(login, password, enabled,
+		return new AccountUser(account.getId(), login, password, enabled,
 			accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
-		return user;
 	}
 }
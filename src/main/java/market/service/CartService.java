@@ -5,6 +5,7 @@ import market.domain.CartItem;
 import market.exception.UnknownEntityException;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CartService {
 
@@ -13,6 +14,17 @@ public interface CartService {
 	 */
 	Cart getCartOrCreate(String userEmail);
 
+	/**
+	 * Returns existing or creates new cart of the account with the specified id.
+	 */
+	Cart getCartOrCreate(long accountId);
+
+	/**
+	 * Returns version of the specified user cart, incremented on every change of it and
+	 * the same on all the application nodes. The cart got afterwards is at least of the returned version.
+	 */
+	long getCartVersion(String userEmail);
+
 	/**
 	 * Adds new item into the specified user cart and saves cart.
 	 * @return updated cart
@@ -25,6 +37,13 @@ public interface CartService {
 	 */
 	Cart addAllToCart(String userEmail, List<CartItem> itemsToCopy);
 
+	/**
+	 * Sets quantities of the specified products in the user cart at once, zero quantity removes the product.
+	 * Unknown and unavailable products are skipped.
+	 * @return updated cart
+	 */
+	Cart addAllToCart(String userEmail, Map<Long, Integer> quantitiesByProductId);
+
 	/**
 	 * Changes delivery option of the specified user cart.
 	 * @return updated cart
@@ -36,4 +55,10 @@ public interface CartService {
 	 * @return updated cart
 	 */
 	Cart clearCart(String userEmail);
+
+	/**
+	 * Clears the specified user cart within the current transaction: other requests get the empty
+	 * cart once the transaction commits. If the transaction is rolled back, the cart stays as it was.
+	 */
+	void clearCartOnCommit(String userEmail);
 }
@@ -9,6 +9,11 @@ public interface ContactsService {
 	 */
 	Contacts getContacts(String userLogin);
 
+	/**
+	 * @return contacts of the account with the specified id
+	 */
+	Contacts getContacts(long accountId);
+
 	/**
 	 * Updates contacts of the specified user.
 	 */
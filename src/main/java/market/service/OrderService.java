@@ -1,12 +1,17 @@
 package market.service;
 
+import market.dao.projection.OrderSummary;
 import market.domain.Order;
 import market.exception.EmptyCartException;
+import market.exception.OutOfStockException;
 import market.exception.UnknownEntityException;
+import market.sorting.KeysetRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface OrderService {
 
@@ -15,6 +20,18 @@ public interface OrderService {
 	 */
 	List<Order> getUserOrders(String userLogin);
 
+	/**
+	 * @return all the orders of the account with the specified id
+	 */
+	List<Order> getUserOrders(long accountId);
+
+	/**
+	 * Passes the summaries of all the orders of the specified user, newest first, to the specified action
+	 * one by one, holding no more than a chunk of them in memory. Items of the summaries are not filled.
+	 * No transaction or connection is held while the action runs.
+	 */
+	void forEachUserOrder(String userLogin, Consumer<? super OrderSummary> action);
+
 	/**
 	 * @return order of the specified user and id
 	 * @throws UnknownEntityException if the requested order does not exist
@@ -26,13 +43,20 @@ public interface OrderService {
 	 */
 	Page<Order> fetchFiltered(String executed, String created, PageRequest request);
 
+	/**
+	 * @return summaries of the orders filtered according to the passed parameters, following the request cursor
+	 */
+	Slice<OrderSummary> fetchSummaries(String executed, String created, KeysetRequest request);
+
 	/**
 	 * Creates new order for the specified user.
 	 *
 	 * @return newly created order
-	 * @throws EmptyCartException if the specified user cart is empty
+	 * @throws EmptyCartException  if the specified user cart is empty
+	 * @throws OutOfStockException if some products of the cart are short in stock
 	 */
-	Order createUserOrder(String userLogin, int deliveryCost, String cardNumber) throws EmptyCartException;
+	Order createUserOrder(String userLogin, int deliveryCost, String cardNumber)
+		throws EmptyCartException, OutOfStockException;
 
 	/**
 	 * Updates a state of the order with the specified id
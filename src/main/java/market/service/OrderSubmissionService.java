@@ -0,0 +1,33 @@
+package market.service;
+
+import market.exception.EmptyCartException;
+import market.exception.OrderQueueFullException;
+import market.exception.UnknownEntityException;
+import market.service.order.OrderSubmission;
+
+/**
+ * Asynchronous creation of the user orders.
+ */
+public interface OrderSubmissionService {
+
+	/**
+	 * Checks the user cart and enqueues creation of the order from it.
+	 * If the user already has a pending submission, that one is returned.
+	 * <p>
+	 * The order is created once per idempotency key, as in the synchronous creation:
+	 * the submission repeated with the key gets the order created with it earlier.
+	 *
+	 * @param idempotencyKey idempotency key sent by the client, may be {@code null}
+	 * @return accepted submission
+	 * @throws EmptyCartException      if the cart is empty
+	 * @throws OrderQueueFullException if the queue is full and the order can not be accepted
+	 */
+	OrderSubmission submit(String userLogin, String idempotencyKey, int deliveryCost, String cardNumber)
+		throws EmptyCartException, OrderQueueFullException;
+
+	/**
+	 * @return submission of the specified user
+	 * @throws UnknownEntityException if the user has no submission with the specified id, or it has expired
+	 */
+	OrderSubmission getSubmission(String userLogin, long submissionId) throws UnknownEntityException;
+}
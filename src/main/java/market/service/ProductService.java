@@ -4,9 +4,11 @@ import market.domain.Distillery;
 import market.domain.Product;
 import market.domain.Region;
 import market.exception.UnknownEntityException;
+import market.service.catalog.ProductPreview;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,6 +20,22 @@ public interface ProductService {
 	 */
 	List<Product> findAll();
 
+	/**
+	 * @return version of the catalog (regions, distilleries and products), changed on every change of it;
+	 * products got afterwards are at least of the returned version
+	 */
+	long getCatalogVersion();
+
+	/**
+	 * @return time of the latest catalog change, in milliseconds
+	 */
+	long getCatalogLastModified();
+
+	/**
+	 * @return previews of all the products, sorted by id
+	 */
+	List<ProductPreview> findPreviews();
+
 	/**
 	 * @return all the products, sorted by title and paged
 	 */
@@ -49,6 +67,11 @@ public interface ProductService {
 	 */
 	Optional<Product> findOne(long productId);
 
+	/**
+	 * @return products with the specified ids, keyed by id; unknown ids are omitted
+	 */
+	Map<Long, Product> findByIds(Collection<Long> productIds);
+
 	/**
 	 * Creates new product.
 	 */
@@ -62,9 +85,18 @@ public interface ProductService {
 	void update(Product product, String distilleryTitle) throws UnknownEntityException;
 
 	/**
-	 * Updates availability of the specified product.
+	 * Sets availability of the specified products, in a single transaction.
+	 *
+	 * @param productIdsByAvailability ids of the products by the availability to set
+	 * @return number of the products which availability has changed
+	 */
+	int updateAvailability(Map<Boolean, List<Long>> productIdsByAvailability);
+
+	/**
+	 * Adds the received quantity to the stock of the product. Stock of the products
+	 * which were never received is not limited.
 	 */
-	void updateAvailability(Map<Boolean, List<Long>> productIdsByAvailability);
+	void receiveStock(long productId, int quantity);
 
 	/**
 	 * Removes distillery.
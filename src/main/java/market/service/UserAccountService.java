@@ -10,6 +10,14 @@ public interface UserAccountService {
 	 */
 	UserAccount findByEmail(String email);
 
+	/**
+	 * Resolves the account id without loading the account: the id of the signed in user
+	 * is taken from the principal, ids of other users are cached.
+	 *
+	 * @return id of the account associated with the specified email, or null if there is none
+	 */
+	Long findIdByEmail(String email);
+
 	/**
 	 * Creates new account.
 	 * @return newly created account
@@ -0,0 +1,94 @@
+package market.service.cart;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC access to the {@code cart} and {@code cart_item} tables, writing the items
+ * of a cart with batched statements. The {@code version} column of the cart is not mapped
+ * to the entity, it is created by {@code db/schema-postgresql.sql}.
+ */
+@Component
+public class CartBatchDAO {
+	private static final String SELECT_VERSION = "SELECT version FROM cart WHERE id = ?";
+	private static final String SELECT_CART = "SELECT delivery_included, version FROM cart WHERE id = ?";
+	private static final String SELECT_ITEMS = "SELECT product_id, quantity FROM cart_item WHERE cart_id = ?";
+	private static final String UPDATE_CART = "UPDATE cart SET delivery_included = ?, version = ? WHERE id = ? AND version = ?";
+	private static final String INSERT_CART = "INSERT INTO cart (id, delivery_included, version) VALUES (?, ?, ?)"
+		+ " ON CONFLICT (id) DO NOTHING";
+	private static final String DELETE_ITEMS = "DELETE FROM cart_item WHERE cart_id = ?";
+	private static final String INSERT_ITEM = "INSERT INTO cart_item (cart_id, product_id, quantity) VALUES (?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+
+	public CartBatchDAO(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * @return version of the stored cart of the specified account, zero if the account has no cart
+	 */
+	public long findVersion(long accountId) {
+		List<Long> version = jdbcTemplate.queryForList(SELECT_VERSION, Long.class, accountId);
+		return version.isEmpty() ? 0 : version.get(0);
+	}
+
+	/**
+	 * The items are read after the version, so they are at least of that version.
+	 *
+	 * @return state of the cart of the specified account, or {@code null} if the account has no cart
+	 */
+	public CartState load(long accountId) {
+		List<CartState> carts = jdbcTemplate.query(SELECT_CART, (rs, rowNum) -> {
+			return new CartState(accountId, rs.getLong("version"), rs.getBoolean("delivery_included"),
+				new LinkedHashMap<>());
+		}, accountId);
+		if (carts.isEmpty())
+			return null;
+
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		jdbcTemplate.query(SELECT_ITEMS, rs -> {
+			quantities.put(rs.getLong("product_id"), rs.getInt("quantity"));
+		}, accountId);
+		CartState cart = carts.get(0);
+		return new CartState(accountId, cart.getVersion(), cart.isDeliveryIncluded(), quantities);
+	}
+
+	/**
+	 * Replaces the stored state of the cart with the changed one, if the stored one is still
+	 * of the previous version; a cart of the first version is created, if the account has none.
+	 * Joins the current transaction, if any.
+	 *
+	 * @param cart changed state, of the version following the stored one
+	 * @return {@code false}, if the cart has been changed concurrently and is left as it was
+	 */
+	public boolean save(CartState cart) {
+		Boolean saved = transactionTemplate.execute(status -> {
+			long previous = cart.getVersion() - 1;
+			int updated = jdbcTemplate.update(UPDATE_CART,
+				cart.isDeliveryIncluded(), cart.getVersion(), cart.getAccountId(), previous);
+			if ((updated == 0) && (previous == 0))
+				updated = jdbcTemplate.update(INSERT_CART, cart.getAccountId(), cart.isDeliveryIncluded(), cart.getVersion());
+			if (updated == 0)
+				return false;
+
+			List<Object[]> itemArgs = new ArrayList<>();
+			for (Map.Entry<Long, Integer> item : cart.getQuantitiesByProductId().entrySet())
+				itemArgs.add(new Object[]{cart.getAccountId(), item.getKey(), item.getValue()});
+			jdbcTemplate.update(DELETE_ITEMS, cart.getAccountId());
+			if (!itemArgs.isEmpty())
+				jdbcTemplate.batchUpdate(INSERT_ITEM, itemArgs);
+			return true;
+		});
+		return Boolean.TRUE.equals(saved);
+	}
+}
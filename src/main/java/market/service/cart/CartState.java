@@ -0,0 +1,70 @@
+package market.service.cart;
+
+import market.domain.Cart;
+import market.domain.CartItem;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Persistent state of a cart: the contents of its {@code cart} and {@code cart_item} rows.
+ * The version of the state is incremented by every change of the cart, by any node.
+ */
+public final class CartState {
+
+	private final long accountId;
+	private final long version;
+	private final boolean deliveryIncluded;
+	private final Map<Long, Integer> quantitiesByProductId;
+
+	/**
+	 * @param quantitiesByProductId product quantities in the order of addition to the cart
+	 */
+	public CartState(long accountId, long version, boolean deliveryIncluded, Map<Long, Integer> quantitiesByProductId) {
+		this.accountId = accountId;
+		this.version = version;
+		this.deliveryIncluded = deliveryIncluded;
+		this.quantitiesByProductId = Collections.unmodifiableMap(new LinkedHashMap<>(quantitiesByProductId));
+	}
+
+	public static CartState of(Cart cart, long version) {
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for (CartItem item : cart.getCartItems())
+			quantities.put(item.getProduct().getId(), item.getQuantity());
+		return new CartState(cart.getId(), version, cart.isDeliveryIncluded(), quantities);
+	}
+
+	public long getAccountId() {
+		return accountId;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public boolean isDeliveryIncluded() {
+		return deliveryIncluded;
+	}
+
+	public Map<Long, Integer> getQuantitiesByProductId() {
+		return quantitiesByProductId;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		CartState that = (CartState) o;
+		return accountId == that.accountId &&
+			version == that.version &&
+			deliveryIncluded == that.deliveryIncluded &&
+			Objects.equals(quantitiesByProductId, that.quantitiesByProductId);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(accountId, version, deliveryIncluded, quantitiesByProductId);
+	}
+}
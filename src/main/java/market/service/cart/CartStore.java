@@ -0,0 +1,181 @@
+package market.service.cart;
+
+import market.dao.UserAccountDAO;
+import market.domain.Cart;
+import market.domain.CartItem;
+import market.domain.Product;
+import market.domain.UserAccount;
+import market.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Write-through store of the user carts, shared by all the nodes of the application.
+ * <p>
+ * Every change is written to the database at once, provided the stored cart has not been
+ * changed concurrently since it was read: the stored version of the cart is incremented by
+ * every change, and a change of an outdated cart is applied again to the actual one.
+ * <p>
+ * Loaded carts are cached in memory, keyed by account id, along with their versions;
+ * a cached cart is used while the stored version is the same, so reading a cart takes
+ * a single query by primary key. The number of cached carts is bounded: least recently
+ * used ones are dropped. Cached carts are never changed, so a cart returned by the store
+ * may be read without synchronization.
+ */
+@Component
+public class CartStore {
+	private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+	private final CartBatchDAO cartBatchDAO;
+	private final UserAccountDAO userAccountDAO;
+	private final ProductService productService;
+
+	/**
+	 * Access-ordered, guarded by itself.
+	 */
+	private final Map<Long, Entry> entries;
+
+	public CartStore(CartBatchDAO cartBatchDAO, UserAccountDAO userAccountDAO, ProductService productService,
+		@Value("${cart.store.capacity:10000}") int capacity)
+	{
+		this.cartBatchDAO = cartBatchDAO;
+		this.userAccountDAO = userAccountDAO;
+		this.productService = productService;
+		this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return current cart of the specified account; empty, if the account has none
+	 */
+	public Cart get(long accountId) {
+		return entry(accountId).cart;
+	}
+
+	/**
+	 * @return version of the current cart of the specified account, the same on all the nodes;
+	 * zero, if the account has no cart. A cart got after the version was read is at least of that version.
+	 */
+	public long getVersion(long accountId) {
+		return cartBatchDAO.findVersion(accountId);
+	}
+
+	/**
+	 * Changes the cart of the specified account and writes it to the database, within the current
+	 * transaction if any. Other nodes see the change once the transaction commits; if it is rolled
+	 * back, the cart stays as it was.
+	 *
+	 * @param mutation change applied to a copy of the current cart; may be applied more than once,
+	 *                 if the cart is changed concurrently
+	 * @return changed cart
+	 */
+	public Cart update(long accountId, Consumer<Cart> mutation) {
+		while (true) {
+			Entry current = entry(accountId);
+			Cart changed = copy(current.cart);
+			mutation.accept(changed);
+			Entry entry = new Entry(changed, current.version + 1);
+			if (cartBatchDAO.save(CartState.of(changed, entry.version))) {
+				cacheOnCommit(accountId, entry);
+				return changed;
+			}
+			if (log.isDebugEnabled())
+				log.debug("Cart of account #" + accountId + " has been changed concurrently, applying the change again");
+		}
+	}
+
+	//------------------------------------------------------------------ Helpers
+
+	private Entry entry(long accountId) {
+		long version = cartBatchDAO.findVersion(accountId);
+		synchronized (entries) {
+			Entry entry = entries.get(accountId);
+			if ((entry != null) && (entry.version == version))
+				return entry;
+		}
+
+		Entry loaded = load(accountId);
+		cache(accountId, loaded);
+		return loaded;
+	}
+
+	/**
+	 * The account is loaded with the cart, so that the cart shows its owner.
+	 */
+	private Entry load(long accountId) {
+		UserAccount account = userAccountDAO.findById(accountId)
+			.orElseThrow(() -> new IllegalArgumentException("No account #" + accountId));
+		Cart cart = new Cart(account);
+		cart.setId(account.getId());
+		CartState state = cartBatchDAO.load(account.getId());
+		if (state == null)
+			return new Entry(cart, 0);
+
+		cart.setDeliveryIncluded(state.isDeliveryIncluded());
+		if (state.getQuantitiesByProductId().isEmpty())
+			return new Entry(cart, state.getVersion());
+
+		Map<Long, Product> products = productService.findByIds(state.getQuantitiesByProductId().keySet());
+		for (Map.Entry<Long, Integer> item : state.getQuantitiesByProductId().entrySet())
+			cart.update(products.get(item.getKey()), item.getValue());
+		return new Entry(cart, state.getVersion());
+	}
+
+	/**
+	 * A written cart is cached only once it is committed: until then, other nodes may still
+	 * write another cart of the same version.
+	 */
+	private void cacheOnCommit(long accountId, Entry entry) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					cache(accountId, entry);
+				}
+			});
+		} else {
+			cache(accountId, entry);
+		}
+	}
+
+	/**
+	 * A cart cached by a concurrent request may be replaced with an older one; the older one
+	 * is then loaded again on the next read, as its version is not the stored one.
+	 */
+	private void cache(long accountId, Entry entry) {
+		synchronized (entries) {
+			entries.put(accountId, entry);
+		}
+	}
+
+	private static Cart copy(Cart source) {
+		Cart cart = new Cart(source.getUserAccount());
+		cart.setId(source.getId());
+		cart.setDeliveryIncluded(source.isDeliveryIncluded());
+		for (CartItem item : source.getCartItems())
+			cart.update(item.getProduct(), item.getQuantity());
+		return cart;
+	}
+
+	private static class Entry {
+		final Cart cart;
+		final long version;
+
+		Entry(Cart cart, long version) {
+			this.cart = cart;
+			this.version = version;
+		}
+	}
+}
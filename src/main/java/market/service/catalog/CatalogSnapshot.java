@@ -0,0 +1,256 @@
+package market.service.catalog;
+
+import market.domain.Distillery;
+import market.domain.Product;
+import market.domain.Region;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.collectingAndThen;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Immutable state of the catalog (regions, distilleries and products) at some version.
+ * <p>
+ * All the lookups the storefront needs are precomputed on creation, so reading from
+ * a snapshot never touches the database. Entities held by a snapshot are shared between
+ * requests and must not be modified.
+ */
+public final class CatalogSnapshot {
+
+	private static final Comparator<Product> BY_NAME = Comparator.comparing(Product::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+	private static final Map<String, Comparator<Product>> PRODUCT_SORTS = new HashMap<>();
+
+	static {
+		PRODUCT_SORTS.put("id", Comparator.comparing(Product::getId));
+		PRODUCT_SORTS.put("name", BY_NAME);
+		PRODUCT_SORTS.put("price", nullsLast(Product::getPrice));
+		PRODUCT_SORTS.put("age", nullsLast(Product::getAge));
+		PRODUCT_SORTS.put("volume", nullsLast(Product::getVolume));
+		PRODUCT_SORTS.put("alcohol", nullsLast(Product::getAlcohol));
+		PRODUCT_SORTS.put("distillery.title", nullsLast(p -> p.getDistillery().getTitle()));
+	}
+
+	private final long version;
+	private final List<Region> regions;
+	private final List<Distillery> distilleries;
+	private final List<Product> products;
+	private final List<ProductPreview> previews;
+	private final Map<Long, Region> regionsById;
+	private final Map<String, Region> regionsByName;
+	private final Map<Long, Distillery> distilleriesById;
+	private final Map<String, Distillery> distilleriesByTitle;
+	private final Map<Long, Product> productsById;
+	private final Map<Long, List<Distillery>> distilleriesByRegion;
+	private final Map<Long, List<Product>> productsByRegion;
+	private final Map<Long, List<Product>> productsByDistillery;
+
+	/**
+	 * Differently sorted views of the product lists, built on demand. Keys are made of
+	 * known sort properties only, so the number of views is bounded.
+	 */
+	private final Map<String, List<Product>> sortedProducts = new ConcurrentHashMap<>();
+
+	private CatalogSnapshot(long version, Collection<Region> regions, Collection<Distillery> distilleries,
+		Collection<Product> products)
+	{
+		this.version = version;
+		this.regions = sorted(regions, Comparator.comparing(Region::getName));
+		this.distilleries = sorted(distilleries, Comparator.comparing(Distillery::getTitle));
+		this.products = sorted(products, BY_NAME);
+		this.previews = products.stream()
+			.sorted(Comparator.comparing(Product::getId))
+			.map(ProductPreview::of)
+			.collect(collectingAndThen(toList(), Collections::unmodifiableList));
+
+		regionsById = index(this.regions, Region::getId);
+		regionsByName = index(this.regions, Region::getName);
+		distilleriesById = index(this.distilleries, Distillery::getId);
+		distilleriesByTitle = index(this.distilleries, Distillery::getTitle);
+		productsById = index(this.products, Product::getId);
+
+		distilleriesByRegion = group(this.distilleries, d -> d.getRegion().getId());
+		productsByRegion = group(this.products, p -> p.getDistillery().getRegion().getId());
+		productsByDistillery = group(this.products, p -> p.getDistillery().getId());
+	}
+
+	/**
+	 * @return snapshot of the specified version made of the specified entities
+	 */
+	public static CatalogSnapshot of(long version, Collection<Region> regions, Collection<Distillery> distilleries,
+		Collection<Product> products)
+	{
+		return new CatalogSnapshot(version, regions, distilleries, products);
+	}
+
+	/**
+	 * @param productIds ids of the changed products
+	 * @param changedProducts current state of the changed products; the ones missing are removed
+	 * @return snapshot of the specified version with the same regions and distilleries, and the changed products
+	 */
+	public CatalogSnapshot withProducts(long version, Collection<Long> productIds, Collection<Product> changedProducts) {
+		Map<Long, Product> products = new HashMap<>(productsById);
+		products.keySet().removeAll(productIds);
+		for (Product product : changedProducts)
+			products.put(product.getId(), product);
+		return new CatalogSnapshot(version, regions, distilleries, products.values());
+	}
+
+	/**
+	 * @return snapshot of the specified version with no entities
+	 */
+	public static CatalogSnapshot empty(long version) {
+		return new CatalogSnapshot(version, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	//------------------------------------------------------------------ Regions
+
+	/**
+	 * @return all the regions sorted by name
+	 */
+	public List<Region> getRegions() {
+		return regions;
+	}
+
+	public Region findRegion(long regionId) {
+		return regionsById.get(regionId);
+	}
+
+	public Region findRegionByName(String name) {
+		return regionsByName.get(name);
+	}
+
+	//------------------------------------------------------------- Distilleries
+
+	/**
+	 * @return all the distilleries sorted by title
+	 */
+	public List<Distillery> getDistilleries() {
+		return distilleries;
+	}
+
+	/**
+	 * @return distilleries of the specified region sorted by title
+	 */
+	public List<Distillery> getDistilleries(long regionId) {
+		return distilleriesByRegion.getOrDefault(regionId, Collections.emptyList());
+	}
+
+	public Distillery findDistillery(long distilleryId) {
+		return distilleriesById.get(distilleryId);
+	}
+
+	public Distillery findDistilleryByTitle(String title) {
+		return distilleriesByTitle.get(title);
+	}
+
+	//----------------------------------------------------------------- Products
+
+	/**
+	 * @return all the products sorted by name
+	 */
+	public List<Product> getProducts() {
+		return products;
+	}
+
+	/**
+	 * @return previews of all the products sorted by id
+	 */
+	public List<ProductPreview> getProductPreviews() {
+		return previews;
+	}
+
+	public Product findProduct(long productId) {
+		return productsById.get(productId);
+	}
+
+	/**
+	 * @return page of the products of the specified region
+	 */
+	public Page<Product> getRegionProducts(long regionId, Pageable pageable) {
+		return page("region" + regionId, productsByRegion.getOrDefault(regionId, Collections.emptyList()), pageable);
+	}
+
+	/**
+	 * @return page of the products of the specified distillery
+	 */
+	public Page<Product> getDistilleryProducts(long distilleryId, Pageable pageable) {
+		return page("distillery" + distilleryId, productsByDistillery.getOrDefault(distilleryId, Collections.emptyList()), pageable);
+	}
+
+	private Page<Product> page(String scope, List<Product> byName, Pageable pageable) {
+		List<Product> content = sortedView(scope, byName, pageable.getSort());
+		if (pageable.isUnpaged())
+			return new PageImpl<>(content, pageable, content.size());
+
+		int from = (int) Math.min(pageable.getOffset(), content.size());
+		int to = Math.min(from + pageable.getPageSize(), content.size());
+		return new PageImpl<>(content.subList(from, to), pageable, content.size());
+	}
+
+	/**
+	 * Sorts products by the known properties of the specified sort. Products are
+	 * already sorted by name, so name remains the last criterion.
+	 */
+	private List<Product> sortedView(String scope, List<Product> byName, Sort sort) {
+		StringBuilder key = new StringBuilder(scope);
+		Comparator<Product> comparator = null;
+		for (Sort.Order order : sort) {
+			Comparator<Product> propertyComparator = PRODUCT_SORTS.get(order.getProperty());
+			if (propertyComparator == null)
+				continue;
+			if (order.isDescending())
+				propertyComparator = propertyComparator.reversed();
+			comparator = (comparator == null) ? propertyComparator : comparator.thenComparing(propertyComparator);
+			key.append(':').append(order.getProperty()).append(',').append(order.getDirection());
+		}
+		if (comparator == null)
+			return byName;
+
+		Comparator<Product> viewComparator = comparator.thenComparing(BY_NAME);
+		return sortedProducts.computeIfAbsent(key.toString(), k -> sorted(byName, viewComparator));
+	}
+
+	//------------------------------------------------------------------ Helpers
+
+	private static <T, U extends Comparable<? super U>> Comparator<T> nullsLast(Function<T, U> keyExtractor) {
+		return Comparator.comparing(keyExtractor, Comparator.nullsLast(Comparator.naturalOrder()));
+	}
+
+	private static <T> List<T> sorted(Collection<T> source, Comparator<T> comparator) {
+		return source.stream()
+			.sorted(comparator)
+			.collect(collectingAndThen(toList(), Collections::unmodifiableList));
+	}
+
+	private static <K, T> Map<K, T> index(List<T> source, Function<T, K> keyExtractor) {
+		Map<K, T> index = new HashMap<>();
+		for (T item : source)
+			index.put(keyExtractor.apply(item), item);
+		return Collections.unmodifiableMap(index);
+	}
+
+	private static <T> Map<Long, List<T>> group(List<T> source, Function<T, Long> keyExtractor) {
+		return source.stream()
+			.collect(collectingAndThen(
+				groupingBy(keyExtractor, LinkedHashMap::new, collectingAndThen(toList(), Collections::unmodifiableList)),
+				Collections::unmodifiableMap));
+	}
+}
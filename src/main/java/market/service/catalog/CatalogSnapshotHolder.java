@@ -0,0 +1,226 @@
+package market.service.catalog;
+
+import market.dao.DistilleryDAO;
+import market.dao.ProductDAO;
+import market.dao.RegionDAO;
+import market.domain.Distillery;
+import market.domain.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current {@link CatalogSnapshot}.
+ * <p>
+ * Catalog changes only bump the requested version; the snapshot of that version
+ * is loaded lazily by the first reader that needs it and then published to all
+ * the other readers at once. The requested version and the time of its change are known
+ * without loading, so clients may check for changes cheaply. If only some products have
+ * changed since the current snapshot, only they are loaded.
+ * <p>
+ * Versions are shared by all the nodes of the application through the {@link CatalogVersionStore}:
+ * a change made on one node is seen by the others within {@code catalog.syncInterval}, and then
+ * the whole catalog is reloaded, since only the version of the change is known. The same version
+ * thus stands for the same catalog on every node, as do the caches and the entity tags built on it.
+ */
+@Component
+public class CatalogSnapshotHolder implements SmartInitializingSingleton {
+	private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotHolder.class);
+
+	private final RegionDAO regionDAO;
+	private final DistilleryDAO distilleryDAO;
+	private final ProductDAO productDAO;
+	private final TransactionTemplate transactionTemplate;
+	private final CatalogVersionStore versionStore;
+
+	private final AtomicLong requestedVersion = new AtomicLong(1);
+	private volatile long lastModified = System.currentTimeMillis();
+	private volatile CatalogSnapshot snapshot = CatalogSnapshot.empty(0);
+
+	/**
+	 * Ids of the products changed since the current snapshot; guarded by itself, as are {@link #catalogChanged}
+	 * and the changes of {@link #requestedVersion} and {@link #lastModified}.
+	 */
+	private final Set<Long> changedProductIds = new HashSet<>();
+	private boolean catalogChanged = true;
+
+	public CatalogSnapshotHolder(RegionDAO regionDAO, DistilleryDAO distilleryDAO, ProductDAO productDAO,
+		PlatformTransactionManager transactionManager, CatalogVersionStore versionStore)
+	{
+		this.regionDAO = regionDAO;
+		this.distilleryDAO = distilleryDAO;
+		this.productDAO = productDAO;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.versionStore = versionStore;
+	}
+
+	/**
+	 * Takes the shared version before any request is served.
+	 */
+	@Override
+	public void afterSingletonsInstantiated() {
+		CatalogVersionStore.Version shared = versionStore.read();
+		synchronized (changedProductIds) {
+			lastModified = shared.getLastModified();
+			requestedVersion.set(Math.max(shared.getNumber(), requestedVersion.get()));
+		}
+	}
+
+	/**
+	 * Catches up with the changes made on the other nodes.
+	 */
+	@Scheduled(fixedDelayString = "${catalog.syncInterval:1000}")
+	public void synchronize() {
+		CatalogVersionStore.Version shared = versionStore.read();
+		if (shared.getNumber() > requestedVersion.get())
+			changed(null, shared);
+	}
+
+	/**
+	 * @return snapshot of the latest catalog version
+	 */
+	public CatalogSnapshot get() {
+		CatalogSnapshot current = snapshot;
+		if (current.getVersion() == requestedVersion.get())
+			return current;
+		return reload();
+	}
+
+	/**
+	 * @return latest catalog version, without loading its snapshot
+	 */
+	public long getVersion() {
+		return requestedVersion.get();
+	}
+
+	/**
+	 * @return time of the latest catalog change known to the application, in milliseconds
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Marks the current snapshot as outdated. If called within a transaction,
+	 * takes effect after the transaction is committed.
+	 */
+	public void invalidate() {
+		CatalogVersionStore.Version version = versionStore.increment();
+		afterCommit(() -> changed(null, version));
+	}
+
+	/**
+	 * Marks the specified products of the current snapshot as outdated, the rest of the catalog
+	 * is kept. If called within a transaction, takes effect after the transaction is committed.
+	 */
+	public void invalidateProducts(Collection<Long> productIds) {
+		Set<Long> ids = new HashSet<>(productIds);
+		CatalogVersionStore.Version version = versionStore.increment();
+		afterCommit(() -> changed(ids, version));
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					change.run();
+				}
+			});
+		} else {
+			change.run();
+		}
+	}
+
+	/**
+	 * Versions only grow: a change already seen through {@link #synchronize} does not take
+	 * the version back.
+	 *
+	 * @param productIds ids of the changed products, or null if the whole catalog has changed
+	 */
+	private void changed(Set<Long> productIds, CatalogVersionStore.Version version) {
+		synchronized (changedProductIds) {
+			if (productIds == null)
+				catalogChanged = true;
+			else
+				changedProductIds.addAll(productIds);
+			if (version.getNumber() > requestedVersion.get()) {
+				lastModified = version.getLastModified();
+				requestedVersion.set(version.getNumber());
+			}
+		}
+	}
+
+	private synchronized CatalogSnapshot reload() {
+		long version = requestedVersion.get();
+		CatalogSnapshot current = snapshot;
+		if (current.getVersion() == version)
+			return current;
+
+		// changes are taken after the version is read, so the loaded snapshot includes all
+		// the changes of that version, and maybe some of the next ones
+		boolean wholeCatalog;
+		Set<Long> productIds;
+		synchronized (changedProductIds) {
+			wholeCatalog = catalogChanged;
+			productIds = new HashSet<>(changedProductIds);
+			catalogChanged = false;
+			changedProductIds.clear();
+		}
+
+		CatalogSnapshot loaded;
+		try {
+			loaded = wholeCatalog ? loadCatalog(version) : loadProducts(current, version, productIds);
+		} catch (RuntimeException e) {
+			synchronized (changedProductIds) {
+				catalogChanged |= wholeCatalog;
+				changedProductIds.addAll(productIds);
+			}
+			throw e;
+		}
+		snapshot = loaded;
+		return loaded;
+	}
+
+	private CatalogSnapshot loadCatalog(long version) {
+		// regions and distilleries are loaded first, so the lazy references of the products and
+		// distilleries resolve to the loaded instances and the snapshot never hits a proxy
+		CatalogSnapshot loaded = transactionTemplate.execute(status -> CatalogSnapshot.of(version,
+			regionDAO.findAll(), distilleryDAO.findAll(), productDAO.findAll()));
+		log.info("Catalog snapshot of version {} loaded: {} products", version, loaded.getProducts().size());
+		return loaded;
+	}
+
+	/**
+	 * Loaded products refer to the distilleries of the current snapshot, unless some of them
+	 * refer to a distillery the snapshot does not know; then the whole catalog is loaded.
+	 */
+	private CatalogSnapshot loadProducts(CatalogSnapshot current, long version, Set<Long> productIds) {
+		List<Product> products = productIds.isEmpty()
+			? Collections.emptyList()
+			: transactionTemplate.execute(status -> productDAO.findByIdIn(productIds));
+		for (Product product : products) {
+			Distillery distillery = current.findDistillery(product.getDistillery().getId());
+			if (distillery == null)
+				return loadCatalog(version);
+			product.setDistillery(distillery);
+		}
+		CatalogSnapshot loaded = current.withProducts(version, productIds, products);
+		log.info("Catalog snapshot of version {} loaded: {} products reloaded", version, products.size());
+		return loaded;
+	}
+}
@@ -0,0 +1,64 @@
+package market.service.catalog;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * Catalog version shared by all the nodes of the application, kept in the single row
+ * of the {@code catalog_version} table.
+ * <p>
+ * A change of the catalog increments the version within its own transaction, so the new version
+ * is seen by the other nodes together with the change, and concurrent changes are ordered
+ * by the lock of the row.
+ */
+@Component
+public class CatalogVersionStore {
+	private static final String READ = "SELECT version, modified FROM catalog_version WHERE id = 1";
+	private static final String INCREMENT = "UPDATE catalog_version SET version = version + 1, modified = ? WHERE id = 1";
+	private static final RowMapper<Version> VERSION_MAPPER = (rs, rowNum) -> new Version(rs.getLong(1), rs.getLong(2));
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public CatalogVersionStore(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * @return latest committed version
+	 */
+	public Version read() {
+		return jdbcTemplate.queryForObject(READ, VERSION_MAPPER);
+	}
+
+	/**
+	 * Increments the version; if called within a transaction, the row stays locked until it completes.
+	 *
+	 * @return incremented version
+	 */
+	public Version increment() {
+		jdbcTemplate.update(INCREMENT, System.currentTimeMillis());
+		return read();
+	}
+
+	public static final class Version {
+		private final long number;
+		private final long lastModified;
+
+		public Version(long number, long lastModified) {
+			this.number = number;
+			this.lastModified = lastModified;
+		}
+
+		public long getNumber() {
+			return number;
+		}
+
+		/**
+		 * @return time of the change, in milliseconds
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+}
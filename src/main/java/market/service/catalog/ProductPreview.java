@@ -0,0 +1,40 @@
+package market.service.catalog;
+
+import market.domain.Product;
+
+/**
+ * Columns of a product shown in the catalog listings, detached from the entity.
+ */
+public final class ProductPreview {
+	private final long productId;
+	private final String distillery;
+	private final String name;
+	private final Double price;
+
+	public ProductPreview(long productId, String distillery, String name, Double price) {
+		this.productId = productId;
+		this.distillery = distillery;
+		this.name = name;
+		this.price = price;
+	}
+
+	static ProductPreview of(Product product) {
+		return new ProductPreview(product.getId(), product.getDistillery().getTitle(), product.getName(), product.getPrice());
+	}
+
+	public long getProductId() {
+		return productId;
+	}
+
+	public String getDistillery() {
+		return distillery;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Double getPrice() {
+		return price;
+	}
+}
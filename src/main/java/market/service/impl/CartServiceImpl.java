@@ -1,92 +1,108 @@
 package market.service.impl;
 
-import market.dao.CartDAO;
 import market.domain.Cart;
 import market.domain.CartItem;
 import market.domain.Product;
-import market.domain.UserAccount;
 import market.exception.UnknownEntityException;
 import market.service.CartService;
 import market.service.ProductService;
 import market.service.UserAccountService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import market.service.cart.CartStore;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
+/**
+ * Cart changes are written through the {@link CartStore}, within the current transaction if any.
+ * Carts are kept by account id, so the accounts are not looked up by email.
+ */
 @Service
 public class CartServiceImpl implements CartService {
-	private static final Logger log = LoggerFactory.getLogger(CartServiceImpl.class);
 
-	private final CartDAO cartDAO;
+	private final CartStore cartStore;
 	private final UserAccountService userAccountService;
 	private final ProductService productService;
 
-	public CartServiceImpl(CartDAO cartDAO, UserAccountService userAccountService, ProductService productService) {
-		this.cartDAO = cartDAO;
+	public CartServiceImpl(CartStore cartStore, UserAccountService userAccountService, ProductService productService) {
+		this.cartStore = cartStore;
 		this.userAccountService = userAccountService;
 		this.productService = productService;
 	}
 
-	@Transactional(propagation = Propagation.SUPPORTS)
 	@Override
 	public Cart getCartOrCreate(String userEmail) {
-		UserAccount account = userAccountService.findByEmail(userEmail);
-		Optional<Cart> cartOptional = cartDAO.findById(account.getId());
-		return cartOptional.orElseGet(() -> createCart(account));
+		return getCartOrCreate(accountId(userEmail));
 	}
 
-	private Cart createCart(UserAccount account) {
-		if (log.isDebugEnabled())
-			log.debug("Creating new cart for account #" + account.getId());
-		return cartDAO.save(new Cart(account));
+	@Override
+	public Cart getCartOrCreate(long accountId) {
+		return cartStore.get(accountId);
+	}
+
+	@Override
+	public long getCartVersion(String userEmail) {
+		long accountId = accountId(userEmail);
+		return cartStore.getVersion(accountId);
 	}
 
-	@Transactional
 	@Override
 	public Cart addToCart(String userEmail, long productId, int quantity) throws UnknownEntityException {
-		Cart cart = getCartOrCreate(userEmail);
+		long accountId = accountId(userEmail);
 		Product product = productService.getProduct(productId);
 		if (product.isAvailable()) {
-			cart.update(product, quantity);
-			return cartDAO.save(cart);
+			return cartStore.update(accountId, cart -> cart.update(product, quantity));
 		} else {
-			return cart;
+			return cartStore.get(accountId);
 		}
 	}
 
-	@Transactional
 	@Override
 	public Cart addAllToCart(String userEmail, List<CartItem> itemsToAdd) {
-		Cart cart = getCartOrCreate(userEmail);
-		boolean updated = false;
-		for (CartItem item : itemsToAdd) {
-			Optional<Product> product = productService.findOne(item.getProduct().getId());
-			if (product.isPresent() && product.get().isAvailable()) {
-				cart.update(product.get(), item.getQuantity());
-				updated = true;
-			}
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for (CartItem item : itemsToAdd)
+			quantities.put(item.getProduct().getId(), item.getQuantity());
+		return addAllToCart(userEmail, quantities);
+	}
+
+	@Override
+	public Cart addAllToCart(String userEmail, Map<Long, Integer> quantitiesByProductId) {
+		long accountId = accountId(userEmail);
+		Map<Long, Product> products = productService.findByIds(quantitiesByProductId.keySet());
+		Map<Product, Integer> quantities = new LinkedHashMap<>();
+		for (Map.Entry<Long, Integer> e : quantitiesByProductId.entrySet()) {
+			Product product = products.get(e.getKey());
+			if (product != null && product.isAvailable())
+				quantities.put(product, e.getValue());
 		}
-		return updated ? cartDAO.save(cart) : cart;
+		if (quantities.isEmpty())
+			return cartStore.get(accountId);
+		return cartStore.update(accountId, cart -> quantities.forEach(cart::update));
 	}
 
-	@Transactional
 	@Override
 	public Cart setDelivery(String userEmail, boolean deliveryIncluded) {
-		Cart cart = getCartOrCreate(userEmail);
-		cart.setDeliveryIncluded(deliveryIncluded);
-		return cartDAO.save(cart);
+		long accountId = accountId(userEmail);
+		return cartStore.update(accountId, cart -> cart.setDeliveryIncluded(deliveryIncluded));
 	}
 
-	@Transactional
 	@Override
 	public Cart clearCart(String userEmail) {
-		Cart cart = getCartOrCreate(userEmail);
-		cart.clear();
-		return cartDAO.save(cart);
+		long accountId = accountId(userEmail);
+		return cartStore.update(accountId, Cart::clear);
+	}
+
+	@Override
+	public void clearCartOnCommit(String userEmail) {
+		long accountId = accountId(userEmail);
+		cartStore.update(accountId, Cart::clear);
+	}
+
+	private long accountId(String userEmail) {
+		Long accountId = userAccountService.findIdByEmail(userEmail);
+		if (accountId == null)
+			throw new IllegalArgumentException("No account with email " + userEmail);
+		return accountId;
 	}
 }
@@ -2,7 +2,6 @@ package market.service.impl;
 
 import market.dao.ContactsDAO;
 import market.domain.Contacts;
-import market.domain.UserAccount;
 import market.service.ContactsService;
 import market.service.UserAccountService;
 import org.springframework.stereotype.Service;
@@ -21,8 +20,17 @@ public class ContactsServiceImpl implements ContactsService {
 	@Transactional(readOnly = true)
 	@Override
 	public Contacts getContacts(String userLogin) {
-		UserAccount account = userAccountService.findByEmail(userLogin);
-		return contactsDAO.findByUserAccount(account);
+		Long accountId = userAccountService.findIdByEmail(userLogin);
+		return (accountId == null) ? null : getContacts(accountId);
+	}
+
+	/**
+	 * Contacts share the id of their account.
+	 */
+	@Transactional(readOnly = true)
+	@Override
+	public Contacts getContacts(long accountId) {
+		return contactsDAO.findById(accountId).orElse(null);
 	}
 
 	@Transactional
@@ -5,48 +5,45 @@ import market.domain.Distillery;
 import market.domain.Region;
 import market.service.DistilleryService;
 import market.service.RegionService;
+import market.service.catalog.CatalogSnapshotHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class DistilleryServiceImpl implements DistilleryService {
 	private final RegionService regionService;
 	private final DistilleryDAO distilleryDAO;
+	private final CatalogSnapshotHolder catalog;
 
-	public DistilleryServiceImpl(RegionService regionService, DistilleryDAO distilleryDAO) {
+	public DistilleryServiceImpl(RegionService regionService, DistilleryDAO distilleryDAO,
+		CatalogSnapshotHolder catalog)
+	{
 		this.regionService = regionService;
 		this.distilleryDAO = distilleryDAO;
+		this.catalog = catalog;
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public List<Distillery> findAll() {
-		return distilleryDAO.findAll().stream()
-			.sorted(Comparator.comparing(Distillery::getTitle))
-			.collect(Collectors.toList());
+		return catalog.get().getDistilleries();
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public List<Distillery> findByRegion(Region region) {
-		return distilleryDAO.findByRegionOrderByTitleAsc(region);
+		return catalog.get().getDistilleries(region.getId());
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Distillery findById(long distilleryId) {
-		return distilleryDAO.findById(distilleryId).orElse(null);
+		return catalog.get().findDistillery(distilleryId);
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Distillery findByTitle(String title) {
-		return distilleryDAO.findByTitle(title);
+		return catalog.get().findDistilleryByTitle(title);
 	}
 
 	@Transactional
@@ -67,6 +64,7 @@ public class DistilleryServiceImpl implements DistilleryService {
 		if (region != null) {
 			distillery.setRegion(region);
 			distilleryDAO.save(distillery);
+			catalog.invalidate();
 		}
 	}
 
@@ -74,5 +72,6 @@ public class DistilleryServiceImpl implements DistilleryService {
 	@Override
 	public void delete(long distilleryId) {
 		distilleryDAO.deleteById(distilleryId);
+		catalog.invalidate();
 	}
 }
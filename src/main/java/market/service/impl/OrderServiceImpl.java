@@ -1,55 +1,101 @@
 package market.service.impl;
 
 import market.dao.OrderDAO;
+import market.dao.ProductDAO;
+import market.dao.projection.OrderSummary;
 import market.domain.Bill;
 import market.domain.Cart;
 import market.domain.CartItem;
 import market.domain.Order;
 import market.domain.OrderedProduct;
-import market.domain.UserAccount;
+import market.domain.Product;
 import market.exception.EmptyCartException;
+import market.exception.OutOfStockException;
 import market.exception.UnknownEntityException;
 import market.service.CartService;
 import market.service.OrderService;
 import market.service.UserAccountService;
+import market.service.order.BillNumberAllocator;
+import market.service.order.StockLedger;
+import market.sorting.KeysetRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
 	private final OrderDAO orderDAO;
+	private final ProductDAO productDAO;
 	private final UserAccountService userAccountService;
 	private final CartService cartService;
-
-	public OrderServiceImpl(OrderDAO orderDAO, UserAccountService userAccountService, CartService cartService) {
+	private final BillNumberAllocator billNumberAllocator;
+	private final StockLedger stockLedger;
+	private final int historyChunkSize;
+
+	public OrderServiceImpl(OrderDAO orderDAO, ProductDAO productDAO, UserAccountService userAccountService,
+		CartService cartService, BillNumberAllocator billNumberAllocator, StockLedger stockLedger,
+		@Value("${order.history.chunkSize:100}") int historyChunkSize)
+	{
 		this.orderDAO = orderDAO;
+		this.productDAO = productDAO;
 		this.userAccountService = userAccountService;
 		this.cartService = cartService;
+		this.billNumberAllocator = billNumberAllocator;
+		this.stockLedger = stockLedger;
+		this.historyChunkSize = historyChunkSize;
 	}
 
 	@Transactional(readOnly = true)
 	@Override
 	public List<Order> getUserOrders(String userLogin) {
-		UserAccount account = userAccountService.findByEmail(userLogin);
-		return orderDAO.findByUserAccountOrderByDateCreatedDesc(account);
+		Long accountId = userAccountService.findIdByEmail(userLogin);
+		return (accountId == null) ? Collections.emptyList() : getUserOrders(accountId);
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public List<Order> getUserOrders(long accountId) {
+		return orderDAO.findByUserAccountIdOrderByDateCreatedDesc(accountId);
+	}
+
+	/**
+	 * Reads the orders chunk by chunk, each in its own short transaction of the DAO, and passes
+	 * a chunk to the action only when it is read completely: a slow action holds no connection.
+	 */
+	@Override
+	public void forEachUserOrder(String userLogin, Consumer<? super OrderSummary> action) {
+		PageRequest chunk = PageRequest.of(0, historyChunkSize);
+		List<OrderSummary> summaries = orderDAO.findSummariesByEmail(userLogin, chunk);
+		while (!summaries.isEmpty()) {
+			summaries.forEach(action);
+			if (summaries.size() < historyChunkSize)
+				break;
+			OrderSummary last = summaries.get(summaries.size() - 1);
+			summaries = orderDAO.findSummariesByEmailBefore(userLogin, last.getDateCreated(), last.getId(), chunk);
+		}
 	}
 
 	@Transactional(readOnly = true)
 	@Override
 	public Order getUserOrder(String userLogin, long orderId) throws UnknownEntityException {
 		// todo: add user check
-		Order order = orderDAO.findById(orderId).orElse(null);
+		Order order = orderDAO.findWithDetailsById(orderId).orElse(null);
 		if ((order == null) || !order.getUserAccount().getEmail().equals(userLogin))
 			throw new UnknownEntityException(Order.class, orderId);
 		return order;
@@ -58,14 +104,7 @@ public class OrderServiceImpl implements OrderService {
 	@Transactional(readOnly = true)
 	@Override
 	public Page<Order> fetchFiltered(String executed, String orderAgeInDays, PageRequest request) {
-		Date startTime = new Date();
-		if (!"all".equals(orderAgeInDays)) {
-			int days = Integer.parseInt(orderAgeInDays);
-			Calendar c = Calendar.getInstance();
-			c.setTime(new Date());
-			c.add(Calendar.HOUR_OF_DAY, -(days * 24));
-			startTime = c.getTime();
-		}
+		Date startTime = parseStartTime(orderAgeInDays);
 		if (!"all".equals(executed) && !"all".equals(orderAgeInDays)) {
 			boolean executedState = Boolean.parseBoolean(executed);
 			return orderDAO.findByExecutedAndDateCreatedGreaterThan(executedState, startTime, request);
@@ -79,25 +118,49 @@ public class OrderServiceImpl implements OrderService {
 		}
 	}
 
-	@Transactional
+	@Transactional(readOnly = true)
+	@Override
+	public Slice<OrderSummary> fetchSummaries(String executed, String orderAgeInDays, KeysetRequest request) {
+		Boolean executedState = "all".equals(executed) ? null : Boolean.parseBoolean(executed);
+		Date startTime = "all".equals(orderAgeInDays) ? null : parseStartTime(orderAgeInDays);
+		return orderDAO.findSummaries(executedState, startTime, request);
+	}
+
+	private static Date parseStartTime(String orderAgeInDays) {
+		Date startTime = new Date();
+		if (!"all".equals(orderAgeInDays)) {
+			int days = Integer.parseInt(orderAgeInDays);
+			Calendar c = Calendar.getInstance();
+			c.setTime(new Date());
+			c.add(Calendar.HOUR_OF_DAY, -(days * 24));
+			startTime = c.getTime();
+		}
+		return startTime;
+	}
+
+	@Transactional(rollbackFor = OutOfStockException.class)
 	@Override
-	public Order createUserOrder(String userLogin, int deliveryCost, String cardNumber) throws EmptyCartException {
+	public Order createUserOrder(String userLogin, int deliveryCost, String cardNumber)
+		throws EmptyCartException, OutOfStockException
+	{
 		Cart cart = cartService.getCartOrCreate(userLogin);
 		if (cart.isEmpty())
 			throw new EmptyCartException();
 
-		Order order = createNewOrder(userLogin, cart, deliveryCost);
+		Order order = createNewOrder(cart, deliveryCost);
+		fillOrderItems(cart, order);
 		Bill bill = createBill(order, cardNumber);
 		order.setBill(bill);
+		// the order is written before the stock ledger rows, which refer to it
 		orderDAO.saveAndFlush(order);
-
-		fillOrderItems(cart, order);
-		orderDAO.save(order);
-		cartService.clearCart(userLogin);
+		stockLedger.reserve(order.getId(), order.getOrderedProducts().stream()
+			.collect(toMap(ordered -> ordered.getProduct().getId(), OrderedProduct::getQuantity)));
+		cartService.clearCartOnCommit(userLogin);
 
 		return order;
 	}
 
+	@Transactional
 	@Override
 	public void updateStatus(long orderId, boolean executed) {
 		Order order = orderDAO.findById(orderId).orElse(null);
@@ -107,11 +170,14 @@ public class OrderServiceImpl implements OrderService {
 		}
 	}
 
-	private Order createNewOrder(String userLogin, Cart cart, int deliveryCost) {
+	/**
+	 * The order refers to the account the cart was loaded with.
+	 */
+	private Order createNewOrder(Cart cart, int deliveryCost) {
 		return new Order.Builder()
 			.setDeliveryIncluded(cart.isDeliveryIncluded())
 			.setDeliveryCost(cart.isDeliveryIncluded() ? deliveryCost : 0)
-			.setUserAccount(userAccountService.findByEmail(userLogin))
+			.setUserAccount(cart.getUserAccount())
 			.setProductsCost(cart.getItemsCost())
 			.setDateCreated(new Date())
 			.setExecuted(false)
@@ -121,7 +187,7 @@ public class OrderServiceImpl implements OrderService {
 	private Bill createBill(Order order, String cardNumber) {
 		return new Bill.Builder()
 			.setOrder(order)
-			.setNumber(new Random().nextInt(999999999))
+			.setNumber(billNumberAllocator.next())
 			.setTotalCost(order.getProductsCost() + order.getDeliveryCost())
 			.setPayed(true)
 			.setDateCreated(new Date())
@@ -129,18 +195,32 @@ public class OrderServiceImpl implements OrderService {
 			.build();
 	}
 
-	private void fillOrderItems(Cart cart, Order order) {
+	/**
+	 * Products of the cart come from the catalog snapshot and are detached, ordered products
+	 * refer to their managed copies, loaded at once. The costs of the order are those
+	 * of the cart, so every item of the cart must be ordered.
+	 *
+	 * @throws OutOfStockException if a product of the cart no longer exists
+	 */
+	private void fillOrderItems(Cart cart, Order order) throws OutOfStockException {
+		List<Long> productIds = cart.getCartItems().stream()
+			.map(item -> item.getProduct().getId())
+			.collect(toList());
+		Map<Long, Product> productsById = productDAO.findAllById(productIds).stream()
+			.collect(toMap(Product::getId, product -> product));
+		if (!productsById.keySet().containsAll(productIds))
+			throw new OutOfStockException();
 		Set<OrderedProduct> ordered = cart.getCartItems().stream()
-			.map(item -> createOrderedProduct(order, item))
+			.map(item -> createOrderedProduct(order, productsById.get(item.getProduct().getId()), item.getQuantity()))
 			.collect(toSet());
 		order.setOrderedProducts(ordered);
 	}
 
-	private OrderedProduct createOrderedProduct(Order order, CartItem item) {
+	private OrderedProduct createOrderedProduct(Order order, Product product, int quantity) {
 		OrderedProduct orderedProduct = new OrderedProduct();
-		orderedProduct.setProduct(item.getProduct());
+		orderedProduct.setProduct(product);
 		orderedProduct.setOrder(order);
-		orderedProduct.setQuantity(item.getQuantity());
+		orderedProduct.setQuantity(quantity);
 		return orderedProduct;
 	}
 }
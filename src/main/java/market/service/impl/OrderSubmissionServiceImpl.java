@@ -0,0 +1,209 @@
+package market.service.impl;
+
+import market.domain.Cart;
+import market.domain.Order;
+import market.exception.EmptyCartException;
+import market.exception.OrderQueueFullException;
+import market.exception.UnknownEntityException;
+import market.service.CartService;
+import market.service.OrderService;
+import market.service.OrderSubmissionService;
+import market.service.order.OrderIdempotencyStore;
+import market.service.order.OrderSubmission;
+import market.service.order.OrderSubmissionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders are created by a fixed pool of writers draining a bounded queue, so the number
+ * of checkouts hitting the database at once does not depend on the number of requests.
+ * <p>
+ * Submissions are stored by {@link OrderSubmissionStore}, so their status is read by any node,
+ * while the order is created by the node which accepted the submission. A submission pending
+ * on another node is polled, if its completion is awaited on this one.
+ */
+@Service
+public class OrderSubmissionServiceImpl implements OrderSubmissionService {
+	private static final Logger log = LoggerFactory.getLogger(OrderSubmissionServiceImpl.class);
+
+	private final OrderService orderService;
+	private final CartService cartService;
+	private final OrderIdempotencyStore orderIdempotencyStore;
+	private final OrderSubmissionStore orderSubmissionStore;
+	private final ThreadPoolExecutor writers;
+	private final long timeoutMillis;
+	private final long retentionMillis;
+
+	/**
+	 * Pending submissions accepted by this node.
+	 */
+	private final Map<Long, OrderSubmission> accepted = new ConcurrentHashMap<>();
+
+	/**
+	 * Pending submissions accepted by other nodes, completed by {@link #poll()}.
+	 */
+	private final Map<Long, OrderSubmission> watched = new ConcurrentHashMap<>();
+
+	public OrderSubmissionServiceImpl(OrderService orderService, CartService cartService,
+		OrderIdempotencyStore orderIdempotencyStore, OrderSubmissionStore orderSubmissionStore,
+		@Value("${order.submission.writers:4}") int writers,
+		@Value("${order.submission.queueCapacity:200}") int queueCapacity,
+		@Value("${order.submission.timeout:300000}") long timeoutMillis,
+		@Value("${order.submission.retention:600000}") long retentionMillis)
+	{
+		this.orderService = orderService;
+		this.cartService = cartService;
+		this.orderIdempotencyStore = orderIdempotencyStore;
+		this.orderSubmissionStore = orderSubmissionStore;
+		this.writers = new ThreadPoolExecutor(writers, writers, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("order-writer-"));
+		this.timeoutMillis = timeoutMillis;
+		this.retentionMillis = retentionMillis;
+	}
+
+	@Override
+	public OrderSubmission submit(String userLogin, String idempotencyKey, int deliveryCost, String cardNumber)
+		throws EmptyCartException, OrderQueueFullException
+	{
+		// the cart of the replayed submission is already empty
+		Order earlier = orderIdempotencyStore.find(userLogin, idempotencyKey);
+		if (earlier != null)
+			return replay(userLogin, earlier);
+
+		Cart cart = cartService.getCartOrCreate(userLogin);
+		if (cart.isEmpty())
+			throw new EmptyCartException();
+
+		Long id;
+		while ((id = orderSubmissionStore.insertPending(userLogin)) == null) {
+			OrderSubmission pending = orderSubmissionStore.findPending(userLogin);
+			if (pending != null)
+				return await(pending);
+			// the pending one has completed in between
+		}
+
+		OrderSubmission submission = new OrderSubmission(id, userLogin);
+		accepted.put(id, submission);
+		try {
+			writers.execute(() -> write(submission, idempotencyKey, deliveryCost, cardNumber));
+		} catch (RejectedExecutionException e) {
+			accepted.remove(id);
+			orderSubmissionStore.delete(id);
+			throw new OrderQueueFullException();
+		}
+		return submission;
+	}
+
+	/**
+	 * @return submission completed with the order created earlier
+	 */
+	private OrderSubmission replay(String userLogin, Order earlier) {
+		long id = orderSubmissionStore.insertCreated(userLogin, earlier.getId());
+		OrderSubmission submission = new OrderSubmission(id, userLogin);
+		submission.complete(earlier);
+		return submission;
+	}
+
+	/**
+	 * @return the same pending submission, with the completion awaited on this node
+	 */
+	private OrderSubmission await(OrderSubmission pending) {
+		OrderSubmission local = accepted.get(pending.getId());
+		if (local != null)
+			return local;
+		OrderSubmission polled = watched.putIfAbsent(pending.getId(), pending);
+		return (polled != null) ? polled : pending;
+	}
+
+	private void write(OrderSubmission submission, String idempotencyKey, int deliveryCost, String cardNumber) {
+		String userLogin = submission.getUserLogin();
+		Order order;
+		try {
+			order = orderIdempotencyStore.execute(userLogin, idempotencyKey,
+				() -> orderService.createUserOrder(userLogin, deliveryCost, cardNumber));
+		} catch (Exception e) {
+			log.warn("Failed to create order of submission #{}", submission.getId(), e);
+			store(submission, () -> orderSubmissionStore.fail(submission.getId()));
+			accepted.remove(submission.getId(), submission);
+			submission.fail(e);
+			return;
+		}
+		store(submission, () -> orderSubmissionStore.complete(submission.getId(), order.getId()));
+		accepted.remove(submission.getId(), submission);
+		submission.complete(order);
+	}
+
+	/**
+	 * The submission is completed on this node even if its status is not stored; the stored one
+	 * is failed later as abandoned.
+	 */
+	private static void store(OrderSubmission submission, Runnable status) {
+		try {
+			status.run();
+		} catch (DataAccessException e) {
+			log.error("Failed to store status of submission #{}", submission.getId(), e);
+		}
+	}
+
+	@Override
+	public OrderSubmission getSubmission(String userLogin, long submissionId) throws UnknownEntityException {
+		OrderSubmission submission = orderSubmissionStore.find(userLogin, submissionId);
+		if (submission == null)
+			throw new UnknownEntityException(OrderSubmission.class, submissionId);
+		return submission;
+	}
+
+	/**
+	 * Completes the watched submissions which have been completed by other nodes. The cause
+	 * of a failure is known to the node which accepted the submission only.
+	 */
+	@Scheduled(fixedDelayString = "${order.submission.pollInterval:1000}")
+	public void poll() {
+		for (OrderSubmission submission : watched.values()) {
+			OrderSubmission stored = orderSubmissionStore.find(submission.getUserLogin(), submission.getId());
+			if ((stored != null) && (stored.getStatus() == OrderSubmission.Status.PENDING))
+				continue;
+
+			watched.remove(submission.getId(), submission);
+			if ((stored == null) || (stored.getStatus() == OrderSubmission.Status.FAILED)) {
+				submission.fail(new IllegalStateException("Order submission #" + submission.getId() + " has failed"));
+				continue;
+			}
+			try {
+				submission.complete(orderService.getUserOrder(submission.getUserLogin(), stored.getOrderId()));
+			} catch (UnknownEntityException e) {
+				submission.fail(e);
+			}
+		}
+	}
+
+	/**
+	 * Fails the submissions abandoned by stopped nodes, and forgets completed submissions
+	 * older than the retention period.
+	 */
+	@Scheduled(fixedDelayString = "${order.submission.purgeInterval:60000}")
+	public void purge() {
+		long now = System.currentTimeMillis();
+		orderSubmissionStore.purge(now - timeoutMillis, now - retentionMillis);
+	}
+
+	@PreDestroy
+	public void close() throws InterruptedException {
+		writers.shutdown();
+		if (!writers.awaitTermination(30, TimeUnit.SECONDS))
+			log.warn("{} order submissions were not processed before shutdown", writers.getQueue().size());
+	}
+}
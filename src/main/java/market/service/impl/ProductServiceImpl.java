@@ -7,34 +7,58 @@ import market.domain.Region;
 import market.exception.UnknownEntityException;
 import market.service.DistilleryService;
 import market.service.ProductService;
+import market.service.catalog.CatalogSnapshot;
+import market.service.catalog.CatalogSnapshotHolder;
+import market.service.catalog.ProductPreview;
+import market.service.order.StockLedger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
 	private final ProductDAO productDAO;
 	private final DistilleryService distilleryService;
+	private final CatalogSnapshotHolder catalog;
+	private final StockLedger stockLedger;
 
-	public ProductServiceImpl(ProductDAO productDAO, DistilleryService distilleryService) {
+	public ProductServiceImpl(ProductDAO productDAO, DistilleryService distilleryService,
+		CatalogSnapshotHolder catalog, StockLedger stockLedger)
+	{
 		this.productDAO = productDAO;
 		this.distilleryService = distilleryService;
+		this.catalog = catalog;
+		this.stockLedger = stockLedger;
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public List<Product> findAll() {
-		return productDAO.findAll().stream()
-			.sorted(Comparator.comparing(Product::getName))
-			.collect(Collectors.toList());
+		return catalog.get().getProducts();
+	}
+
+	@Override
+	public long getCatalogVersion() {
+		return catalog.getVersion();
+	}
+
+	@Override
+	public long getCatalogLastModified() {
+		return catalog.getLastModified();
+	}
+
+	@Override
+	public List<ProductPreview> findPreviews() {
+		return catalog.get().getProductPreviews();
 	}
 
 	@Transactional(readOnly = true)
@@ -43,16 +67,14 @@ public class ProductServiceImpl implements ProductService {
 		return productDAO.findAll(request);
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Page<Product> findByDistillery(Distillery distillery, PageRequest request) {
-		return productDAO.findByDistilleryOrderByName(distillery, request);
+		return catalog.get().getDistilleryProducts(distillery.getId(), request);
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Page<Product> findByRegion(Region region, PageRequest request) {
-		return productDAO.findByRegionOrderByName(region, request);
+		return catalog.get().getRegionProducts(region.getId(), request);
 	}
 
 	@Transactional(readOnly = true)
@@ -68,17 +90,27 @@ public class ProductServiceImpl implements ProductService {
 		return pagedList;
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Product getProduct(long productId) throws UnknownEntityException {
-		return productDAO.findById(productId)
+		return findOne(productId)
 			.orElseThrow(() -> new UnknownEntityException(Product.class, productId));
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Optional<Product> findOne(long productId) {
-		return productDAO.findById(productId);
+		return Optional.ofNullable(catalog.get().findProduct(productId));
+	}
+
+	@Override
+	public Map<Long, Product> findByIds(Collection<Long> productIds) {
+		CatalogSnapshot snapshot = catalog.get();
+		Map<Long, Product> products = new HashMap<>();
+		for (Long productId : productIds) {
+			Product product = snapshot.findProduct(productId);
+			if (product != null)
+				products.put(productId, product);
+		}
+		return products;
 	}
 
 	@Transactional
@@ -101,29 +133,43 @@ public class ProductServiceImpl implements ProductService {
 			changed.setDistillery(distillery);
 			changed.setAvailable(available);
 			productDAO.save(changed);
+			catalog.invalidate();
 		}
 	}
 
+	/**
+	 * Two statements per availability: the products to be changed are selected first,
+	 * so that only those are updated and reloaded into the catalog.
+	 */
+	@Transactional
 	@Override
-	public void updateAvailability(Map<Boolean, List<Long>> productIdsByAvailability) {
+	public int updateAvailability(Map<Boolean, List<Long>> productIdsByAvailability) {
+		int updated = 0;
+		Set<Long> changedIds = new HashSet<>();
 		for (Map.Entry<Boolean, List<Long>> e : productIdsByAvailability.entrySet()) {
-			Boolean targetAvailability = e.getKey();
-			List<Product> productsToUpdate = e.getValue().stream()
-				.map(this::findOne)
-				.filter(Optional::isPresent)
-				.map(Optional::get)
-				.filter(product -> product.isAvailable() != targetAvailability)
-				.collect(Collectors.toList());
-			for (Product product : productsToUpdate) {
-				product.setAvailable(targetAvailability);
-				productDAO.save(product);
-			}
+			if (e.getValue().isEmpty())
+				continue;
+			List<Long> differing = productDAO.findIdsByAvailableNot(e.getValue(), e.getKey());
+			if (differing.isEmpty())
+				continue;
+			updated += productDAO.updateAvailability(differing, e.getKey());
+			changedIds.addAll(differing);
 		}
+		if (!changedIds.isEmpty())
+			catalog.invalidateProducts(changedIds);
+		return updated;
+	}
+
+	@Transactional
+	@Override
+	public void receiveStock(long productId, int quantity) {
+		stockLedger.receive(productId, quantity);
 	}
 
 	@Transactional
 	@Override
 	public void delete(long product) {
 		productDAO.deleteById(product);
+		catalog.invalidate();
 	}
 }
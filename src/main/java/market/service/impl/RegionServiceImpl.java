@@ -3,46 +3,43 @@ package market.service.impl;
 import market.dao.RegionDAO;
 import market.domain.Region;
 import market.service.RegionService;
+import market.service.catalog.CatalogSnapshotHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class RegionServiceImpl implements RegionService {
 	private final RegionDAO regionDAO;
+	private final CatalogSnapshotHolder catalog;
 
-	public RegionServiceImpl(RegionDAO regionDAO) {
+	public RegionServiceImpl(RegionDAO regionDAO, CatalogSnapshotHolder catalog) {
 		this.regionDAO = regionDAO;
+		this.catalog = catalog;
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public List<Region> findAll() {
-		return regionDAO.findAll().stream()
-			.sorted(Comparator.comparing(Region::getName))
-			.collect(Collectors.toList());
+		return catalog.get().getRegions();
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Region findOne(long regionId) {
-		return regionDAO.findById(regionId).orElse(null);
+		return catalog.get().findRegion(regionId);
 	}
 
-	@Transactional(readOnly = true)
 	@Override
 	public Region findByName(String regionName) {
-		return regionDAO.findByName(regionName).orElse(null);
+		return catalog.get().findRegionByName(regionName);
 	}
 
 	@Transactional
 	@Override
 	public void create(Region newRegion) {
 		regionDAO.save(newRegion);
+		catalog.invalidate();
 	}
 
 	@Override
@@ -51,6 +48,7 @@ public class RegionServiceImpl implements RegionService {
 		if (originalOptional.isPresent()) {
 			changedRegion.setId(originalOptional.get().getId());
 			regionDAO.save(changedRegion);
+			catalog.invalidate();
 		}
 	}
 
@@ -58,5 +56,6 @@ public class RegionServiceImpl implements RegionService {
 	@Override
 	public void delete(long regionId) {
 		regionDAO.deleteById(regionId);
+		catalog.invalidate();
 	}
 }
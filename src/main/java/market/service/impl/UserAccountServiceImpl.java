@@ -4,17 +4,40 @@ import market.dao.UserAccountDAO;
 import market.domain.Cart;
 import market.domain.UserAccount;
 import market.exception.EmailExistsException;
+import market.security.AccountUser;
 import market.service.UserAccountService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 public class UserAccountServiceImpl implements UserAccountService {
 	private final UserAccountDAO userAccountDAO;
 
-	public UserAccountServiceImpl(UserAccountDAO userAccountDAO) {
+	/**
+	 * Ids by email, access-ordered; guarded by itself. Accounts are never deleted
+	 * and emails never change, so cached ids do not go stale.
+	 */
+	private final Map<String, Long> idsByEmail;
+
+	public UserAccountServiceImpl(UserAccountDAO userAccountDAO,
+		@Value("${account.idCache.capacity:10000}") int idCacheCapacity)
+	{
 		this.userAccountDAO = userAccountDAO;
+		this.idsByEmail = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > idCacheCapacity;
+			}
+		};
 	}
 
 	@Transactional(readOnly = true)
@@ -23,6 +46,26 @@ public class UserAccountServiceImpl implements UserAccountService {
 		return userAccountDAO.findByEmail(email);
 	}
 
+	@Override
+	public Long findIdByEmail(String email) {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if ((authentication != null) && (authentication.getPrincipal() instanceof AccountUser)) {
+			AccountUser user = (AccountUser) authentication.getPrincipal();
+			if (user.getUsername().equals(email))
+				return user.getAccountId();
+		}
+
+		synchronized (idsByEmail) {
+			Long id = idsByEmail.get(email);
+			if (id != null)
+				return id;
+		}
+		Long id = userAccountDAO.findIdByEmail(email);
+		if (id != null)
+			cacheId(email, id);
+		return id;
+	}
+
 	@Transactional
 	@Override
 	public UserAccount create(UserAccount userAccount) throws EmailExistsException {
@@ -35,6 +78,20 @@ public class UserAccountServiceImpl implements UserAccountService {
 		userAccount.setCart(new Cart(userAccount));
 		userAccountDAO.save(userAccount);
 
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					cacheId(userAccount.getEmail(), userAccount.getId());
+				}
+			});
+		}
 		return userAccount;
 	}
+
+	private void cacheId(String email, long id) {
+		synchronized (idsByEmail) {
+			idsByEmail.put(email, id);
+		}
+	}
 }
@@ -0,0 +1,77 @@
+package market.service.order;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of unique bill numbers.
+ * <p>
+ * Numbers are reserved from the {@code bill_number_seq} database sequence in blocks:
+ * each value {@code hi} of the sequence stands for the block
+ * {@code [hi * blockSize, (hi + 1) * blockSize)}. Numbers of the current block are handed
+ * out without locking, the database is only queried when the block is used up.
+ * Numbers of a block left unused on shutdown are lost, so the numbering has gaps.
+ * <p>
+ * The sequence is created by {@code db/schema-postgresql.sql}, starting past the numbers of
+ * the existing bills for the default block size; the block size must not be changed afterwards.
+ */
+@Component
+public class BillNumberAllocator {
+	private static final Logger log = LoggerFactory.getLogger(BillNumberAllocator.class);
+	private static final String NEXT_BLOCK = "SELECT nextval('bill_number_seq')";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final int blockSize;
+
+	private volatile Block block = new Block(0, 0);
+
+	public BillNumberAllocator(JdbcTemplate jdbcTemplate, @Value("${order.billNumber.blockSize:1000}") int blockSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @return bill number, never returned before
+	 */
+	public int next() {
+		while (true) {
+			Block current = block;
+			long number = current.next.getAndIncrement();
+			if (number < current.end)
+				return (int) number;
+			reserve(current);
+		}
+	}
+
+	/**
+	 * Replaces the used up block, unless another thread has already done it.
+	 */
+	private synchronized void reserve(Block usedUp) {
+		if (block != usedUp)
+			return;
+
+		Long hi = jdbcTemplate.queryForObject(NEXT_BLOCK, Long.class);
+		long start = hi * blockSize;
+		long end = start + blockSize;
+		if (end > Integer.MAX_VALUE)
+			throw new IllegalStateException("Bill numbers are exhausted, sequence value " + hi);
+		if (log.isDebugEnabled())
+			log.debug("Reserved bill numbers [" + start + ", " + end + ")");
+		block = new Block(start, end);
+	}
+
+	private static class Block {
+		final AtomicLong next;
+		final long end;
+
+		Block(long start, long end) {
+			this.next = new AtomicLong(start);
+			this.end = end;
+		}
+	}
+}
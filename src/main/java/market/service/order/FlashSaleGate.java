@@ -0,0 +1,237 @@
+package market.service.order;
+
+import market.domain.Cart;
+import market.domain.CartItem;
+import market.exception.FlashSaleBusyException;
+import market.exception.SoldOutException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission of the requests for the products on flash sale.
+ * <p>
+ * A product on flash sale is handled by a few requests at a time; the others wait in a fair
+ * queue, first come first served. When the queue is full, or the wait is too long, the request
+ * is turned away at once; so is the request for more than is left in stock. Both happen before
+ * the cart or the order is touched, so a crowd of buyers does not reach the database.
+ * Requests for other products are not held.
+ * <p>
+ * A waiting request parks its thread, so the queues of all the products together hold
+ * no more than {@code flashSale.queueCapacity} requests, which must leave at least half
+ * of the request threads ({@code server.tomcat.max-threads}) to the other requests.
+ * <p>
+ * The products on flash sale are kept in the {@link FlashSaleStore}: a sale started or ended
+ * on one node is taken up by the others within {@code flashSale.syncInterval}. The queues
+ * belong to the node. The stock is checked by the estimate of the {@link StockLedger},
+ * which takes the final decision when the order is created.
+ */
+@Component
+public class FlashSaleGate implements SmartInitializingSingleton {
+
+	/**
+	 * Permission to handle a request, released when closed.
+	 */
+	public interface Admission extends AutoCloseable {
+		@Override
+		void close();
+
+		/**
+		 * Keeps the admission until the stage completes, instead of closing it now.
+		 */
+		default void closeOn(CompletionStage<?> stage) {
+			stage.whenComplete((result, failure) -> close());
+		}
+	}
+
+	private static final Admission NOT_HELD = () -> {
+	};
+
+	/**
+	 * Share of the request threads which may wait in the queues.
+	 */
+	private static final int WAITING_THREADS_DIVISOR = 2;
+
+	private final StockLedger stockLedger;
+	private final FlashSaleStore flashSaleStore;
+	private final int concurrency;
+	private final int queueCapacity;
+	private final long waitMillis;
+
+	private final ConcurrentMap<Long, Sale> sales = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of the requests waiting in the queues of all the products.
+	 */
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	public FlashSaleGate(StockLedger stockLedger, FlashSaleStore flashSaleStore,
+		@Value("${flashSale.concurrency:4}") int concurrency,
+		@Value("${flashSale.queueCapacity:50}") int queueCapacity,
+		@Value("${flashSale.waitMillis:2000}") long waitMillis,
+		@Value("${server.tomcat.max-threads:200}") int requestThreads)
+	{
+		if (queueCapacity > requestThreads / WAITING_THREADS_DIVISOR) {
+			throw new IllegalArgumentException("flashSale.queueCapacity " + queueCapacity
+				+ " leaves too few of " + requestThreads + " request threads to other requests");
+		}
+		this.stockLedger = stockLedger;
+		this.flashSaleStore = flashSaleStore;
+		this.concurrency = concurrency;
+		this.queueCapacity = queueCapacity;
+		this.waitMillis = waitMillis;
+	}
+
+	/**
+	 * Takes the sales before any request is served.
+	 */
+	@Override
+	public void afterSingletonsInstantiated() {
+		synchronize();
+	}
+
+	/**
+	 * Catches up with the sales started and ended on the other nodes.
+	 */
+	@Scheduled(fixedDelayString = "${flashSale.syncInterval:1000}")
+	public void synchronize() {
+		Set<Long> productIds = flashSaleStore.findProductIds();
+		for (Long productId : productIds)
+			sales.computeIfAbsent(productId, id -> new Sale(concurrency));
+		sales.keySet().retainAll(productIds);
+	}
+
+	/**
+	 * Puts the product on flash sale, on all the nodes.
+	 */
+	public void start(long productId) {
+		flashSaleStore.add(productId);
+		sales.computeIfAbsent(productId, id -> new Sale(concurrency));
+	}
+
+	/**
+	 * Ends the flash sale of the product, on all the nodes; requests already waiting are still admitted.
+	 */
+	public void stop(long productId) {
+		flashSaleStore.remove(productId);
+		sales.remove(productId);
+	}
+
+	/**
+	 * @return ids of the products on flash sale
+	 */
+	public Set<Long> getProductIds() {
+		return Collections.unmodifiableSet(sales.keySet());
+	}
+
+	/**
+	 * Waits for the turn of the request for the products of the cart on flash sale.
+	 *
+	 * @see #admit(Map)
+	 */
+	public Admission admit(Cart cart) throws SoldOutException, FlashSaleBusyException {
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for (CartItem item : cart.getCartItems())
+			quantities.put(item.getProduct().getId(), item.getQuantity());
+		return admit(quantities);
+	}
+
+	/**
+	 * Waits for the turn of the request for the products on flash sale.
+	 *
+	 * @param quantities requested quantities, keyed by product id
+	 * @return admission, to be closed when the request is handled; closing it again has no effect
+	 * @throws SoldOutException       if there is less in stock than requested
+	 * @throws FlashSaleBusyException if the queue is full or the turn has not come in time
+	 */
+	public Admission admit(Map<Long, Integer> quantities) throws SoldOutException, FlashSaleBusyException {
+		// products are entered in the order of ids, so that requests for the same products do not deadlock
+		Map<Long, Sale> held = new TreeMap<>();
+		quantities.forEach((productId, quantity) -> {
+			Sale sale = sales.get(productId);
+			if (sale != null)
+				held.put(productId, sale);
+		});
+		if (held.isEmpty())
+			return NOT_HELD;
+
+		checkStock(held.keySet(), quantities);
+		List<Sale> entered = new ArrayList<>(held.size());
+		AtomicBoolean closed = new AtomicBoolean();
+		Admission admission = () -> {
+			if (closed.compareAndSet(false, true))
+				entered.forEach(Sale::leave);
+		};
+		for (Sale sale : held.values()) {
+			if (!sale.enter(waiting, queueCapacity, waitMillis)) {
+				admission.close();
+				throw new FlashSaleBusyException();
+			}
+			entered.add(sale);
+		}
+		try {
+			checkStock(held.keySet(), quantities);
+		} catch (SoldOutException e) {
+			admission.close();
+			throw e;
+		}
+		return admission;
+	}
+
+	private void checkStock(Set<Long> productIds, Map<Long, Integer> quantities) throws SoldOutException {
+		for (Long productId : productIds) {
+			OptionalInt available = stockLedger.available(productId);
+			if (available.isPresent() && (available.getAsInt() < quantities.get(productId)))
+				throw new SoldOutException();
+		}
+	}
+
+	private static class Sale {
+		final Semaphore permits;
+
+		Sale(int concurrency) {
+			this.permits = new Semaphore(concurrency, true);
+		}
+
+		boolean enter(AtomicInteger waiting, int queueCapacity, long waitMillis) {
+			try {
+				// the timed acquire, unlike the plain one, does not jump the queue
+				if (permits.tryAcquire(0, TimeUnit.MILLISECONDS))
+					return true;
+				if (waiting.incrementAndGet() > queueCapacity) {
+					waiting.decrementAndGet();
+					return false;
+				}
+				try {
+					return permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+				} finally {
+					waiting.decrementAndGet();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		void leave() {
+			permits.release();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package market.service.order;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Products on flash sale, shared by all the nodes of the application: a row
+ * of the {@code flash_sale} table per product.
+ */
+@Component
+public class FlashSaleStore {
+	private static final String SELECT = "SELECT product_id FROM flash_sale";
+	private static final String INSERT = "INSERT INTO flash_sale (product_id) VALUES (?) ON CONFLICT DO NOTHING";
+	private static final String DELETE = "DELETE FROM flash_sale WHERE product_id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public FlashSaleStore(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * @return ids of the products on flash sale
+	 */
+	public Set<Long> findProductIds() {
+		return new HashSet<>(jdbcTemplate.queryForList(SELECT, Long.class));
+	}
+
+	public void add(long productId) {
+		jdbcTemplate.update(INSERT, productId);
+	}
+
+	public void remove(long productId) {
+		jdbcTemplate.update(DELETE, productId);
+	}
+}
@@ -0,0 +1,128 @@
+package market.service.order;
+
+import market.dao.OrderDAO;
+import market.domain.Order;
+import market.exception.EmptyCartException;
+import market.exception.OutOfStockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Orders created with the idempotency keys sent by clients, shared by all the nodes of
+ * the application: a row of the {@code order_idempotency_key} table per user and key.
+ * <p>
+ * A replayed key gets the order created by the first request with that key, without
+ * creating it again. The key is claimed in the transaction creating the order, so
+ * a concurrent request with the same key, on any node, waits for that transaction
+ * on the primary key of the table. Failed creations are rolled back along with the claim,
+ * so they may be retried with the same key. Keys expire after a while.
+ */
+@Component
+public class OrderIdempotencyStore {
+	private static final String CLAIM = "INSERT INTO order_idempotency_key (user_account_id, idempotency_key, created)"
+		+ " SELECT id, ?, ? FROM user_account WHERE email = ? ON CONFLICT DO NOTHING";
+	private static final String SELECT_ORDER = "SELECT k.order_id FROM order_idempotency_key k"
+		+ " JOIN user_account a ON a.id = k.user_account_id WHERE a.email = ? AND k.idempotency_key = ?";
+	private static final String SET_ORDER = "UPDATE order_idempotency_key SET order_id = ?"
+		+ " WHERE user_account_id = ? AND idempotency_key = ?";
+	private static final String DELETE_EXPIRED = "DELETE FROM order_idempotency_key WHERE created < ?";
+
+	/**
+	 * Creation of the order, which may fail with the empty cart or with the products out of stock.
+	 */
+	@FunctionalInterface
+	public interface OrderCreation {
+		Order create() throws EmptyCartException, OutOfStockException;
+	}
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final OrderDAO orderDAO;
+	private final long ttlMillis;
+
+	public OrderIdempotencyStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+		OrderDAO orderDAO, @Value("${order.idempotency.ttl:86400000}") long ttlMillis)
+	{
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.orderDAO = orderDAO;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * Creates the order once per user and key. The creation joins the transaction claiming the key.
+	 *
+	 * @param key idempotency key; if {@code null} or empty, the order is just created
+	 * @return created order, or the order created earlier with the same key
+	 */
+	public Order execute(String userLogin, String key, OrderCreation creation)
+		throws EmptyCartException, OutOfStockException
+	{
+		if ((key == null) || key.isEmpty())
+			return creation.create();
+
+		try {
+			return transactionTemplate.execute(status -> {
+				if (jdbcTemplate.update(CLAIM, key, new Timestamp(System.currentTimeMillis()), userLogin) == 0) {
+					Order earlier = find(userLogin, key);
+					if (earlier != null)
+						return earlier;
+					// the key has expired in between, the order is created without it
+				}
+				Order order = create(creation);
+				jdbcTemplate.update(SET_ORDER, order.getId(), order.getUserAccount().getId(), key);
+				return order;
+			});
+		} catch (RejectedCreation e) {
+			if (e.getCause() instanceof EmptyCartException)
+				throw (EmptyCartException) e.getCause();
+			throw (OutOfStockException) e.getCause();
+		}
+	}
+
+	/**
+	 * @return order created earlier by the user with the key, with its account and bill;
+	 * {@code null}, if there was none, or its creation is still in flight, or it has expired
+	 */
+	public Order find(String userLogin, String key) {
+		if ((key == null) || key.isEmpty())
+			return null;
+
+		List<Long> orderIds = jdbcTemplate.queryForList(SELECT_ORDER, Long.class, userLogin, key);
+		if (orderIds.isEmpty() || (orderIds.get(0) == null))
+			return null;
+		return orderDAO.findWithDetailsById(orderIds.get(0)).orElse(null);
+	}
+
+	/**
+	 * Forgets the keys older than their time to live.
+	 */
+	@Scheduled(fixedDelayString = "${order.idempotency.purgeInterval:3600000}")
+	public void purge() {
+		jdbcTemplate.update(DELETE_EXPIRED, new Timestamp(System.currentTimeMillis() - ttlMillis));
+	}
+
+	/**
+	 * Rolls back the claim of the key when the order is rejected.
+	 */
+	private static Order create(OrderCreation creation) {
+		try {
+			return creation.create();
+		} catch (EmptyCartException | OutOfStockException e) {
+			throw new RejectedCreation(e);
+		}
+	}
+
+	private static class RejectedCreation extends RuntimeException {
+		RejectedCreation(Exception cause) {
+			super(cause);
+		}
+	}
+}
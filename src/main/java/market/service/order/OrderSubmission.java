@@ -0,0 +1,75 @@
+package market.service.order;
+
+import market.domain.Order;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Order creation accepted for asynchronous processing.
+ * <p>
+ * The status is stored by {@link OrderSubmissionStore}, so that it is read by any node; the completion
+ * is awaited on the node which accepted the submission, or which polls the stored status of it.
+ */
+public final class OrderSubmission {
+
+	public enum Status {
+		PENDING, CREATED, FAILED
+	}
+
+	private final long id;
+	private final String userLogin;
+	private final CompletableFuture<Order> completion = new CompletableFuture<>();
+	private volatile Status status;
+	private volatile Long orderId;
+
+	public OrderSubmission(long id, String userLogin) {
+		this(id, userLogin, Status.PENDING, null);
+	}
+
+	/**
+	 * Submission as it is stored; its completion is not done, even if the submission is completed.
+	 */
+	public OrderSubmission(long id, String userLogin, Status status, Long orderId) {
+		this.id = id;
+		this.userLogin = userLogin;
+		this.status = status;
+		this.orderId = orderId;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getUserLogin() {
+		return userLogin;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return id of the created order; {@code null}, if the order is not created yet or has failed
+	 */
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	/**
+	 * @return future completed with the created order, or with the failure
+	 */
+	public CompletableFuture<Order> getCompletion() {
+		return completion;
+	}
+
+	public void complete(Order order) {
+		orderId = order.getId();
+		status = Status.CREATED;
+		completion.complete(order);
+	}
+
+	public void fail(Throwable failure) {
+		status = Status.FAILED;
+		completion.completeExceptionally(failure);
+	}
+}
@@ -0,0 +1,109 @@
+package market.service.order;
+
+import market.service.order.OrderSubmission.Status;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Order submissions, shared by all the nodes of the application: a row of the
+ * {@code order_submission} table per submission. A user has one pending submission
+ * at most, as ensured by a partial unique index of the table.
+ */
+@Component
+public class OrderSubmissionStore {
+	private static final String INSERT = "INSERT INTO order_submission (user_account_id, status, order_id, created, completed)"
+		+ " SELECT id, ?, ?, ?, ? FROM user_account WHERE email = ? ON CONFLICT DO NOTHING RETURNING id";
+	private static final String SELECT = "SELECT s.id, s.status, s.order_id FROM order_submission s"
+		+ " JOIN user_account a ON a.id = s.user_account_id WHERE a.email = ?";
+	private static final String SELECT_BY_ID = SELECT + " AND s.id = ?";
+	private static final String SELECT_PENDING = SELECT + " AND s.status = 'PENDING'";
+	private static final String COMPLETE = "UPDATE order_submission SET status = ?, order_id = ?, completed = ?"
+		+ " WHERE id = ? AND status = 'PENDING'";
+	private static final String DELETE = "DELETE FROM order_submission WHERE id = ?";
+	private static final String ABANDON = "UPDATE order_submission SET status = 'FAILED', completed = ?"
+		+ " WHERE status = 'PENDING' AND created < ?";
+	private static final String DELETE_COMPLETED = "DELETE FROM order_submission WHERE completed < ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public OrderSubmissionStore(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * @return id of the new pending submission of the user; {@code null}, if the user has a pending one already
+	 */
+	public Long insertPending(String userLogin) {
+		return insert(userLogin, Status.PENDING, null, null);
+	}
+
+	/**
+	 * @return id of the new submission of the user, completed with the specified order
+	 */
+	public long insertCreated(String userLogin, long orderId) {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		Long id = insert(userLogin, Status.CREATED, orderId, now);
+		if (id == null)
+			throw new IllegalArgumentException("No account with email " + userLogin);
+		return id;
+	}
+
+	/**
+	 * @return submission of the user with the specified id; {@code null}, if there is none
+	 */
+	public OrderSubmission find(String userLogin, long id) {
+		List<OrderSubmission> found = jdbcTemplate.query(SELECT_BY_ID, mapper(userLogin), userLogin, id);
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	/**
+	 * @return pending submission of the user; {@code null}, if there is none
+	 */
+	public OrderSubmission findPending(String userLogin) {
+		List<OrderSubmission> found = jdbcTemplate.query(SELECT_PENDING, mapper(userLogin), userLogin);
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	public void complete(long id, long orderId) {
+		jdbcTemplate.update(COMPLETE, Status.CREATED.name(), orderId, new Timestamp(System.currentTimeMillis()), id);
+	}
+
+	public void fail(long id) {
+		jdbcTemplate.update(COMPLETE, Status.FAILED.name(), null, new Timestamp(System.currentTimeMillis()), id);
+	}
+
+	/**
+	 * Forgets the submission which has not been accepted after all.
+	 */
+	public void delete(long id) {
+		jdbcTemplate.update(DELETE, id);
+	}
+
+	/**
+	 * Fails the submissions pending since the specified time, which must have been abandoned
+	 * by a stopped node, and forgets the ones completed before the specified time.
+	 */
+	public void purge(long pendingSince, long completedBefore) {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		jdbcTemplate.update(ABANDON, now, new Timestamp(pendingSince));
+		jdbcTemplate.update(DELETE_COMPLETED, new Timestamp(completedBefore));
+	}
+
+	private Long insert(String userLogin, Status status, Long orderId, Timestamp completed) {
+		List<Long> ids = jdbcTemplate.queryForList(INSERT, Long.class,
+			status.name(), orderId, new Timestamp(System.currentTimeMillis()), completed, userLogin);
+		return ids.isEmpty() ? null : ids.get(0);
+	}
+
+	private static RowMapper<OrderSubmission> mapper(String userLogin) {
+		return (rs, rowNum) -> {
+			long orderId = rs.getLong("order_id");
+			return new OrderSubmission(rs.getLong("id"), userLogin, Status.valueOf(rs.getString("status")),
+				rs.wasNull() ? null : orderId);
+		};
+	}
+}
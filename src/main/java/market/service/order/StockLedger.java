@@ -0,0 +1,176 @@
+package market.service.order;
+
+import market.exception.OutOfStockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock of the products.
+ * <p>
+ * The stock of a product is split between its {@code product_stock} rows, the stripes, and every
+ * reservation is taken from them by conditional updates, which find no row rather than go below
+ * zero. The database thus takes the final decision, and all the nodes of the application share
+ * the same stock. Reservations are part of the order transaction, and are undone with it.
+ * <p>
+ * A row stays locked until the order transaction completes, so a reservation is taken from
+ * a random stripe, and concurrent orders of a popular product mostly lock different rows.
+ * Only when that stripe runs short the reservation is gathered from all the stripes.
+ * <p>
+ * Every receipt and every reservation is also appended to the {@code stock_ledger} table
+ * as a signed quantity, the history of the stock.
+ * <p>
+ * Products without a stock row are not counted: their stock is not limited.
+ */
+@Component
+public class StockLedger {
+	private static final String COUNT = "SELECT SUM(quantity) FROM product_stock WHERE product_id = ?";
+	private static final String STRIPES = "SELECT stripe, quantity FROM product_stock WHERE product_id = ? ORDER BY stripe";
+	private static final String TAKE = "UPDATE product_stock SET quantity = quantity - ? WHERE product_id = ? AND stripe = ? AND quantity >= ?";
+	private static final String ADD = "INSERT INTO product_stock (product_id, stripe, quantity) VALUES (?, ?, ?)" +
+		" ON CONFLICT (product_id, stripe) DO UPDATE SET quantity = product_stock.quantity + EXCLUDED.quantity";
+	private static final String APPEND = "INSERT INTO stock_ledger (product_id, delta, order_id, created) VALUES (?, ?, ?, now())";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final int stripes;
+	private final long estimateTtlMillis;
+
+	/**
+	 * Stock read for {@link #available}, by product id. Changes made by this node are seen
+	 * at once, changes made by the other nodes once the estimate expires.
+	 */
+	private final ConcurrentMap<Long, Estimate> estimates = new ConcurrentHashMap<>();
+
+	public StockLedger(JdbcTemplate jdbcTemplate,
+		@Value("${stock.stripes:8}") int stripes,
+		@Value("${stock.estimateTtl:1000}") long estimateTtlMillis)
+	{
+		if (stripes < 1)
+			throw new IllegalArgumentException("Number of stock stripes must be positive: " + stripes);
+		this.jdbcTemplate = jdbcTemplate;
+		this.stripes = stripes;
+		this.estimateTtlMillis = estimateTtlMillis;
+	}
+
+	/**
+	 * Estimates the stock without locking it, to turn requests away before they reach
+	 * the order; the reservation itself does not rely on the estimate.
+	 *
+	 * @return quantity of the product in stock, or empty if the stock of the product is not limited
+	 */
+	public OptionalInt available(long productId) {
+		Estimate estimate = estimates.get(productId);
+		if ((estimate == null) || (estimate.expiresAt <= System.currentTimeMillis())) {
+			// read outside of the map, so that the query does not block other products
+			estimate = new Estimate(count(productId), System.currentTimeMillis() + estimateTtlMillis);
+			estimates.put(productId, estimate);
+		}
+		return estimate.quantity;
+	}
+
+	/**
+	 * Reserves the products for the order, all or nothing. Must be called within the transaction
+	 * which creates the order, after the order is flushed; the transaction must be rolled back
+	 * if the reservation fails.
+	 * <p>
+	 * Products are reserved in the order of their ids, and the stripes of a product
+	 * are gathered in the order of their numbers, so that concurrent orders of the same
+	 * products do not deadlock: the random stripe is the only row of the product locked before.
+	 *
+	 * @param quantities ordered quantities, keyed by product id
+	 * @throws OutOfStockException if any of the products is short
+	 */
+	public void reserve(long orderId, Map<Long, Integer> quantities) throws OutOfStockException {
+		List<Object[]> rows = new ArrayList<>(quantities.size());
+		for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+			long productId = entry.getKey();
+			int quantity = entry.getValue();
+			int stripe = ThreadLocalRandom.current().nextInt(stripes);
+			if ((jdbcTemplate.update(TAKE, quantity, productId, stripe, quantity) > 0) || gather(productId, quantity))
+				rows.add(new Object[]{productId, -quantity, orderId});
+		}
+		if (rows.isEmpty())
+			return;
+
+		jdbcTemplate.batchUpdate(APPEND, rows);
+		onCommit(() -> rows.forEach(row -> estimates.remove((Long) row[0])));
+	}
+
+	/**
+	 * Adds the received quantity to the stock of the product, spread evenly over the stripes;
+	 * the first receipt creates them. Must be called within a transaction, the quantity
+	 * is available for reservations once it commits.
+	 */
+	public void receive(long productId, int quantity) {
+		if (quantity <= 0)
+			throw new IllegalArgumentException("Received quantity must be positive: " + quantity);
+		List<Object[]> rows = new ArrayList<>(stripes);
+		for (int stripe = 0; stripe < stripes; stripe++)
+			rows.add(new Object[]{productId, stripe, quantity / stripes + ((stripe < quantity % stripes) ? 1 : 0)});
+		jdbcTemplate.batchUpdate(ADD, rows);
+		jdbcTemplate.update(APPEND, productId, quantity, null);
+		onCommit(() -> estimates.remove(productId));
+	}
+
+	/**
+	 * Takes the quantity from the stripes of the product, as much as each one has.
+	 * A stripe changed since it was read is skipped, and the rows taken from are left locked:
+	 * the transaction is rolled back when the reservation fails.
+	 *
+	 * @return {@code true} if the quantity is taken, {@code false} if the stock of the product is not limited
+	 * @throws OutOfStockException if the stripes have less than the quantity
+	 */
+	private boolean gather(long productId, int quantity) throws OutOfStockException {
+		Map<Integer, Integer> stripeQuantities = new TreeMap<>();
+		jdbcTemplate.query(STRIPES, rs -> {
+			stripeQuantities.put(rs.getInt("stripe"), rs.getInt("quantity"));
+		}, productId);
+		if (stripeQuantities.isEmpty())
+			return false;
+
+		int remaining = quantity;
+		for (Map.Entry<Integer, Integer> stripe : stripeQuantities.entrySet()) {
+			int taken = Math.min(stripe.getValue(), remaining);
+			if ((taken > 0) && (jdbcTemplate.update(TAKE, taken, productId, stripe.getKey(), taken) > 0))
+				remaining -= taken;
+			if (remaining == 0)
+				return true;
+		}
+		throw new OutOfStockException();
+	}
+
+	private OptionalInt count(long productId) {
+		Integer quantity = jdbcTemplate.queryForObject(COUNT, Integer.class, productId);
+		return (quantity == null) ? OptionalInt.empty() : OptionalInt.of(quantity);
+	}
+
+	private static void onCommit(Runnable action) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private static class Estimate {
+		final OptionalInt quantity;
+		final long expiresAt;
+
+		Estimate(OptionalInt quantity, long expiresAt) {
+			this.quantity = quantity;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
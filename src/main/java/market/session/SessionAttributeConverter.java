@@ -0,0 +1,103 @@
+package market.session;
+
+import market.dto.CartDTO;
+import market.dto.CartItemDTO;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converter of the session attributes to the bytes kept by the external session store, and back.
+ * <p>
+ * The cart of the signed in user, read by every page, is written field by field: a few dozen
+ * bytes instead of a Java-serialized object graph. Links of the cart are not kept, pages do not
+ * show them. Other attributes are Java-serialized; such values start with the serialization
+ * magic number, so they are told apart from the compact ones by the first byte.
+ */
+public class SessionAttributeConverter implements GenericConverter {
+	private static final byte CART = 1;
+
+	private final SerializingConverter serializer = new SerializingConverter();
+	private final DeserializingConverter deserializer;
+
+	public SessionAttributeConverter(ClassLoader classLoader) {
+		this.deserializer = new DeserializingConverter(classLoader);
+	}
+
+	@Override
+	public Set<ConvertiblePair> getConvertibleTypes() {
+		return new HashSet<>(Arrays.asList(
+			new ConvertiblePair(Object.class, byte[].class),
+			new ConvertiblePair(byte[].class, Object.class)));
+	}
+
+	@Override
+	public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+		if (source == null)
+			return null;
+		if (source instanceof byte[])
+			return fromBytes((byte[]) source);
+		return (source instanceof CartDTO) ? write((CartDTO) source) : serializer.convert(source);
+	}
+
+	private Object fromBytes(byte[] bytes) {
+		return ((bytes.length > 0) && (bytes[0] == CART)) ? readCart(bytes) : deserializer.convert(bytes);
+	}
+
+	private static byte[] write(CartDTO cart) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + cart.getCartItems().size() * 12);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(CART);
+			out.writeBoolean(cart.getUser() != null);
+			if (cart.getUser() != null)
+				out.writeUTF(cart.getUser());
+			out.writeBoolean(cart.isDeliveryIncluded());
+			out.writeInt(cart.getDeliveryCost());
+			out.writeDouble(cart.getProductsCost());
+			out.writeDouble(cart.getTotalCost());
+			out.writeInt(cart.getItemsCount());
+			out.writeInt(cart.getCartItems().size());
+			for (CartItemDTO item : cart.getCartItems()) {
+				out.writeLong(item.getProductId());
+				out.writeInt(item.getQuantity());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static CartDTO readCart(byte[] bytes) {
+		CartDTO cart = new CartDTO();
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+			if (in.readBoolean())
+				cart.setUser(in.readUTF());
+			cart.setDeliveryIncluded(in.readBoolean());
+			cart.setDeliveryCost(in.readInt());
+			cart.setProductsCost(in.readDouble());
+			cart.setTotalCost(in.readDouble());
+			cart.setItemsCount(in.readInt());
+			int size = in.readInt();
+			List<CartItemDTO> items = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				items.add(new CartItemDTO(in.readLong(), in.readInt()));
+			cart.setCartItems(items);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return cart;
+	}
+}
@@ -1,50 +1,70 @@
 package market.sorting;
 
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.ui.Model;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Управляющий сортировкой и разбивкой на страницы.
  * <p>
- * Инкапсулирует операции с опциями сортировки и разбивки на страницы: хранение
- * и обновление значений, а также дополнение модели необходимыми объектами в
- * соответствии с текущими значениями.
+ * Инкапсулирует операции с опциями сортировки и разбивки на страницы: разбор
+ * значений, а также дополнение модели необходимыми объектами в соответствии
+ * с этими значениями.
  * <p>
- * Добавление перечня опций сортировки (по умолчанию пустой) и другого
- * дополнительного функционала (e.g. фильтрации) осуществляется в классах-потомках.
+ * Значения опций каждого запроса возвращаются в виде неизменяемого
+ * {@link SortingContext}, а перечни опций создаются один раз и доступны
+ * только для чтения, поэтому один экземпляр может использоваться
+ * одновременно из разных потоков без синхронизации.
+ * <p>
+ * Перечень опций сортировки передаётся классами-потомками, в них же
+ * добавляется другой дополнительный функционал (e.g. фильтрация).
  *
  * @param <T> класс элементов обрабатываемого списка
  */
 public abstract class AbstractSorter<T> implements ISorter<T> {
 
-	public static Integer FIRST_PAGE = 1;
-	public static Integer PAGE_SIZE_DEFAULT = 5;
-	public static Sort.Direction DIRECTION_DEFAULT = Sort.Direction.ASC;
+	public static final int FIRST_PAGE = 1;
+	public static final int PAGE_SIZE_DEFAULT = 5;
+	public static final int PAGE_SIZE_MAX = 100;
+	public static final Sort.Direction DIRECTION_DEFAULT = Sort.Direction.ASC;
 
-	protected final Map<String, String> sortFieldOptions = new LinkedHashMap<>();
-	private final Map<Integer, String> pageSizeOptions = new LinkedHashMap<>();
-	private final Map<String, String> directionOptions = new LinkedHashMap<>();
-	private Integer pageNumber;
-	private Integer pageSize;
-	private String sortBy;
-	private Sort.Direction sortDirection;
+	private static final Map<Integer, String> PAGE_SIZE_OPTIONS;
+	private static final Map<String, String> DIRECTION_OPTIONS;
 
-	public AbstractSorter() {
+	static {
+		Map<String, String> directionOptions = new LinkedHashMap<>();
 		directionOptions.put(DIRECTION_DEFAULT.toString(), "по возрастанию");
 		directionOptions.put("desc", "по убыванию");
+		DIRECTION_OPTIONS = Collections.unmodifiableMap(directionOptions);
 
+		Map<Integer, String> pageSizeOptions = new LinkedHashMap<>();
 		pageSizeOptions.put(3, "3");
 		pageSizeOptions.put(5, "5");
 		pageSizeOptions.put(10, "10");
 		pageSizeOptions.put(20, "20");
+		PAGE_SIZE_OPTIONS = Collections.unmodifiableMap(pageSizeOptions);
+	}
+
+	private final Map<String, String> sortFieldOptions;
+	private final String sortFieldDefault;
+
+	/**
+	 * @param sortFieldOptions неизменяемый перечень полей сортировки; первое поле используется по умолчанию
+	 */
+	protected AbstractSorter(Map<String, String> sortFieldOptions) {
+		this.sortFieldOptions = sortFieldOptions;
+		this.sortFieldDefault = sortFieldOptions.keySet().iterator().next();
 	}
 
-	//-------------------------------------------------------- Обновление опций
+	//-------------------------------------------------------- Разбор опций
 
 	private static Sort.Direction parseSortDirection(String direction) {
 		if (direction == null)
@@ -53,12 +73,13 @@ public abstract class AbstractSorter<T> implements ISorter<T> {
 	}
 
 	@Override
-	public PageRequest updateSorting(SortingValuesDTO values) {
-		this.sortBy = (values.getSort() == null) ? getSortFieldDefault() : values.getSort();
-		this.pageSize = (values.getSize() == null) ? getDefaultPageSize() : values.getSize();
-		this.pageNumber = (values.getPage() == null) ? FIRST_PAGE : values.getPage();
-		this.sortDirection = parseSortDirection(values.getDirect());
-		return createPageRequest();
+	public SortingContext updateSorting(SortingValuesDTO values) {
+		String sortBy = sortFieldOptions.containsKey(values.getSort()) ? values.getSort() : sortFieldDefault;
+		int pageSize = (values.getSize() == null) ? getDefaultPageSize() : values.getSize();
+		pageSize = Math.max(1, Math.min(pageSize, PAGE_SIZE_MAX));
+		int pageNumber = (values.getPage() == null) ? FIRST_PAGE : Math.max(FIRST_PAGE, values.getPage());
+		return new SortingContext(pageNumber, pageSize, sortBy, parseSortDirection(values.getDirect()),
+			KeysetCursor.decode(values.getAfter()));
 	}
 
 	/**
@@ -68,28 +89,42 @@ public abstract class AbstractSorter<T> implements ISorter<T> {
 		return PAGE_SIZE_DEFAULT;
 	}
 
-	private String getSortFieldDefault() {
-		return sortFieldOptions.keySet().iterator().next();
-	}
-
-	private PageRequest createPageRequest() {
-		return PageRequest.of(
-			getPageNumber() - 1,
-			getPageSize(),
-			getSortDirection(),
-			getSortBy());
-	}
-
 	//------------------------------------------------------- Подготовка модели
 
 	@Override
-	public Model prepareModel(Model model, Page<T> page) {
+	public Model prepareModel(Model model, SortingContext sorting, Page<T> page) {
 		preparePagedModel(model, page);
-		prepareSortedModel(model);
+		prepareSortedModel(model, sorting);
+		prepareFilteredModel(model);
+		return model;
+	}
+
+	@Override
+	public Model prepareKeysetModel(Model model, SortingContext sorting, Slice<T> slice) {
+		model.addAttribute("page", slice);
+		if (slice.hasNext()) {
+			List<T> content = slice.getContent();
+			model.addAttribute("nextCursor", cursorOf(content.get(content.size() - 1), sorting).encode());
+		}
+		prepareSortedModel(model, sorting);
 		prepareFilteredModel(model);
 		return model;
 	}
 
+	/**
+	 * Курсор, указывающий на заданный объект списка при заданной сортировке.
+	 *
+	 * @param item    объект, обладающий свойством id
+	 * @param sorting значения опций сортировки
+	 * @return курсор
+	 */
+	protected KeysetCursor cursorOf(T item, SortingContext sorting) {
+		BeanWrapper wrapper = new BeanWrapperImpl(item);
+		Object value = wrapper.getPropertyValue(sorting.getSortBy());
+		long id = ((Number) wrapper.getPropertyValue("id")).longValue();
+		return KeysetCursor.of(value, id);
+	}
+
 	/**
 	 * Дополнение модели объектами разбивки на страницы.
 	 *
@@ -110,16 +145,17 @@ public abstract class AbstractSorter<T> implements ISorter<T> {
 	/**
 	 * Дополнение модели объектами сортировки.
 	 *
-	 * @param model изменяемая модель
+	 * @param model   изменяемая модель
+	 * @param sorting значения опций сортировки
 	 * @return изменённая модель
 	 */
-	protected Model prepareSortedModel(Model model) {
+	protected Model prepareSortedModel(Model model, SortingContext sorting) {
 		model.addAttribute("pageSizeOptions", getPageSizeOptions());
 		model.addAttribute("sortOptions", getSortFieldOptions());
 		model.addAttribute("directOptions", getDirectionOptions());
-		model.addAttribute("currentPageSize", getPageSize());
-		model.addAttribute("currentSort", getSortBy());
-		model.addAttribute("currentDirection", getSortDirection());
+		model.addAttribute("currentPageSize", sorting.getPageSize());
+		model.addAttribute("currentSort", sorting.getSortBy());
+		model.addAttribute("currentDirection", sorting.getSortDirection());
 		return model;
 	}
 
@@ -133,26 +169,10 @@ public abstract class AbstractSorter<T> implements ISorter<T> {
 		return model;
 	}
 
-	//---------------------------------------------------- Аксессоры и мутаторы
-
-	public Integer getPageNumber() {
-		return pageNumber;
-	}
-
-	public Integer getPageSize() {
-		return pageSize;
-	}
-
-	public String getSortBy() {
-		return sortBy;
-	}
-
-	public Sort.Direction getSortDirection() {
-		return sortDirection;
-	}
+	//--------------------------------------------------------------- Аксессоры
 
 	public Map<Integer, String> getPageSizeOptions() {
-		return pageSizeOptions;
+		return PAGE_SIZE_OPTIONS;
 	}
 
 	public Map<String, String> getSortFieldOptions() {
@@ -160,6 +180,6 @@ public abstract class AbstractSorter<T> implements ISorter<T> {
 	}
 
 	public Map<String, String> getDirectionOptions() {
-		return directionOptions;
+		return DIRECTION_OPTIONS;
 	}
 }
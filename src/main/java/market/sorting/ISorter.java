@@ -1,23 +1,29 @@
 package market.sorting;
 
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.ui.Model;
 
 /**
  * Интерфейс опций сортировки и разбивки на страницы.
+ * <p>
+ * Реализации не хранят состояния запросов: значения опций возвращаются
+ * в виде {@link SortingContext} и передаются обратно при подготовке модели.
  *
  * @param <T> класс элементов обрабатываемого списка
  */
 public interface ISorter<T> {
 
 	/**
-	 * Обновление значений опций сортировки.
+	 * Разбор значений опций сортировки.
+	 * <p>
+	 * Отсутствующие значения заменяются значениями по умолчанию, неизвестное
+	 * поле сортировки - полем по умолчанию.
 	 *
 	 * @param sortingValues новые значения опций
-	 * @return поисковый запрос для обращения к ДАО
+	 * @return значения опций для текущего запроса
 	 */
-	PageRequest updateSorting(SortingValuesDTO sortingValues);
+	SortingContext updateSorting(SortingValuesDTO sortingValues);
 
 	/**
 	 * Добавление данных в модель.
@@ -25,9 +31,26 @@ public interface ISorter<T> {
 	 * Добавляет в модель данные и все служебные объекты, связанные
 	 * с постраничным отображаением и сортировкой.
 	 *
-	 * @param model модель, которая будет обновлена
-	 * @param page  результаты постраничной выборки из БД
+	 * @param model   модель, которая будет обновлена
+	 * @param sorting значения опций, полученные из {@link #updateSorting(SortingValuesDTO)}
+	 * @param page    результаты постраничной выборки из БД
+	 * @return дополненная модель
+	 */
+	Model prepareModel(Model model, SortingContext sorting, Page<T> page);
+
+	/**
+	 * Добавление данных в модель при просмотре по курсору.
+	 * <p>
+	 * Вместо номера страницы используется курсор - позиция последнего
+	 * показанного объекта, поэтому ДАО не приходится пропускать предыдущие
+	 * страницы и подсчитывать общее кол-во объектов. Помимо служебных
+	 * объектов сортировки добавляет в модель курсор следующей страницы,
+	 * если она существует.
+	 *
+	 * @param model   модель, которая будет обновлена
+	 * @param sorting значения опций, полученные из {@link #updateSorting(SortingValuesDTO)}
+	 * @param slice   результаты выборки, следующей за курсором
 	 * @return дополненная модель
 	 */
-	Model prepareModel(Model model, Page<T> page);
+	Model prepareKeysetModel(Model model, SortingContext sorting, Slice<T> slice);
 }
@@ -0,0 +1,91 @@
+package market.sorting;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Позиция в упорядоченном списке: значение поля сортировки и идентификатор
+ * последнего показанного объекта.
+ * <p>
+ * Передаётся между запросами в виде непрозрачной строки, пригодной для URL.
+ * Значение поля сортировки может отсутствовать: такой курсор указывает на объект
+ * с пустым полем.
+ */
+public final class KeysetCursor {
+	private static final char SEPARATOR = '_';
+
+	private final String value;
+	private final long id;
+
+	private KeysetCursor(String value, long id) {
+		this.value = value;
+		this.id = id;
+	}
+
+	/**
+	 * @param value значение поля сортировки, может быть {@code null}
+	 * @param id    идентификатор объекта
+	 */
+	public static KeysetCursor of(Object value, long id) {
+		String stringValue;
+		if (value == null)
+			stringValue = null;
+		else if (value instanceof Date)
+			stringValue = Long.toString(((Date) value).getTime());
+		else
+			stringValue = value.toString();
+		return new KeysetCursor(stringValue, id);
+	}
+
+	/**
+	 * @param token строка, полученная из {@link #encode()}
+	 * @return курсор или {@code null}, если строка пуста или повреждена
+	 */
+	public static KeysetCursor decode(String token) {
+		if (token == null || token.isEmpty())
+			return null;
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = decoded.indexOf(SEPARATOR);
+			if (separator < 0)
+				return new KeysetCursor(null, Long.parseLong(decoded));
+			long id = Long.parseLong(decoded.substring(0, separator));
+			return new KeysetCursor(decoded.substring(separator + 1), id);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	public String encode() {
+		String raw = (value == null) ? Long.toString(id) : Long.toString(id) + SEPARATOR + value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return значение поля сортировки в строковом виде, даты представлены в миллисекундах;
+	 * {@code null}, если поле пусто
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		KeysetCursor that = (KeysetCursor) o;
+		return id == that.id &&
+			Objects.equals(value, that.value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(value, id);
+	}
+}
@@ -0,0 +1,56 @@
+package market.sorting;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Запрос страницы, следующей за курсором (keyset pagination).
+ * <p>
+ * В отличие от {@link org.springframework.data.domain.PageRequest} не содержит
+ * номера страницы: выборка начинается сразу за последним показанным объектом,
+ * поэтому её стоимость не зависит от глубины просмотра. Объекты упорядочиваются
+ * по полю сортировки, а при равенстве значений - по идентификатору. Объекты с пустым
+ * полем сортировки следуют за остальными при сортировке по возрастанию и предшествуют
+ * им при сортировке по убыванию.
+ */
+public final class KeysetRequest {
+
+	private final String sortBy;
+	private final Sort.Direction direction;
+	private final int size;
+	private final KeysetCursor after;
+
+	/**
+	 * @param sortBy    поле сортировки, допускается путь к полю связанного объекта (e.g. "bill.totalCost")
+	 * @param direction направление сортировки
+	 * @param size      максимальное кол-во объектов на странице, не меньше 1
+	 * @param after     позиция, после которой начинается страница; {@code null} для первой страницы
+	 */
+	public KeysetRequest(String sortBy, Sort.Direction direction, int size, KeysetCursor after) {
+		if (size < 1)
+			throw new IllegalArgumentException("Page size must not be less than one");
+		this.sortBy = sortBy;
+		this.direction = direction;
+		this.size = size;
+		this.after = after;
+	}
+
+	public String getSortBy() {
+		return sortBy;
+	}
+
+	public Sort.Direction getDirection() {
+		return direction;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public KeysetCursor getAfter() {
+		return after;
+	}
+
+	public boolean isFirst() {
+		return after == null;
+	}
+}
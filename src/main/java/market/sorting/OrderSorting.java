@@ -1,32 +1,49 @@
 package market.sorting;
 
+import market.dao.projection.OrderSummary;
 import org.springframework.stereotype.Component;
 import org.springframework.ui.Model;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Опции сортировки и фильтрации списка заказов.
+ * <p>
+ * Поля сортировки заданы путями свойств заказа, а список состоит из сводок
+ * {@link OrderSummary}, поэтому значения курсора берутся из соответствующих полей сводки.
  */
 @Component
-public class OrderSorting extends AbstractSorter {
+public class OrderSorting extends AbstractSorter<OrderSummary> {
 
-	private final Map<String, String> executedOptions = new LinkedHashMap<>();
-	private final Map<String, String> createdOptions = new LinkedHashMap<>();
+	private static final Map<String, String> SORT_FIELD_OPTIONS;
+	private static final Map<String, String> EXECUTED_OPTIONS;
+	private static final Map<String, String> CREATED_OPTIONS;
 
-	public OrderSorting() {
+	static {
+		Map<String, String> sortFieldOptions = new LinkedHashMap<>();
 		sortFieldOptions.put("dateCreated", "по дате оформления");
 		sortFieldOptions.put("bill.totalCost", "по сумме");
 		sortFieldOptions.put("userAccount.name", "по имени покупателя");
+		SORT_FIELD_OPTIONS = Collections.unmodifiableMap(sortFieldOptions);
 
+		Map<String, String> executedOptions = new LinkedHashMap<>();
 		executedOptions.put("all", "все заказы");
 		executedOptions.put("true", "только исполненные");
 		executedOptions.put("false", "только в исполнении");
+		EXECUTED_OPTIONS = Collections.unmodifiableMap(executedOptions);
+
+		Map<String, String> createdOptions = new LinkedHashMap<>();
 		createdOptions.put("all", "за всё время");
 		createdOptions.put("1", "за сутки");
 		createdOptions.put("7", "за 7 дней");
 		createdOptions.put("30", "за 30 дней");
+		CREATED_OPTIONS = Collections.unmodifiableMap(createdOptions);
+	}
+
+	public OrderSorting() {
+		super(SORT_FIELD_OPTIONS);
 	}
 
 	@Override
@@ -34,10 +51,26 @@ public class OrderSorting extends AbstractSorter {
 		return 10;
 	}
 
+	@Override
+	protected KeysetCursor cursorOf(OrderSummary item, SortingContext sorting) {
+		Object value;
+		switch (sorting.getSortBy()) {
+			case "bill.totalCost":
+				value = item.getBillTotalCost();
+				break;
+			case "userAccount.name":
+				value = item.getCustomerName();
+				break;
+			default:
+				value = item.getDateCreated();
+		}
+		return KeysetCursor.of(value, item.getId());
+	}
+
 	@Override
 	public Model prepareFilteredModel(Model model) {
-		model.addAttribute("executedOptions", executedOptions);
-		model.addAttribute("createdOptions", createdOptions);
+		model.addAttribute("executedOptions", EXECUTED_OPTIONS);
+		model.addAttribute("createdOptions", CREATED_OPTIONS);
 		return model;
 	}
 }
@@ -1,17 +1,30 @@
 package market.sorting;
 
+import market.dto.ProductDTO;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Опции сортировки и фильтрации списка товаров.
  */
 @Component
-public class ProductBackendSorting extends AbstractSorter {
+public class ProductBackendSorting extends AbstractSorter<ProductDTO> {
 
-	public ProductBackendSorting() {
+	private static final Map<String, String> SORT_FIELD_OPTIONS;
+
+	static {
+		Map<String, String> sortFieldOptions = new LinkedHashMap<>();
 		sortFieldOptions.put("price", "по цене");
 		sortFieldOptions.put("distillery.title", "по винокурне");
 		sortFieldOptions.put("age", "по возрасту");
+		SORT_FIELD_OPTIONS = Collections.unmodifiableMap(sortFieldOptions);
+	}
+
+	public ProductBackendSorting() {
+		super(SORT_FIELD_OPTIONS);
 	}
 
 	@Override
@@ -1,16 +1,29 @@
 package market.sorting;
 
+import market.dto.ProductDTO;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Опции сортировки и фильтрации списка товаров.
  */
 @Component
-public class ProductSorting extends AbstractSorter {
+public class ProductSorting extends AbstractSorter<ProductDTO> {
 
-	public ProductSorting() {
+	private static final Map<String, String> SORT_FIELD_OPTIONS;
+
+	static {
+		Map<String, String> sortFieldOptions = new LinkedHashMap<>();
 		sortFieldOptions.put("price", "по цене");
 		sortFieldOptions.put("distillery.title", "по винокурне");
 		sortFieldOptions.put("age", "по возрасту");
+		SORT_FIELD_OPTIONS = Collections.unmodifiableMap(sortFieldOptions);
+	}
+
+	public ProductSorting() {
+		super(SORT_FIELD_OPTIONS);
 	}
 }
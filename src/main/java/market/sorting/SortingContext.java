@@ -0,0 +1,69 @@
+package market.sorting;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Значения опций сортировки и разбивки на страницы для одного запроса.
+ * <p>
+ * Создаётся в {@link ISorter#updateSorting(SortingValuesDTO)} и передаётся
+ * обратно при подготовке модели. Неизменяем, поэтому одни и те же
+ * экземпляры сортировщиков могут одновременно обслуживать любое кол-во запросов.
+ */
+public final class SortingContext {
+
+	private final int pageNumber;
+	private final int pageSize;
+	private final String sortBy;
+	private final Sort.Direction sortDirection;
+	private final KeysetCursor after;
+
+	/**
+	 * @param pageNumber    номер страницы, начиная с 1
+	 * @param pageSize      кол-во объектов на странице
+	 * @param sortBy        поле сортировки
+	 * @param sortDirection направление сортировки
+	 * @param after         курсор для просмотра по курсору; {@code null} для первой страницы
+	 */
+	public SortingContext(int pageNumber, int pageSize, String sortBy, Sort.Direction sortDirection, KeysetCursor after) {
+		this.pageNumber = pageNumber;
+		this.pageSize = pageSize;
+		this.sortBy = sortBy;
+		this.sortDirection = sortDirection;
+		this.after = after;
+	}
+
+	/**
+	 * @return поисковый запрос для обращения к ДАО
+	 */
+	public PageRequest toPageRequest() {
+		return PageRequest.of(pageNumber - 1, pageSize, sortDirection, sortBy);
+	}
+
+	/**
+	 * @return запрос страницы, следующей за курсором
+	 */
+	public KeysetRequest toKeysetRequest() {
+		return new KeysetRequest(sortBy, sortDirection, pageSize, after);
+	}
+
+	public int getPageNumber() {
+		return pageNumber;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public String getSortBy() {
+		return sortBy;
+	}
+
+	public Sort.Direction getSortDirection() {
+		return sortDirection;
+	}
+
+	public KeysetCursor getAfter() {
+		return after;
+	}
+}
@@ -9,6 +9,7 @@ public class SortingValuesDTO {
 	private Integer size;
 	private String sort;
 	private String direct;
+	private String after;
 
 	public Integer getPage() {
 		return page;
@@ -41,4 +42,12 @@ public class SortingValuesDTO {
 	public void setDirect(String direct) {
 		this.direct = direct;
 	}
+
+	public String getAfter() {
+		return after;
+	}
+
+	public void setAfter(String after) {
+		this.after = after;
+	}
 }
@@ -1,5 +1,6 @@
 package market.sorting;
 
+import market.dto.ProductDTO;
 import org.springframework.stereotype.*;
 import org.springframework.ui.*;
 
@@ -9,18 +10,27 @@ import java.util.*;
  * Опции сортировки и фильтрации списка единиц хранения.
  */
 @Component
-public class StorageSorting extends AbstractSorter {
+public class StorageSorting extends AbstractSorter<ProductDTO> {
 
-	private final Map<String, String> availableOptions = new LinkedHashMap<>();
+	private static final Map<String, String> SORT_FIELD_OPTIONS;
+	private static final Map<String, String> AVAILABLE_OPTIONS;
 
-	public StorageSorting() {
+	static {
+		Map<String, String> sortFieldOptions = new LinkedHashMap<>();
 		sortFieldOptions.put("price", "по цене");
 		sortFieldOptions.put("distillery.title", "по винокурне");
 		sortFieldOptions.put("age", "по возрасту");
+		SORT_FIELD_OPTIONS = Collections.unmodifiableMap(sortFieldOptions);
 
+		Map<String, String> availableOptions = new LinkedHashMap<>();
 		availableOptions.put("all", "все товары");
 		availableOptions.put("true", "только в наличии");
 		availableOptions.put("false", "только отсутствующие");
+		AVAILABLE_OPTIONS = Collections.unmodifiableMap(availableOptions);
+	}
+
+	public StorageSorting() {
+		super(SORT_FIELD_OPTIONS);
 	}
 
 	@Override
@@ -30,7 +40,7 @@ public class StorageSorting extends AbstractSorter {
 
 	@Override
 	public Model prepareFilteredModel(Model model) {
-		model.addAttribute("availableOptions", availableOptions);
+		model.addAttribute("availableOptions", AVAILABLE_OPTIONS);
 		return model;
 	}
 }
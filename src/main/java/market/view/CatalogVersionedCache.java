@@ -0,0 +1,57 @@
+package market.view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of values rendered from the catalog of some version.
+ * <p>
+ * Values are kept for a single catalog version: all of them are dropped as soon as a value
+ * of a newer version is put, and values of older versions are never kept. Least recently
+ * used values are dropped when the capacity is exceeded.
+ */
+final class CatalogVersionedCache<V> {
+
+	/**
+	 * Access-ordered, guarded by itself.
+	 */
+	private final Map<String, V> values;
+
+	/**
+	 * Catalog version of the kept values, guarded by {@link #values}.
+	 */
+	private long version;
+
+	CatalogVersionedCache(int capacity) {
+		this.values = new LinkedHashMap<String, V>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return value rendered from the catalog of the specified version, or null if there is none
+	 */
+	V get(long catalogVersion, String key) {
+		synchronized (values) {
+			return (catalogVersion == version) ? values.get(key) : null;
+		}
+	}
+
+	/**
+	 * Keeps the value rendered from the catalog of the specified version, unless the version is outdated.
+	 */
+	void put(long catalogVersion, String key, V value) {
+		synchronized (values) {
+			if (catalogVersion < version)
+				return;
+			if (catalogVersion > version) {
+				values.clear();
+				version = catalogVersion;
+			}
+			values.put(key, value);
+		}
+	}
+}
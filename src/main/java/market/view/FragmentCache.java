@@ -0,0 +1,68 @@
+package market.view;
+
+import market.service.ProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Cache of the rendered fragments of the storefront pages, which change only with the catalog.
+ * <p>
+ * A request is served with the catalog version current at its start, see {@link #begin}.
+ * Fragments are kept for a single catalog version, so any change of regions, distilleries
+ * or products invalidates the cache.
+ */
+@Component
+public class FragmentCache {
+	private static final String VERSION_ATTRIBUTE = FragmentCache.class.getName() + ".version";
+
+	private final ProductService productService;
+	private final CatalogVersionedCache<String> fragments;
+
+	public FragmentCache(ProductService productService, @Value("${view.fragmentCache.capacity:500}") int capacity) {
+		this.productService = productService;
+		this.fragments = new CatalogVersionedCache<>(capacity);
+	}
+
+	/**
+	 * Remembers the current catalog version as the one the request is served with. Must be called
+	 * before the model of the request is read from the catalog, otherwise fragments rendered from
+	 * an older model might be kept as the ones of a newer version.
+	 */
+	public void begin(HttpServletRequest request) {
+		request.setAttribute(VERSION_ATTRIBUTE, productService.getCatalogVersion());
+	}
+
+	/**
+	 * Rendered links are rewritten with the session id when the client does not send a session
+	 * cookie; such fragments must be neither kept nor shared.
+	 *
+	 * @return true if fragments of the request may be taken from the cache and kept in it
+	 */
+	public boolean isCacheable(HttpServletRequest request) {
+		if (request.getAttribute(VERSION_ATTRIBUTE) == null)
+			return false;
+		HttpSession session = request.getSession(false);
+		return (session == null) || request.isRequestedSessionIdFromCookie();
+	}
+
+	/**
+	 * @return fragment rendered for the catalog version of the request, or null if there is none
+	 */
+	public String get(HttpServletRequest request, String key) {
+		return fragments.get(versionOf(request), key);
+	}
+
+	/**
+	 * Keeps the fragment rendered for the catalog version of the request, unless the version is outdated.
+	 */
+	public void put(HttpServletRequest request, String key, String fragment) {
+		fragments.put(versionOf(request), key, fragment);
+	}
+
+	private static long versionOf(HttpServletRequest request) {
+		return (Long) request.getAttribute(VERSION_ATTRIBUTE);
+	}
+}
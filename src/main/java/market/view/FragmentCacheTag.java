@@ -0,0 +1,72 @@
+package market.view;
+
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+import javax.servlet.jsp.tagext.SimpleTagSupport;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Renders its body once per catalog version and key, then writes the rendered fragment
+ * from the {@link FragmentCache}. The body must depend on the catalog and the key only.
+ */
+public class FragmentCacheTag extends SimpleTagSupport {
+	private String name;
+	private Object key = "";
+	private boolean varyByQuery;
+
+	/**
+	 * Fragment name, unique among the cached fragments.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Values, besides the catalog, the fragment depends on.
+	 */
+	public void setKey(Object key) {
+		this.key = key;
+	}
+
+	/**
+	 * Whether the fragment also depends on the query string the client has requested, e.g. keeps
+	 * the request parameters in its links. The query string is the one of the original request,
+	 * not of the forward to the page template.
+	 */
+	public void setVaryByQuery(boolean varyByQuery) {
+		this.varyByQuery = varyByQuery;
+	}
+
+	@Override
+	public void doTag() throws JspException, IOException {
+		HttpServletRequest request = (HttpServletRequest) ((PageContext) getJspContext()).getRequest();
+		FragmentCache cache = RequestContextUtils.findWebApplicationContext(request).getBean(FragmentCache.class);
+		if (!cache.isCacheable(request)) {
+			getJspBody().invoke(null);
+			return;
+		}
+
+		String cacheKey = name + '|' + key;
+		if (varyByQuery)
+			cacheKey += '?' + originalQueryString(request);
+		String fragment = cache.get(request, cacheKey);
+		if (fragment == null) {
+			StringWriter rendered = new StringWriter();
+			getJspBody().invoke(rendered);
+			fragment = rendered.toString();
+			cache.put(request, cacheKey, fragment);
+		}
+		getJspContext().getOut().write(fragment);
+	}
+
+	private static String originalQueryString(HttpServletRequest request) {
+		if (request.getAttribute(WebUtils.FORWARD_REQUEST_URI_ATTRIBUTE) == null)
+			return request.getQueryString();
+		return (String) request.getAttribute(WebUtils.FORWARD_QUERY_STRING_ATTRIBUTE);
+	}
+}
@@ -0,0 +1,203 @@
+package market.view;
+
+import market.security.GuestCartCookie;
+import market.service.ProductService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the whole responses to the anonymous showcase requests.
+ * <p>
+ * A GET of a showcase page by a client with neither authentication, session nor guest cart gets
+ * the same response as any other such client, so the response is rendered once per catalog version
+ * and the request parameters, and kept gzipped. Rendering such a response must not leave a session
+ * behind: links are not rewritten with the session id and the session created on the way is
+ * invalidated. Must be placed after the security filters, which authenticate the request.
+ */
+public class PageCacheFilter extends OncePerRequestFilter {
+	private static final List<String> CACHED_PATHS = Arrays.asList("/", "/index", "/regions/*", "/rest/products");
+	private static final List<String> KEPT_HEADERS = Arrays.asList(
+		HttpHeaders.CACHE_CONTROL, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+	private static final List<String> FORWARDED_HEADERS = Arrays.asList(
+		"Forwarded", "X-Forwarded-Host", "X-Forwarded-Port", "X-Forwarded-Proto", "X-Forwarded-Prefix");
+
+	private final ProductService productService;
+	private final CatalogVersionedCache<CachedPage> pages;
+	private final int maxPageSize;
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	public PageCacheFilter(ProductService productService, int capacity, int maxPageSize) {
+		this.productService = productService;
+		this.pages = new CatalogVersionedCache<>(capacity);
+		this.maxPageSize = maxPageSize;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+		throws ServletException, IOException
+	{
+		if (!isCacheable(request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		long catalogVersion = productService.getCatalogVersion();
+		String key = keyOf(request);
+		CachedPage page = pages.get(catalogVersion, key);
+		if (page == null) {
+			RenderingResponse rendering = new RenderingResponse(response);
+			chain.doFilter(request, rendering);
+			page = toCachedPage(rendering);
+			if (page == null) {
+				rendering.copyBodyToResponse();
+				return;
+			}
+			HttpSession session = request.getSession(false);
+			if (session != null)
+				session.invalidate();
+			pages.put(catalogVersion, key, page);
+		}
+		write(page, request, response);
+	}
+
+	private boolean isCacheable(HttpServletRequest request) {
+		if (!"GET".equals(request.getMethod()) || (request.getSession(false) != null))
+			return false;
+		if (WebUtils.getCookie(request, GuestCartCookie.NAME) != null)
+			return false;
+		if ((request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) || (request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null))
+			return false;
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if ((authentication != null) && !(authentication instanceof AnonymousAuthenticationToken))
+			return false;
+
+		String path = urlPathHelper.getPathWithinApplication(request);
+		return CACHED_PATHS.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+	}
+
+	/**
+	 * Rendered pages repeat the request parameters in their links, and the REST links include
+	 * the host, so all of them are the parts of the key. Parameters are sorted by name.
+	 */
+	private static String keyOf(HttpServletRequest request) {
+		StringBuilder key = new StringBuilder(request.getRequestURL());
+		Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+		char separator = '?';
+		for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+			for (String value : parameter.getValue()) {
+				key.append(separator).append(parameter.getKey()).append('=').append(value);
+				separator = '&';
+			}
+		}
+		for (String header : FORWARDED_HEADERS) {
+			String value = request.getHeader(header);
+			if (value != null)
+				key.append('|').append(header).append(':').append(value);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return rendered response to be kept, or null if it is not to be kept
+	 */
+	private CachedPage toCachedPage(RenderingResponse rendering) throws IOException {
+		if ((rendering.getStatus() != HttpServletResponse.SC_OK) || rendering.cookiesAdded
+			|| (rendering.getContentType() == null) || (rendering.getContentSize() > maxPageSize))
+		{
+			return null;
+		}
+
+		Map<String, String> headers = new LinkedHashMap<>();
+		for (String header : KEPT_HEADERS) {
+			String value = rendering.getHeader(header);
+			if (value != null)
+				headers.put(header, value);
+		}
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream(rendering.getContentSize() / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+			gzip.write(rendering.getContentAsByteArray());
+		}
+		return new CachedPage(rendering.getContentType(), headers, gzipped.toByteArray());
+	}
+
+	private static void write(CachedPage page, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setContentType(page.contentType);
+		page.headers.forEach(response::setHeader);
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if ((acceptEncoding != null) && acceptEncoding.contains("gzip")) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			response.setContentLength(page.gzipped.length);
+			response.getOutputStream().write(page.gzipped);
+		} else {
+			byte[] body;
+			try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(page.gzipped))) {
+				body = StreamUtils.copyToByteArray(gunzip);
+			}
+			response.setContentLength(body.length);
+			response.getOutputStream().write(body);
+		}
+	}
+
+	private static class CachedPage {
+		final String contentType;
+		final Map<String, String> headers;
+		final byte[] gzipped;
+
+		CachedPage(String contentType, Map<String, String> headers, byte[] gzipped) {
+			this.contentType = contentType;
+			this.headers = headers;
+			this.gzipped = gzipped;
+		}
+	}
+
+	/**
+	 * Collects the rendered body, keeping links free of the session id.
+	 */
+	private static class RenderingResponse extends ContentCachingResponseWrapper {
+		boolean cookiesAdded;
+
+		RenderingResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public String encodeURL(String url) {
+			return url;
+		}
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			cookiesAdded = true;
+			super.addCookie(cookie);
+		}
+	}
+}
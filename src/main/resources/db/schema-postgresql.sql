@@ -0,0 +1,83 @@
+-- Database objects not mapped to the entities. Applied on every start, so each statement
+-- creates or changes its object only once.
+
+-- Bill numbers, allocated in blocks by BillNumberAllocator: sequence value hi stands for the
+-- numbers from hi * order.billNumber.blockSize. A new sequence starts past the numbers of the
+-- existing bills, which used to be random, assuming the default block size of 1000.
+CREATE SEQUENCE IF NOT EXISTS bill_number_seq;
+SELECT setval('bill_number_seq', (SELECT COALESCE(MAX(number), 0) FROM bill) / 1000 + 1)
+	FROM bill_number_seq
+	WHERE NOT is_called;
+
+-- Stock of the products, see StockLedger: the stock of a product is the sum of its stripes,
+-- so that concurrent reservations lock different rows. Products without stock rows are not counted.
+CREATE TABLE IF NOT EXISTS product_stock (
+	product_id BIGINT NOT NULL REFERENCES product (id) ON DELETE CASCADE,
+	stripe INT NOT NULL CHECK (stripe >= 0),
+	quantity INT NOT NULL CHECK (quantity >= 0),
+	PRIMARY KEY (product_id, stripe)
+);
+
+-- Every receipt and reservation of stock as a signed quantity, the history of product_stock.
+CREATE TABLE IF NOT EXISTS stock_ledger (
+	id BIGSERIAL PRIMARY KEY,
+	product_id BIGINT NOT NULL REFERENCES product (id) ON DELETE CASCADE,
+	delta INT NOT NULL,
+	order_id BIGINT REFERENCES customer_order (id),
+	created TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS stock_ledger_product_id_idx ON stock_ledger (product_id);
+CREATE INDEX IF NOT EXISTS stock_ledger_order_id_idx ON stock_ledger (order_id);
+
+-- Stock counted from the ledger alone, before product_stock was introduced.
+INSERT INTO product_stock (product_id, stripe, quantity)
+	SELECT product_id, 0, GREATEST(SUM(delta), 0) FROM stock_ledger
+	WHERE NOT EXISTS (SELECT 1 FROM product_stock)
+	GROUP BY product_id;
+
+-- Catalog version shared by the application nodes, see CatalogVersionStore: a single row,
+-- incremented by every change of the catalog; modified is in milliseconds since the epoch.
+CREATE TABLE IF NOT EXISTS catalog_version (
+	id INT PRIMARY KEY CHECK (id = 1),
+	version BIGINT NOT NULL,
+	modified BIGINT NOT NULL
+);
+INSERT INTO catalog_version (id, version, modified)
+	SELECT 1, 1, (EXTRACT(EPOCH FROM now()) * 1000)::BIGINT
+	WHERE NOT EXISTS (SELECT 1 FROM catalog_version);
+
+-- Products on flash sale, shared by the application nodes, see FlashSaleStore.
+CREATE TABLE IF NOT EXISTS flash_sale (
+	product_id BIGINT PRIMARY KEY REFERENCES product (id) ON DELETE CASCADE
+);
+
+-- Version of the cart, see CartStore: incremented by every change, which is written only
+-- if the stored version is still the one the change was made to.
+ALTER TABLE cart ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Idempotency keys of the orders, see OrderIdempotencyStore: a key is claimed in the transaction
+-- creating the order, so a concurrent request with the same key waits for that transaction.
+CREATE TABLE IF NOT EXISTS order_idempotency_key (
+	user_account_id BIGINT NOT NULL REFERENCES user_account (id) ON DELETE CASCADE,
+	idempotency_key VARCHAR(255) NOT NULL,
+	order_id BIGINT REFERENCES customer_order (id) ON DELETE CASCADE,
+	created TIMESTAMP NOT NULL,
+	PRIMARY KEY (user_account_id, idempotency_key)
+);
+CREATE INDEX IF NOT EXISTS order_idempotency_key_order_id_idx ON order_idempotency_key (order_id);
+CREATE INDEX IF NOT EXISTS order_idempotency_key_created_idx ON order_idempotency_key (created);
+
+-- Orders accepted for asynchronous creation, see OrderSubmissionStore: the status is read
+-- by any node, the order is created by the node which accepted the submission.
+CREATE TABLE IF NOT EXISTS order_submission (
+	id BIGSERIAL PRIMARY KEY,
+	user_account_id BIGINT NOT NULL REFERENCES user_account (id) ON DELETE CASCADE,
+	status VARCHAR(10) NOT NULL,
+	order_id BIGINT REFERENCES customer_order (id) ON DELETE SET NULL,
+	created TIMESTAMP NOT NULL,
+	completed TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS order_submission_order_id_idx ON order_submission (order_id);
+-- A user has one pending submission at most.
+CREATE UNIQUE INDEX IF NOT EXISTS order_submission_pending_idx ON order_submission (user_account_id)
+	WHERE status = 'PENDING';
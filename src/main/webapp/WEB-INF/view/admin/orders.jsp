@@ -32,7 +32,7 @@
 							<c:out value="${order.id}"/>
 					</a>
 				</td>
-				<td><c:out value="${order.userAccount.name}"/></td>
+				<td><c:out value="${order.customerName}"/></td>
 				<td>
 					<fmt:formatDate value="${order.dateCreated}" pattern="dd.MM.yyyy, HH:mm"/>
 				</td>
@@ -43,10 +43,10 @@
 					</c:choose>
 				</td>
 
-				<td>#${order.bill.number}</td>
+				<td>#${order.billNumber}</td>
 				<td>
 					<c:choose>
-						<c:when test="${order.bill.payed}">оплачен</c:when>
+						<c:when test="${order.billPayed}">оплачен</c:when>
 						<c:otherwise>ожидает&nbsp;оплаты</c:otherwise>
 					</c:choose>
 				</td>
@@ -80,14 +80,14 @@
 									<div class="panel-heading"><b>Покупатель</b></div>
 									<ul class="list-group">
 										<li class="list-group-item">
-											<c:out value="${order.userAccount.name}"/><br>
-											<c:out value="${order.userAccount.contacts.phone}"/><br>
-											<c:out value="${order.userAccount.email}"/>
+											<c:out value="${order.customerName}"/><br>
+											<c:out value="${order.customerPhone}"/><br>
+											<c:out value="${order.customerEmail}"/>
 										</li>
 										<c:if test="${order.deliveryIncluded}">
 											<li class="list-group-item">
 												адрес доставки:<br>
-												<c:out value="${order.userAccount.contacts.address}"/>
+												<c:out value="${order.customerAddress}"/>
 											</li>
 										</c:if>
 									</ul>
@@ -102,7 +102,7 @@
 											<table>
 												<tr>
 													<td align="right" style="padding-right: 7px;">номер:</td>
-													<td><c:out value="${order.bill.number}"/></td>
+													<td><c:out value="${order.billNumber}"/></td>
 												</tr>
 												<tr>
 													<td align="right" style="padding-right: 7px;">от:</td>
@@ -110,15 +110,15 @@
 												</tr>
 												<tr>
 													<td align="right" style="padding-right: 7px;">на сумму:</td>
-													<td><c:out value="${order.bill.totalCost}"/> руб.</td>
+													<td><c:out value="${order.billTotalCost}"/> руб.</td>
 												</tr>
 											</table>
 										</li>
 										<li class="list-group-item">
 											<c:choose>
-												<c:when test="${order.bill.payed}">
+												<c:when test="${order.billPayed}">
 													оплачен картой:<br>
-													<c:out value="${order.bill.ccNumber}"/>
+													<c:out value="${order.billCcNumber}"/>
 												</c:when>
 												<c:otherwise>ожидает&nbsp;оплаты</c:otherwise>
 											</c:choose>
@@ -139,13 +139,12 @@
 											<th width="70">цена</th>
 										</tr>
 										</thead>
-										<c:forEach var="orderedProduct" items="${orderedProductsByOrderId[order.id]}">
-											<c:set var="product" value="${productsByOrderId[orderedProduct.productId]}"/>
+										<c:forEach var="item" items="${order.items}">
 											<tr>
-												<td><c:out value="${product.distillery} ${product.name}"/></td>
-												<td><c:out value="${product.price}"/> руб.</td>
-												<td><c:out value="${orderedProduct.quantity}"/></td>
-												<td><c:out value="${orderedProduct.quantity * product.price}"/> руб.</td>
+												<td><c:out value="${item.distilleryTitle} ${item.productName}"/></td>
+												<td><c:out value="${item.price}"/> руб.</td>
+												<td><c:out value="${item.quantity}"/></td>
+												<td><c:out value="${item.cost}"/> руб.</td>
 											</tr>
 										</c:forEach>
 										<c:if test="${order.deliveryIncluded}">
@@ -155,12 +154,12 @@
 											</tr>
 											<tr>
 												<td colspan="3" align="right">доставка по Петербургу:</td>
-												<td><c:out value="${order.deliveryСost}"/> руб.</td>
+												<td><c:out value="${order.deliveryCost}"/> руб.</td>
 											</tr>
 										</c:if>
 										<tr>
 											<td colspan="3" align="right">итог:</td>
-											<td><c:out value="${order.productsCost + order.deliveryСost}"/> руб.</td>
+											<td><c:out value="${order.productsCost + order.deliveryCost}"/> руб.</td>
 										</tr>
 									</table>
 								</div>
@@ -51,3 +51,20 @@
 </sf:form>
 
 <tiles:insertAttribute name="pagination"/>
+
+<h3>Поступление товара</h3>
+<s:url value="/admin/storage/receipt" var="post_receipt_url"/>
+<sf:form method="post" action="${post_receipt_url}" cssClass="form-inline">
+	<input type="number" name="productId" min="1" class="form-control" placeholder="id товара" required/>
+	<input type="number" name="quantity" min="1" class="form-control" placeholder="количество" required/>
+	<button type="submit" class="btn btn-primary">Добавить</button>
+</sf:form>
+
+<h3>Распродажа</h3>
+<p>Товары на распродаже: <c:forEach var="productId" items="${flashSaleProductIds}" varStatus="status">${productId}<c:if test="${!status.last}">, </c:if></c:forEach></p>
+<s:url value="/admin/storage/flashSale" var="post_flash_sale_url"/>
+<sf:form method="post" action="${post_flash_sale_url}" cssClass="form-inline">
+	<input type="number" name="productId" min="1" class="form-control" placeholder="id товара" required/>
+	<label><input type="checkbox" name="active" value="true" checked/> на распродаже</label>
+	<button type="submit" class="btn btn-primary">Сохранить</button>
+</sf:form>
@@ -4,7 +4,7 @@
 
 <%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@taglib prefix="sf" uri="http://www.springframework.org/tags/form" %>
-<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
 
 <script src="${pageContext.request.contextPath}/resources/js/jquery-validate.min.js" type="text/javascript"></script>
 
@@ -92,6 +92,7 @@
 
 <sf:form id="paymentForm" class="form-horizontal"
 		 modelAttribute="creditCard" method="post">
+	<input type="hidden" name="idempotencyKey" value="${idempotencyKey}"/>
 	<div class="form-group">
 		<label for="creditcard" class="col-sm-4 control-label">
 			номер банковской карты
@@ -2,8 +2,9 @@
     Главная страница магазина.
 --%>
 
-<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
 <%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@taglib prefix="market" uri="/WEB-INF/tld/market.tld" %>
 
 <div class="carousel-wrapper" style="margin-top: 20px;">
 	<div id="carousel-example-generic" class="carousel slide" data-ride="carousel" data-interval="10000">
@@ -31,6 +32,7 @@
 	</div>
 </div>
 
+<market:cache name="region-previews">
 <div class="region-preview-container">
 	<c:forEach var="region" items="${regions}">
 		<div class="regionBox">
@@ -46,6 +48,7 @@
 		</div>
 	</c:forEach>
 </div>
+</market:cache>
 
 <div id="detailsModal" class="modal" tabindex="-1" role="dialog" aria-labelledby="detailsModal" aria-hidden="true">
 	<div class="modal-dialog" style="line-height:160%;">
@@ -2,7 +2,7 @@
     Страница "Как сделан магазин".
 --%>
 
-<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
 <%@taglib prefix="s" uri="http://www.springframework.org/tags" %>
 
 <h1>Как работает магазин</h1>
@@ -2,7 +2,7 @@
     Страница товаров региона.
 --%>
 
-<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
 <%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@taglib prefix="s" uri="http://www.springframework.org/tags" %>
 <%@taglib prefix="sf" uri="http://www.springframework.org/tags/form" %>
@@ -42,8 +42,7 @@
 						<c:when test="${product.available}">
 							<c:set var="insideCart" value="false"/>
 							<c:forEach var="cartItem" items="${cart.cartItems}" varStatus="iter">
-								<c:set var="cartProduct" value="${cartItem.product}"/>
-								<c:if test="${cartProduct.id == product.productId}">
+								<c:if test="${cartItem.productId == product.productId}">
 									<c:set var="insideCart" value="true"/>
 								</c:if>
 							</c:forEach>
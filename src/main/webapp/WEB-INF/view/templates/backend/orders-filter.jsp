@@ -20,11 +20,10 @@
 					<c:forEach var="executed" items="${executedOptions}">
 						<c:url var="paramed_url" value="">
 							<c:forEach items="${param}" var="entry">
-								<c:if test="${(entry.key != 'exec') && (entry.key != 'page')}">
+								<c:if test="${(entry.key != 'executed') && (entry.key != 'after')}">
 									<c:param name="${entry.key}" value="${entry.value}"/>
 								</c:if>
 							</c:forEach>
-							<c:param name="page" value="1"/>
 							<c:param name="executed" value="${executed.key}"/>
 						</c:url>
 						<li><a href="<c:out value="${paramed_url}"/>"><c:out value="${executed.value}"/></a></li>
@@ -42,11 +41,10 @@
 					<c:forEach var="created" items="${createdOptions}">
 						<c:url var="paramed_url" value="">
 							<c:forEach items="${param}" var="entry">
-								<c:if test="${(entry.key != 'created') && (entry.key != 'page')}">
+								<c:if test="${(entry.key != 'created') && (entry.key != 'after')}">
 									<c:param name="${entry.key}" value="${entry.value}"/>
 								</c:if>
 							</c:forEach>
-							<c:param name="page" value="1"/>
 							<c:param name="created" value="${created.key}"/>
 						</c:url>
 						<li><a href="<c:out value="${paramed_url}"/>"><c:out value="${created.value}"/></a></li>
@@ -65,11 +63,10 @@
 					<c:forEach var="sort" items="${sortOptions}">
 						<c:url var="paramed_url" value="">
 							<c:forEach items="${param}" var="entry">
-								<c:if test="${(entry.key != 'sort') && (entry.key != 'page')}">
+								<c:if test="${(entry.key != 'sort') && (entry.key != 'after')}">
 									<c:param name="${entry.key}" value="${entry.value}"/>
 								</c:if>
 							</c:forEach>
-							<c:param name="page" value="1"/>
 							<c:param name="sort" value="${sort.key}"/>
 						</c:url>
 						<li><a href="<c:out value="${paramed_url}"/>"><c:out value="${sort.value}"/></a></li>
@@ -85,11 +82,10 @@
 					<c:forEach var="direct" items="${directOptions}">
 						<c:url var="paramed_url" value="">
 							<c:forEach items="${param}" var="entry">
-								<c:if test="${(entry.key != 'direct') && (entry.key != 'page')}">
+								<c:if test="${(entry.key != 'direct') && (entry.key != 'after')}">
 									<c:param name="${entry.key}" value="${entry.value}"/>
 								</c:if>
 							</c:forEach>
-							<c:param name="page" value="1"/>
 							<c:param name="direct" value="${direct.key}"/>
 						</c:url>
 						<li><a href="<c:out value="${paramed_url}"/>"><c:out value="${direct.value}"/></a></li>
@@ -107,11 +103,10 @@
 					<c:forEach var="size" items="${pageSizeOptions}">
 						<c:url var="paramed_url" value="">
 							<c:forEach items="${param}" var="entry">
-								<c:if test="${(entry.key != 'size') && (entry.key != 'page')}">
+								<c:if test="${(entry.key != 'size') && (entry.key != 'after')}">
 									<c:param name="${entry.key}" value="${entry.value}"/>
 								</c:if>
 							</c:forEach>
-							<c:param name="page" value="1"/>
 							<c:param name="size" value="${size.key}"/>
 						</c:url>
 						<li style="width:auto;"><a href="<c:out value="${paramed_url}"/>"><c:out value="${size.value}"/></a></li>
@@ -2,9 +2,11 @@
     Главное меню внешнего интерфейса.
 --%>
 
-<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
 <%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@taglib prefix="market" uri="/WEB-INF/tld/market.tld" %>
 
+<market:cache name="menu" key="${selectedRegion.id}">
 <div class="header-regions">
 	<div class="region-item region-item-title">регионы:</div>
 </div>
@@ -26,3 +28,4 @@
 		</c:choose>
 	</c:forEach>
 </div>
+</market:cache>
@@ -2,13 +2,15 @@
     Опции фильтрации и сортировки товаров.
 --%>
 
-<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
 <%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@taglib prefix="s" uri="http://www.springframework.org/tags" %>
 <%@taglib prefix="sf" uri="http://www.springframework.org/tags/form" %>
+<%@taglib prefix="market" uri="/WEB-INF/tld/market.tld" %>
 
 <div class="clearfix" style="margin-bottom: 20px;">
 	<div class="pull-right">
+		<market:cache name="distilleries-filter" key="${selectedRegion.id}" varyByQuery="true">
 		<div class="btn-group">
 			<c:url var="all_distilleries_url" value="">
 				<c:forEach items="${param}" var="entry">
@@ -42,6 +44,7 @@
 				</c:forEach>
 			</ul>
 		</div>
+		</market:cache>
 		&nbsp;
 		<div class="btn-group">
 			<span class="btn btn-xs btn-default disabled">упорядочить</span>
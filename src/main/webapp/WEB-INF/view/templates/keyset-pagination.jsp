@@ -0,0 +1,50 @@
+<%--
+    Навигация по курсору для многостраничных списков: переход к началу списка
+    и к следующей странице.
+--%>
+
+<%@page contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" session="false" %>
+<%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@taglib prefix="s" uri="http://www.springframework.org/tags" %>
+
+<c:url var="firstUrl" value="">
+	<c:forEach items="${param}" var="entry">
+		<c:if test="${entry.key != 'after'}">
+			<c:param name="${entry.key}" value="${entry.value}"/>
+		</c:if>
+	</c:forEach>
+</c:url>
+
+<c:url var="nextUrl" value="">
+	<c:forEach items="${param}" var="entry">
+		<c:if test="${entry.key != 'after'}">
+			<c:param name="${entry.key}" value="${entry.value}"/>
+		</c:if>
+	</c:forEach>
+	<c:param name="after" value="${nextCursor}"/>
+</c:url>
+
+<c:if test="${(not empty param.after) || (not empty nextCursor)}">
+	<center>
+		<div class="btn-toolbar" role="toolbar">
+			<ul class="pagination custom-pagination pagination-sm" style="margin-top:0;margin-bottom:0;">
+				<c:choose>
+					<c:when test="${empty param.after}">
+						<li class="disabled"><span>в начало</span></li>
+					</c:when>
+					<c:otherwise>
+						<li><a href="<c:out value="${firstUrl}"/>">в начало</a></li>
+					</c:otherwise>
+				</c:choose>
+				<c:choose>
+					<c:when test="${empty nextCursor}">
+						<li class="disabled"><span>следующая</span></li>
+					</c:when>
+					<c:otherwise>
+						<li><a href="<c:out value="${nextUrl}"/>">следующая</a></li>
+					</c:otherwise>
+				</c:choose>
+			</ul>
+		</div>
+	</center>
+</c:if>
@@ -0,0 +1,243 @@
+package market.dao;
+
+import market.dao.projection.OrderSummary;
+import market.domain.*;
+import market.sorting.KeysetCursor;
+import market.sorting.KeysetRequest;
+import market.util.FixturesFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs the queries against the embedded database, counting the issued SQL statements.
+ */
+@SpringJUnitConfig(OrderDAOTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class OrderDAOTest {
+	private static final int ORDERS = 5;
+	private static final int ITEMS_PER_ORDER = 3;
+
+	@Configuration
+	@EnableJpaRepositories("market.dao")
+	@EnableTransactionManagement
+	static class Config {
+
+		@Bean
+		public DataSource dataSource() {
+			return new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.HSQL)
+				.build();
+		}
+
+		@Bean
+		public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+			HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+			vendorAdapter.setGenerateDdl(true);
+			Properties jpaProperties = new Properties();
+			jpaProperties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+			jpaProperties.setProperty("hibernate.generate_statistics", "true");
+
+			LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+			factory.setDataSource(dataSource);
+			factory.setPackagesToScan("market.domain");
+			factory.setJpaVendorAdapter(vendorAdapter);
+			factory.setJpaProperties(jpaProperties);
+			return factory;
+		}
+
+		@Bean
+		public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+			return new JpaTransactionManager(entityManagerFactory);
+		}
+	}
+
+	@Autowired
+	private OrderDAO orderDAO;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@PersistenceContext
+	private EntityManager em;
+
+	private UserAccount account;
+	private Statistics statistics;
+
+	@BeforeEach
+	public void setUp() {
+		new TransactionTemplate(transactionManager).execute(status -> {
+			Region region = FixturesFactory.region().setId(null).build();
+			em.persist(region);
+			Distillery distillery = FixturesFactory.distillery(region).setId(null).build();
+			em.persist(distillery);
+			account = FixturesFactory.account().setId(null).build();
+			Contacts contacts = FixturesFactory.contacts()
+				.setUserAccount(account)
+				.setCityAndRegion("city")
+				.build();
+			account.setContacts(contacts);
+			em.persist(account);
+
+			for (int i = 0; i < ORDERS; i++) {
+				Order order = FixturesFactory.order(account)
+					.setId(null)
+					.setDateCreated(new Date(1000000L + i * 1000))
+					.build();
+				order.setBill(new Bill.Builder()
+					.setOrder(order)
+					.setNumber(i)
+					.setTotalCost(100)
+					.setCcNumber("1234123412341234")
+					.setDateCreated(order.getDateCreated())
+					.build());
+				for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+					Product product = FixturesFactory.product(distillery).setId(0).build();
+					em.persist(product);
+					OrderedProduct orderedProduct = new OrderedProduct();
+					orderedProduct.setOrder(order);
+					orderedProduct.setProduct(product);
+					orderedProduct.setQuantity(j + 1);
+					order.getOrderedProducts().add(orderedProduct);
+				}
+				em.persist(order);
+			}
+			return null;
+		});
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	public void findSummaries_StatementCount() {
+		KeysetRequest request = new KeysetRequest("dateCreated", Sort.Direction.DESC, ORDERS - 1, null);
+
+		Slice<OrderSummary> slice = orderDAO.findSummaries(null, null, request);
+
+		assertThat(statistics.getPrepareStatementCount(), equalTo(2L));
+		assertThat(slice.getContent(), hasSize(ORDERS - 1));
+		assertThat(slice.hasNext(), equalTo(true));
+		OrderSummary summary = slice.getContent().get(0);
+		assertThat(summary.getBillNumber(), equalTo(ORDERS - 1));
+		assertThat(summary.getCustomerName(), equalTo(account.getName()));
+		assertThat(summary.getCustomerPhone(), equalTo(account.getContacts().getPhone()));
+		assertThat(summary.getItems().stream().map(OrderSummary.Item::getQuantity).collect(toList()),
+			containsInAnyOrder(1, 2, 3));
+	}
+
+	@Test
+	public void findSummaries_NextPage() {
+		KeysetRequest first = new KeysetRequest("bill.totalCost", Sort.Direction.ASC, 2, null);
+		List<OrderSummary> firstPage = orderDAO.findSummaries(null, null, first).getContent();
+		OrderSummary last = firstPage.get(firstPage.size() - 1);
+		statistics.clear();
+
+		KeysetCursor cursor = KeysetCursor.of(last.getBillTotalCost(), last.getId());
+		KeysetRequest next = new KeysetRequest("bill.totalCost", Sort.Direction.ASC, ORDERS, cursor);
+		Slice<OrderSummary> slice = orderDAO.findSummaries(null, null, next);
+
+		assertThat(statistics.getPrepareStatementCount(), equalTo(2L));
+		assertThat(slice.getContent(), hasSize(ORDERS - 2));
+		assertThat(slice.hasNext(), equalTo(false));
+	}
+
+	@Test
+	public void findSummaries_EmptySortKeys() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.execute(status -> {
+			for (int i = 0; i < 2; i++) {
+				Order order = FixturesFactory.order(null).setId(null).build();
+				order.setBill(new Bill.Builder()
+					.setOrder(order)
+					.setNumber(ORDERS + i)
+					.setCcNumber("1234123412341234")
+					.setDateCreated(new Date())
+					.build());
+				em.persist(order);
+			}
+			return null;
+		});
+
+		for (Sort.Direction direction : Sort.Direction.values()) {
+			List<Long> ids = new ArrayList<>();
+			KeysetCursor[] cursor = {null};
+			boolean hasNext = true;
+			while (hasNext) {
+				hasNext = transactionTemplate.execute(status -> {
+					Slice<OrderSummary> slice = orderDAO.findSummaries(null, null,
+						new KeysetRequest("userAccount.name", direction, 2, cursor[0]));
+					OrderSummary last = slice.getContent().get(slice.getNumberOfElements() - 1);
+					cursor[0] = KeysetCursor.of(last.getCustomerName(), last.getId());
+					slice.forEach(summary -> ids.add(summary.getId()));
+					return slice.hasNext();
+				});
+			}
+
+			assertThat(ids, hasSize(ORDERS + 2));
+			assertThat(new HashSet<>(ids), hasSize(ORDERS + 2));
+		}
+	}
+
+	@Test
+	public void findSummaries_Empty() {
+		KeysetRequest request = new KeysetRequest("dateCreated", Sort.Direction.DESC, ORDERS, null);
+
+		Slice<OrderSummary> slice = orderDAO.findSummaries(true, null, request);
+
+		assertThat(statistics.getPrepareStatementCount(), equalTo(1L));
+		assertThat(slice.hasContent(), equalTo(false));
+	}
+
+	@Test
+	public void findSummariesByEmail() {
+		PageRequest chunk = PageRequest.of(0, ORDERS - 2);
+
+		List<OrderSummary> first = orderDAO.findSummariesByEmail(account.getEmail(), chunk);
+		OrderSummary last = first.get(first.size() - 1);
+		List<OrderSummary> next = orderDAO.findSummariesByEmailBefore(account.getEmail(),
+			last.getDateCreated(), last.getId(), chunk);
+
+		assertThat(statistics.getPrepareStatementCount(), equalTo(2L));
+		assertThat(first, hasSize(ORDERS - 2));
+		assertThat(next, hasSize(2));
+		assertThat(first.get(0).getBillNumber(), equalTo(ORDERS - 1));
+		assertThat(first.get(0).getCustomerEmail(), equalTo(account.getEmail()));
+		assertThat(first.get(0).getItems(), empty());
+		List<Long> ids = new ArrayList<>();
+		first.forEach(summary -> ids.add(summary.getId()));
+		next.forEach(summary -> ids.add(summary.getId()));
+		assertThat(new HashSet<>(ids), hasSize(ORDERS));
+	}
+}
@@ -0,0 +1,85 @@
+package market.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExpiringUserCacheTest {
+	private static final String EMAIL = "ivan.petrov@yandex.ru";
+	private static final String PASSWORD = "petrov";
+
+	@Mock
+	private UserDetailsService userDetailsService;
+
+	private AccountUser user;
+
+	@BeforeEach
+	public void setUp() {
+		user = new AccountUser(7, EMAIL, PASSWORD, true, true, true, true,
+			AuthorityUtils.createAuthorityList("ROLE_USER"));
+	}
+
+	@Test
+	public void authenticate_Cached() {
+		when(userDetailsService.loadUserByUsername(EMAIL))
+			.thenReturn(new AccountUser(7, EMAIL, "{noop}" + PASSWORD, true, true, true, true,
+				AuthorityUtils.createAuthorityList("ROLE_USER")));
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setUserDetailsService(userDetailsService);
+		provider.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+		provider.setUserCache(new ExpiringUserCache(10, 60000));
+		ProviderManager authenticationManager = new ProviderManager(Collections.singletonList(provider));
+
+		authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+		Authentication second = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+
+		verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+		assertThat(((AccountUser) second.getPrincipal()).getAccountId(), equalTo(7L));
+	}
+
+	@Test
+	public void getUserFromCache_Copy() {
+		ExpiringUserCache cache = new ExpiringUserCache(10, 60000);
+
+		cache.putUserInCache(user);
+		user.eraseCredentials();
+		UserDetails cached = cache.getUserFromCache(EMAIL);
+
+		assertThat(cached, instanceOf(AccountUser.class));
+		assertThat(cached, not(sameInstance(user)));
+		assertThat(cached.getPassword(), equalTo(PASSWORD));
+	}
+
+	@Test
+	public void getUserFromCache_ExpiredAndBounded() throws InterruptedException {
+		ExpiringUserCache expiring = new ExpiringUserCache(10, 1);
+		ExpiringUserCache bounded = new ExpiringUserCache(1, 60000);
+
+		expiring.putUserInCache(user);
+		bounded.putUserInCache(user);
+		bounded.putUserInCache(new AccountUser(8, "other@yandex.ru", PASSWORD, true, true, true, true,
+			AuthorityUtils.createAuthorityList("ROLE_USER")));
+		Thread.sleep(5);
+
+		assertThat(expiring.getUserFromCache(EMAIL), nullValue());
+		assertThat(bounded.getUserFromCache(EMAIL), nullValue());
+		assertThat(bounded.getUserFromCache("other@yandex.ru"), notNullValue());
+	}
+}
@@ -0,0 +1,91 @@
+package market.security;
+
+import market.dto.CartDTO;
+import market.dto.CartItemDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GuestCartCookieTest {
+	private static final int MAX_ITEMS = 3;
+	private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+	private GuestCartCookie guestCartCookie;
+	private CartDTO cart;
+
+	@BeforeEach
+	public void setUp() {
+		guestCartCookie = new GuestCartCookie(SECRET, 3600, MAX_ITEMS);
+		cart = new CartDTO();
+		cart.setDeliveryIncluded(true);
+		cart.setCartItems(Arrays.asList(new CartItemDTO(12, 2), new CartItemDTO(15, 1)));
+	}
+
+	@Test
+	public void writeAndRead() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContextPath("/market");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		guestCartCookie.write(request, response, cart);
+		Cookie cookie = response.getCookie(GuestCartCookie.NAME);
+		request.setCookies(cookie);
+		CartDTO read = guestCartCookie.read(request);
+
+		assertThat(cookie.getPath(), equalTo("/market"));
+		assertThat(cookie.isHttpOnly(), equalTo(true));
+		assertThat(read.isDeliveryIncluded(), equalTo(true));
+		assertThat(read.getItemsCount(), equalTo(2));
+		assertThat(read.getCartItems().get(0).getProductId(), equalTo(12L));
+		assertThat(read.getCartItems().get(0).getQuantity(), equalTo(2));
+		assertThat(read.getCartItems().get(1).getProductId(), equalTo(15L));
+	}
+
+	@Test
+	public void decode_Tampered() {
+		String value = guestCartCookie.encode(cart);
+
+		assertThat(guestCartCookie.decode(value), notNullValue());
+		assertThat(guestCartCookie.decode(value.replace("12:2", "12:9")), nullValue());
+		assertThat(guestCartCookie.decode(value.substring(0, value.length() - 1)), nullValue());
+		assertThat(new GuestCartCookie(SECRET.toUpperCase(), 3600, MAX_ITEMS).decode(value), nullValue());
+		assertThat(guestCartCookie.decode("garbage"), nullValue());
+	}
+
+	@Test
+	public void encode_LimitsItems() {
+		cart.setCartItems(Arrays.asList(new CartItemDTO(1, 1), new CartItemDTO(2, 1), new CartItemDTO(3, 1),
+			new CartItemDTO(4, 1)));
+
+		CartDTO decoded = guestCartCookie.decode(guestCartCookie.encode(cart));
+
+		assertThat(decoded.getItemsCount(), equalTo(MAX_ITEMS));
+	}
+
+	@Test
+	public void write_EmptyCartClears() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setCookies(new Cookie(GuestCartCookie.NAME, guestCartCookie.encode(cart)));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		guestCartCookie.write(request, response, new CartDTO());
+
+		assertThat(response.getCookie(GuestCartCookie.NAME).getMaxAge(), equalTo(0));
+	}
+
+	@Test
+	public void create_ShortSecret() {
+		assertThrows(IllegalArgumentException.class, () -> new GuestCartCookie("secret", 3600, MAX_ITEMS));
+		assertThrows(IllegalArgumentException.class, () -> new GuestCartCookie("", 3600, MAX_ITEMS));
+	}
+}
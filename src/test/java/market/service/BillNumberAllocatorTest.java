@@ -0,0 +1,90 @@
+package market.service;
+
+import market.service.order.BillNumberAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BillNumberAllocatorTest {
+	private static final int BLOCK_SIZE = 10;
+
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+
+	private BillNumberAllocator billNumberAllocator;
+
+	@BeforeEach
+	public void setUp() {
+		billNumberAllocator = new BillNumberAllocator(jdbcTemplate, BLOCK_SIZE);
+	}
+
+	@Test
+	public void next_WithinBlock() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+			.thenReturn(3L);
+
+		for (int i = 0; i < BLOCK_SIZE; i++)
+			assertThat(billNumberAllocator.next(), equalTo(30 + i));
+
+		verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class));
+	}
+
+	@Test
+	public void next_NextBlock() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+			.thenReturn(3L, 7L);
+
+		for (int i = 0; i < BLOCK_SIZE; i++)
+			billNumberAllocator.next();
+
+		assertThat(billNumberAllocator.next(), equalTo(70));
+		verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class));
+	}
+
+	@Test
+	public void next_Concurrent() throws Exception {
+		AtomicLong sequence = new AtomicLong();
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+			.thenAnswer(invocation -> sequence.incrementAndGet());
+		int threads = 4;
+		int perThread = 1000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<List<Integer>>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			results.add(executor.submit(() -> {
+				List<Integer> numbers = new ArrayList<>();
+				for (int i = 0; i < perThread; i++)
+					numbers.add(billNumberAllocator.next());
+				return numbers;
+			}));
+		}
+		Set<Integer> allNumbers = new HashSet<>();
+		for (Future<List<Integer>> result : results)
+			allNumbers.addAll(result.get(10, TimeUnit.SECONDS));
+		executor.shutdown();
+
+		assertThat(allNumbers.size(), equalTo(threads * perThread));
+		assertThat(sequence.get(), equalTo((long) threads * perThread / BLOCK_SIZE));
+	}
+}
@@ -1,8 +1,11 @@
 package market.service;
 
-import market.dao.CartDAO;
+import market.dao.UserAccountDAO;
 import market.domain.*;
 import market.exception.UnknownEntityException;
+import market.service.cart.CartBatchDAO;
+import market.service.cart.CartState;
+import market.service.cart.CartStore;
 import market.service.impl.CartServiceImpl;
 import market.util.FixturesFactory;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,27 +13,39 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static java.util.stream.Collectors.toMap;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class CartServiceTest {
+	private static final long VERSION = 5;
 
 	@Mock
-	private CartDAO cartDAO;
+	private CartBatchDAO cartBatchDAO;
+	@Mock
+	private UserAccountDAO userAccountDAO;
 	@Mock
 	private UserAccountService userAccountService;
 	@Mock
 	private ProductService productService;
 
+	private final AtomicReference<CartState> stored = new AtomicReference<>();
 	private CartService cartService;
 	private Cart cart;
 	private Product product;
@@ -49,53 +64,129 @@ public class CartServiceTest {
 		userAccount = accountBuilder.build();
 		cart.setUserAccount(userAccount);
 
-		cartService = new CartServiceImpl(cartDAO, userAccountService, productService);
+		CartStore cartStore = new CartStore(cartBatchDAO, userAccountDAO, productService, 100);
+		cartService = new CartServiceImpl(cartStore, userAccountService, productService);
+	}
+
+	/**
+	 * The stored cart is kept by the mocked DAO as the database would keep it: the state
+	 * is replaced only if the saved one is of the next version.
+	 */
+	private void givenStoredCart() {
+		stored.set(CartState.of(cart, VERSION));
+		when(userAccountDAO.findById(userAccount.getId()))
+			.thenReturn(Optional.of(userAccount));
+		when(cartBatchDAO.findVersion(userAccount.getId()))
+			.thenAnswer(invocation -> stored.get().getVersion());
+		when(cartBatchDAO.load(userAccount.getId()))
+			.thenAnswer(invocation -> stored.get());
+		if (!cart.isEmpty()) {
+			Map<Long, Product> products = cart.getCartItems().stream()
+				.map(CartItem::getProduct)
+				.collect(toMap(Product::getId, p -> p));
+			when(productService.findByIds(stored.get().getQuantitiesByProductId().keySet()))
+				.thenReturn(products);
+		}
+	}
+
+	private void givenCartSaved() {
+		when(cartBatchDAO.save(any(CartState.class)))
+			.thenAnswer(invocation -> {
+				CartState saved = invocation.getArgument(0);
+				CartState current = stored.get();
+				return (saved.getVersion() == current.getVersion() + 1) && stored.compareAndSet(current, saved);
+			});
+	}
+
+	private CartState expectedState(long version, int quantity, boolean deliveryIncluded) {
+		Cart expected = new Cart(userAccount);
+		expected.setId(userAccount.getId());
+		if (quantity > 0)
+			expected.update(product, quantity);
+		expected.setDeliveryIncluded(deliveryIncluded);
+		return CartState.of(expected, version);
 	}
 
 	@Test
 	public void getCartOrCreate_ExistingCart() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		cart.update(product, 3);
+		givenStoredCart();
 
 		Cart createdCart = cartService.getCartOrCreate(userAccount.getEmail());
+		Cart cachedCart = cartService.getCartOrCreate(userAccount.getEmail());
 
-		verify(cartDAO, never()).save(any(Cart.class));
+		verify(cartBatchDAO, times(1)).load(userAccount.getId());
+		verify(cartBatchDAO, never()).save(any(CartState.class));
 		assertThat(createdCart, equalTo(cart));
+		assertThat(cachedCart, equalTo(cart));
+	}
+
+	@Test
+	public void getCartOrCreate_ChangedOnOtherNode() {
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		when(productService.findByIds(Collections.singleton(product.getId())))
+			.thenReturn(Collections.singletonMap(product.getId(), product));
+		cartService.getCartOrCreate(userAccount.getEmail());
+
+		stored.set(expectedState(VERSION + 1, 2, true));
+		Cart changedCart = cartService.getCartOrCreate(userAccount.getEmail());
+
+		verify(cartBatchDAO, times(2)).load(userAccount.getId());
+		assertThat(changedCart.getCartItems(), hasSize(1));
 	}
 
 	@Test
 	public void getCartOrCreate_AbsentCart() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.save(any(Cart.class)))
-			.thenReturn(cart);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.empty());
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		when(userAccountDAO.findById(userAccount.getId()))
+			.thenReturn(Optional.of(userAccount));
+		when(cartBatchDAO.load(userAccount.getId()))
+			.thenReturn(null);
 
 		Cart createdCart = cartService.getCartOrCreate(userAccount.getEmail());
 
-		verify(cartDAO).save(any(Cart.class));
+		verify(cartBatchDAO, never()).save(any(CartState.class));
 		assertThat(createdCart, equalTo(cart));
 	}
 
+	@Test
+	public void getCartVersion() throws UnknownEntityException {
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		givenCartSaved();
+		when(productService.getProduct(product.getId()))
+			.thenReturn(product);
+
+		long loaded = cartService.getCartVersion(userAccount.getEmail());
+		long read = cartService.getCartVersion(userAccount.getEmail());
+		cartService.addToCart(userAccount.getEmail(), product.getId(), 2);
+		long changed = cartService.getCartVersion(userAccount.getEmail());
+
+		assertThat(loaded, equalTo(VERSION));
+		assertThat(read, equalTo(loaded));
+		assertThat(changed, equalTo(loaded + 1));
+		verify(cartBatchDAO, times(1)).load(userAccount.getId());
+	}
+
 	@Test
 	public void addToCart_Normal() throws UnknownEntityException {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.save(any(Cart.class)))
-			.thenReturn(cart);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		givenCartSaved();
 		when(productService.getProduct(product.getId()))
 			.thenReturn(product);
 		int quantity = 3;
-		cart.update(product, quantity);
 
 		Cart updatedCart = cartService.addToCart(userAccount.getEmail(), product.getId(), quantity);
 
-		verify(cartDAO).save(cart);
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, quantity, true));
 		assertThat(updatedCart.getItemsCount(), equalTo(1));
 		assertThat(updatedCart.getItemsCost(), equalTo(quantity * product.getPrice()));
 		List<CartItem> cartItems = updatedCart.getCartItems();
@@ -104,51 +195,72 @@ public class CartServiceTest {
 		assertThat(cartItems.get(0).getQuantity(), equalTo(quantity));
 	}
 
+	@Test
+	public void addToCart_ChangedConcurrently() throws UnknownEntityException {
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		Product other = FixturesFactory.product(product.getDistillery()).build();
+		givenStoredCart();
+		when(productService.getProduct(product.getId()))
+			.thenReturn(product);
+		when(productService.findByIds(Collections.singleton(other.getId())))
+			.thenReturn(Collections.singletonMap(other.getId(), other));
+		Cart changedOnOtherNode = new Cart(userAccount);
+		changedOnOtherNode.setId(userAccount.getId());
+		changedOnOtherNode.update(other, 1);
+		when(cartBatchDAO.save(any(CartState.class)))
+			.thenAnswer(invocation -> {
+				stored.set(CartState.of(changedOnOtherNode, VERSION + 1));
+				return false;
+			})
+			.thenReturn(true);
+
+		Cart updatedCart = cartService.addToCart(userAccount.getEmail(), product.getId(), 3);
+
+		verify(cartBatchDAO, times(2)).load(userAccount.getId());
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, 3, true));
+		assertThat(updatedCart.getCartItems(), hasSize(2));
+	}
+
 	@Test
 	public void addToCart_UnavailableProduct() throws UnknownEntityException {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
 		when(productService.getProduct(product.getId()))
 			.thenReturn(product);
 		product.setAvailable(false);
 
 		Cart updatedCart = cartService.addToCart(userAccount.getEmail(), product.getId(), 3);
 
-		verify(cartDAO, never()).save(any(Cart.class));
+		verify(cartBatchDAO, never()).save(any(CartState.class));
 		assertThat(updatedCart.isEmpty(), equalTo(true));
 	}
 
 	@Test
 	public void addToCart_AbsentProduct() throws UnknownEntityException {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
 		when(productService.getProduct(product.getId())).thenThrow(UnknownEntityException.class);
 
 		assertThrows(UnknownEntityException.class, () -> cartService.addToCart(userAccount.getEmail(), product.getId(), 3));
-		verify(cartDAO, never()).save(any(Cart.class));
+		verify(cartBatchDAO, never()).save(any(CartState.class));
 	}
 
 	@Test
 	public void addAllToCart_Normal() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.save(any(Cart.class)))
-			.thenReturn(cart);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
-		when(productService.findOne(product.getId()))
-			.thenReturn(Optional.of(product));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		givenCartSaved();
+		when(productService.findByIds(Collections.singleton(product.getId())))
+			.thenReturn(Collections.singletonMap(product.getId(), product));
 		int quantity = 3;
-		cart.update(product, quantity);
 		CartItem cartItem = new CartItem(cart, product, quantity);
 
 		Cart updatedCart = cartService.addAllToCart(userAccount.getEmail(), Collections.singletonList(cartItem));
 
-		verify(cartDAO).save(cart);
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, quantity, true));
 		assertThat(updatedCart.getItemsCount(), equalTo(1));
 		assertThat(updatedCart.getItemsCost(), equalTo(quantity * product.getPrice()));
 		List<CartItem> cartItems = updatedCart.getCartItems();
@@ -159,85 +271,147 @@ public class CartServiceTest {
 
 	@Test
 	public void addAllToCart_UnavailableProduct() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
-		when(productService.findOne(product.getId()))
-			.thenReturn(Optional.of(product));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		when(productService.findByIds(Collections.singleton(product.getId())))
+			.thenReturn(Collections.singletonMap(product.getId(), product));
 		product.setAvailable(false);
 		CartItem cartItem = new CartItem(cart, product, 3);
 
 		Cart updatedCart = cartService.addAllToCart(userAccount.getEmail(), Collections.singletonList(cartItem));
 
-		verify(cartDAO, never()).save(any(Cart.class));
+		verify(cartBatchDAO, never()).save(any(CartState.class));
 		assertThat(updatedCart.isEmpty(), equalTo(true));
 	}
 
 	@Test
 	public void addAllToCart_AbsentProduct() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
-		when(productService.findOne(product.getId()))
-			.thenReturn(Optional.empty());
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		when(productService.findByIds(Collections.singleton(product.getId())))
+			.thenReturn(Collections.emptyMap());
 		CartItem cartItem = new CartItem(cart, product, 3);
 
 		Cart updatedCart = cartService.addAllToCart(userAccount.getEmail(), Collections.singletonList(cartItem));
 
-		verify(cartDAO, never()).save(any(Cart.class));
+		verify(cartBatchDAO, never()).save(any(CartState.class));
 		assertThat(updatedCart.isEmpty(), equalTo(true));
 	}
 
+	@Test
+	public void addAllToCart_Quantities() throws UnknownEntityException {
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		Product other = FixturesFactory.product(product.getDistillery()).build();
+		cart.update(product, 2);
+		cart.update(other, 1);
+		givenStoredCart();
+		givenCartSaved();
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		quantities.put(product.getId(), 5);
+		quantities.put(other.getId(), 0);
+
+		Cart updatedCart = cartService.addAllToCart(userAccount.getEmail(), quantities);
+
+		verify(productService, never()).getProduct(anyLong());
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, 5, true));
+		List<CartItem> cartItems = updatedCart.getCartItems();
+		assertThat(cartItems.size(), equalTo(1));
+		assertThat(cartItems.get(0).getProduct(), equalTo(product));
+		assertThat(cartItems.get(0).getQuantity(), equalTo(5));
+	}
+
 	@Test
 	public void setDelivery() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.save(any(Cart.class)))
-			.thenReturn(cart);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		givenCartSaved();
 
 		Cart updatedCart = cartService.setDelivery(userAccount.getEmail(), true);
 
-		verify(cartDAO, times(1)).save(any(Cart.class));
 		assertThat(updatedCart.isDeliveryIncluded(), equalTo(true));
 
 		updatedCart = cartService.setDelivery(userAccount.getEmail(), false);
 
-		verify(cartDAO, times(2)).save(any(Cart.class));
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, 0, true));
+		verify(cartBatchDAO).save(expectedState(VERSION + 2, 0, false));
+		verify(cartBatchDAO, times(1)).load(userAccount.getId());
 		assertThat(updatedCart.isDeliveryIncluded(), equalTo(false));
 	}
 
 	@Test
 	public void clearCart_EmptyCart() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.save(any(Cart.class)))
-			.thenReturn(cart);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		givenStoredCart();
+		givenCartSaved();
 
 		Cart clearedCart = cartService.clearCart(userAccount.getEmail());
 
-		verify(cartDAO).save(cart);
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, 0, true));
 		assertThat(clearedCart.isEmpty(), equalTo(true));
 	}
 
 	@Test
 	public void clearCart_FullCart() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(cartDAO.save(any(Cart.class)))
-			.thenReturn(cart);
-		when(cartDAO.findById(userAccount.getId()))
-			.thenReturn(Optional.of(cart));
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
 		cart.update(product, 3);
+		givenStoredCart();
+		givenCartSaved();
 
 		Cart clearedCart = cartService.clearCart(userAccount.getEmail());
 
-		verify(cartDAO).save(cart);
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, 0, true));
 		assertThat(clearedCart.isEmpty(), equalTo(true));
 	}
+
+	@Test
+	public void clearCartOnCommit_Committed() {
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		cart.update(product, 3);
+		givenStoredCart();
+		givenCartSaved();
+
+		List<TransactionSynchronization> synchronizations = inTransaction(() -> cartService.clearCartOnCommit(userAccount.getEmail()));
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+		verify(cartBatchDAO).save(expectedState(VERSION + 1, 0, true));
+		assertThat(cartService.getCartOrCreate(userAccount.getId()).isEmpty(), equalTo(true));
+		verify(cartBatchDAO, times(1)).load(userAccount.getId());
+	}
+
+	@Test
+	public void clearCartOnCommit_RolledBack() {
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		cart.update(product, 3);
+		givenStoredCart();
+		givenCartSaved();
+		CartState beforeClear = stored.get();
+
+		List<TransactionSynchronization> synchronizations = inTransaction(() -> cartService.clearCartOnCommit(userAccount.getEmail()));
+		stored.set(beforeClear);
+		synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertThat(cartService.getCartOrCreate(userAccount.getId()).getCartItems(), hasSize(1));
+		verify(cartBatchDAO, times(1)).load(userAccount.getId());
+	}
+
+	/**
+	 * @return synchronizations registered by the action, to be completed by the caller
+	 */
+	private static List<TransactionSynchronization> inTransaction(Runnable action) {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			action.run();
+			return TransactionSynchronizationManager.getSynchronizations();
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
 }
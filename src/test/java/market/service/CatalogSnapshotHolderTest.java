@@ -0,0 +1,135 @@
+package market.service;
+
+import market.dao.DistilleryDAO;
+import market.dao.ProductDAO;
+import market.dao.RegionDAO;
+import market.domain.Distillery;
+import market.domain.Product;
+import market.domain.Region;
+import market.service.catalog.CatalogSnapshot;
+import market.service.catalog.CatalogSnapshotHolder;
+import market.service.catalog.CatalogVersionStore;
+import market.util.FixturesFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogSnapshotHolderTest {
+
+	@Mock
+	private RegionDAO regionDAO;
+	@Mock
+	private DistilleryDAO distilleryDAO;
+	@Mock
+	private ProductDAO productDAO;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	@Mock
+	private CatalogVersionStore versionStore;
+
+	private CatalogSnapshotHolder catalog;
+	private Distillery distillery;
+	private Product product;
+	private Product otherProduct;
+
+	@BeforeEach
+	public void setUp() {
+		Region region = FixturesFactory.region().build();
+		distillery = FixturesFactory.distillery(region).build();
+		product = FixturesFactory.product(distillery).setId(1).build();
+		otherProduct = FixturesFactory.product(distillery).setId(2).build();
+		when(regionDAO.findAll())
+			.thenReturn(Collections.singletonList(region));
+		when(distilleryDAO.findAll())
+			.thenReturn(Collections.singletonList(distillery));
+		when(productDAO.findAll())
+			.thenReturn(Arrays.asList(product, otherProduct));
+		catalog = new CatalogSnapshotHolder(regionDAO, distilleryDAO, productDAO, transactionManager, versionStore);
+	}
+
+	/**
+	 * Every change increments the shared version; no other node changes it.
+	 */
+	private void incrementVersions() {
+		AtomicLong shared = new AtomicLong(catalog.getVersion());
+		when(versionStore.increment())
+			.thenAnswer(invocation -> new CatalogVersionStore.Version(shared.incrementAndGet(), 1000 * shared.get()));
+	}
+
+	@Test
+	public void invalidateProducts() {
+		incrementVersions();
+		CatalogSnapshot loaded = catalog.get();
+		Product changedProduct = new Product.Builder(product)
+			.setDistillery(new Distillery.Builder(distillery).build())
+			.setAvailable(!product.isAvailable())
+			.build();
+		when(productDAO.findByIdIn(new HashSet<>(Arrays.asList(product.getId(), 3L))))
+			.thenReturn(Collections.singletonList(changedProduct));
+
+		catalog.invalidateProducts(Arrays.asList(product.getId(), 3L));
+		CatalogSnapshot reloaded = catalog.get();
+
+		assertThat(reloaded.getVersion(), greaterThan(loaded.getVersion()));
+		assertThat(reloaded.findProduct(product.getId()).isAvailable(), equalTo(!product.isAvailable()));
+		assertThat(reloaded.findProduct(product.getId()).getDistillery(), sameInstance(distillery));
+		assertThat(reloaded.findProduct(otherProduct.getId()), sameInstance(otherProduct));
+		assertThat(reloaded.getDistilleries(), contains(sameInstance(distillery)));
+		verify(productDAO, times(1)).findAll();
+	}
+
+	@Test
+	public void invalidate_AfterProducts() {
+		incrementVersions();
+		catalog.get();
+
+		catalog.invalidateProducts(Collections.singletonList(product.getId()));
+		catalog.invalidate();
+		catalog.get();
+
+		verify(productDAO, times(2)).findAll();
+		verify(productDAO, never()).findByIdIn(anyCollection());
+	}
+
+	@Test
+	public void synchronize_ChangedOnOtherNode() {
+		CatalogSnapshot loaded = catalog.get();
+		when(versionStore.read())
+			.thenReturn(new CatalogVersionStore.Version(loaded.getVersion() + 5, 42000));
+
+		catalog.synchronize();
+		CatalogSnapshot reloaded = catalog.get();
+		catalog.synchronize();
+		catalog.get();
+
+		assertThat(reloaded.getVersion(), equalTo(loaded.getVersion() + 5));
+		assertThat(catalog.getLastModified(), equalTo(42000L));
+		verify(productDAO, times(2)).findAll();
+	}
+
+	@Test
+	public void afterSingletonsInstantiated() {
+		when(versionStore.read())
+			.thenReturn(new CatalogVersionStore.Version(7, 42000));
+
+		catalog.afterSingletonsInstantiated();
+
+		assertThat(catalog.getVersion(), equalTo(7L));
+		assertThat(catalog.getLastModified(), equalTo(42000L));
+		assertThat(catalog.get().getVersion(), equalTo(7L));
+	}
+}
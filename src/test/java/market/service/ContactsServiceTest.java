@@ -13,9 +13,10 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Optional;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -42,20 +43,20 @@ public class ContactsServiceTest {
 			.build();
 		contacts.setUserAccount(userAccount);
 
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
 
 		contactsService = new ContactsServiceImpl(contactsDAO, userAccountService);
 	}
 
 	@Test
 	public void getContacts() {
-		when(contactsDAO.findByUserAccount(any(UserAccount.class)))
-			.thenReturn(contacts);
+		when(contactsDAO.findById(userAccount.getId()))
+			.thenReturn(Optional.of(contacts));
 
 		Contacts retrievedContacts = contactsService.getContacts(userAccount.getEmail());
 
-		verify(contactsDAO).findByUserAccount(any(UserAccount.class));
+		verify(contactsDAO).findById(userAccount.getId());
 		assertThat(retrievedContacts, equalTo(contacts));
 	}
 
@@ -65,8 +66,8 @@ public class ContactsServiceTest {
 			.setPhone(contacts.getPhone() + "_changed")
 			.setAddress(contacts.getAddress() + "_changed")
 			.build();
-		when(contactsDAO.findByUserAccount(any(UserAccount.class)))
-			.thenReturn(contacts);
+		when(contactsDAO.findById(userAccount.getId()))
+			.thenReturn(Optional.of(contacts));
 
 		contactsService.updateUserContacts(changedContacts, userAccount.getEmail());
 
@@ -3,6 +3,8 @@ package market.service;
 import market.dao.DistilleryDAO;
 import market.domain.Distillery;
 import market.domain.Region;
+import market.service.catalog.CatalogSnapshot;
+import market.service.catalog.CatalogSnapshotHolder;
 import market.service.impl.DistilleryServiceImpl;
 import market.util.FixturesFactory;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +15,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -20,7 +23,6 @@ import java.util.Optional;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +33,8 @@ public class DistilleryServiceTest {
 	private DistilleryDAO distilleryDAO;
 	@Mock
 	private RegionService regionService;
+	@Mock
+	private CatalogSnapshotHolder catalog;
 
 	@Captor
 	private ArgumentCaptor<Distillery> distilleryCaptor;
@@ -45,13 +49,17 @@ public class DistilleryServiceTest {
 	public void setUp() {
 		region = FixturesFactory.region().build();
 		distillery = FixturesFactory.distillery(region).build();
-		distilleryService = new DistilleryServiceImpl(regionService, distilleryDAO);
+		distilleryService = new DistilleryServiceImpl(regionService, distilleryDAO, catalog);
+	}
+
+	private void givenCatalog(Distillery... distilleries) {
+		when(catalog.get())
+			.thenReturn(CatalogSnapshot.of(1, Collections.singletonList(region), Arrays.asList(distilleries), Collections.emptyList()));
 	}
 
 	@Test
 	public void findAll() {
-		when(distilleryDAO.findAll())
-			.thenReturn(Collections.singletonList(distillery));
+		givenCatalog(distillery);
 
 		List<Distillery> retrieved = distilleryService.findAll();
 
@@ -60,8 +68,8 @@ public class DistilleryServiceTest {
 
 	@Test
 	public void findByRegion() {
-		when(distilleryDAO.findByRegionOrderByTitleAsc(any(Region.class)))
-			.thenReturn(Collections.singletonList(distillery));
+		Distillery otherDistillery = FixturesFactory.distillery(FixturesFactory.region().build()).build();
+		givenCatalog(distillery, otherDistillery);
 
 		List<Distillery> retrieved = distilleryService.findByRegion(region);
 
@@ -70,8 +78,7 @@ public class DistilleryServiceTest {
 
 	@Test
 	public void findById() {
-		when(distilleryDAO.findById(distillery.getId()))
-			.thenReturn(Optional.of(distillery));
+		givenCatalog(distillery);
 
 		Distillery retrieved = distilleryService.findById(distillery.getId());
 
@@ -80,8 +87,7 @@ public class DistilleryServiceTest {
 
 	@Test
 	public void findByTitle() {
-		when(distilleryDAO.findByTitle(distillery.getTitle()))
-			.thenReturn(distillery);
+		givenCatalog(distillery);
 
 		Distillery retrieved = distilleryService.findByTitle(distillery.getTitle());
 
@@ -97,6 +103,7 @@ public class DistilleryServiceTest {
 
 		verify(distilleryDAO).save(distilleryCaptor.capture());
 		assertThat(distilleryCaptor.getValue(), equalTo(distillery));
+		verify(catalog).invalidate();
 	}
 
 	@Test
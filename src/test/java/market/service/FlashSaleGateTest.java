@@ -0,0 +1,130 @@
+package market.service;
+
+import market.exception.FlashSaleBusyException;
+import market.exception.SoldOutException;
+import market.service.order.FlashSaleGate;
+import market.service.order.FlashSaleStore;
+import market.service.order.StockLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FlashSaleGateTest {
+	private static final long SALE_PRODUCT = 1;
+	private static final long OTHER_PRODUCT = 2;
+
+	@Mock
+	private StockLedger stockLedger;
+	@Mock
+	private FlashSaleStore flashSaleStore;
+
+	private FlashSaleGate gate;
+
+	@BeforeEach
+	public void setUp() {
+		when(flashSaleStore.findProductIds())
+			.thenReturn(Collections.singleton(SALE_PRODUCT));
+		gate = new FlashSaleGate(stockLedger, flashSaleStore, 1, 0, 50, 200);
+		gate.afterSingletonsInstantiated();
+	}
+
+	@Test
+	public void admit_OtherProduct() throws Exception {
+		try (FlashSaleGate.Admission first = gate.admit(quantity(OTHER_PRODUCT, 1));
+			 FlashSaleGate.Admission second = gate.admit(quantity(OTHER_PRODUCT, 1))) {
+			verify(stockLedger, never()).available(anyLong());
+		}
+	}
+
+	@Test
+	public void admit_SoldOut() {
+		when(stockLedger.available(SALE_PRODUCT))
+			.thenReturn(OptionalInt.of(1));
+
+		assertThrows(SoldOutException.class, () -> gate.admit(quantity(SALE_PRODUCT, 2)));
+	}
+
+	@Test
+	public void admit_Busy() throws Exception {
+		when(stockLedger.available(SALE_PRODUCT))
+			.thenReturn(OptionalInt.of(10));
+
+		try (FlashSaleGate.Admission admission = gate.admit(quantity(SALE_PRODUCT, 1))) {
+			assertThrows(FlashSaleBusyException.class, () -> gate.admit(quantity(SALE_PRODUCT, 1)));
+		}
+		gate.admit(quantity(SALE_PRODUCT, 1)).close();
+	}
+
+	@Test
+	public void admit_ClosedTwice() throws Exception {
+		when(stockLedger.available(SALE_PRODUCT))
+			.thenReturn(OptionalInt.of(10));
+		FlashSaleGate.Admission admission = gate.admit(quantity(SALE_PRODUCT, 1));
+		admission.close();
+		admission.close();
+
+		try (FlashSaleGate.Admission other = gate.admit(quantity(SALE_PRODUCT, 1))) {
+			assertThrows(FlashSaleBusyException.class, () -> gate.admit(quantity(SALE_PRODUCT, 1)));
+		}
+	}
+
+	@Test
+	public void admit_ClosedOnCompletion() throws Exception {
+		when(stockLedger.available(SALE_PRODUCT))
+			.thenReturn(OptionalInt.of(10));
+		CompletableFuture<Void> completion = new CompletableFuture<>();
+
+		gate.admit(quantity(SALE_PRODUCT, 1)).closeOn(completion);
+
+		assertThrows(FlashSaleBusyException.class, () -> gate.admit(quantity(SALE_PRODUCT, 1)));
+		completion.complete(null);
+		gate.admit(quantity(SALE_PRODUCT, 1)).close();
+	}
+
+	@Test
+	public void create_QueueTooLong() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new FlashSaleGate(stockLedger, flashSaleStore, 1, 101, 50, 200));
+	}
+
+	@Test
+	public void stop() throws Exception {
+		gate.start(OTHER_PRODUCT);
+		gate.stop(SALE_PRODUCT);
+
+		assertThat(gate.getProductIds(), contains(OTHER_PRODUCT));
+		gate.admit(quantity(SALE_PRODUCT, 1)).close();
+		verify(stockLedger, never()).available(SALE_PRODUCT);
+		verify(flashSaleStore).add(OTHER_PRODUCT);
+		verify(flashSaleStore).remove(SALE_PRODUCT);
+	}
+
+	@Test
+	public void synchronize_ChangedOnOtherNode() {
+		when(flashSaleStore.findProductIds())
+			.thenReturn(Collections.singleton(OTHER_PRODUCT));
+
+		gate.synchronize();
+
+		assertThat(gate.getProductIds(), contains(OTHER_PRODUCT));
+		verify(flashSaleStore, never()).remove(anyLong());
+	}
+
+	private static Map<Long, Integer> quantity(long productId, int quantity) {
+		return Collections.singletonMap(productId, quantity);
+	}
+}
@@ -0,0 +1,141 @@
+package market.service;
+
+import market.dao.OrderDAO;
+import market.domain.Order;
+import market.domain.UserAccount;
+import market.exception.EmptyCartException;
+import market.exception.OutOfStockException;
+import market.service.order.OrderIdempotencyStore;
+import market.util.FixturesFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+/**
+ * The keys are claimed with the upsert of PostgreSQL, missing in the embedded database,
+ * so the store is checked against a mocked template.
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrderIdempotencyStoreTest {
+	private static final String KEY = "b1946ac9";
+
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	@Mock
+	private OrderDAO orderDAO;
+
+	private OrderIdempotencyStore store;
+	private UserAccount userAccount;
+	private Order order;
+	private AtomicInteger created;
+
+	@BeforeEach
+	public void setUp() {
+		store = new OrderIdempotencyStore(jdbcTemplate, transactionManager, orderDAO, 60000);
+		userAccount = FixturesFactory.account().build();
+		order = FixturesFactory.order(userAccount).build();
+		created = new AtomicInteger();
+	}
+
+	private Order createOrder() {
+		created.incrementAndGet();
+		return order;
+	}
+
+	private void givenKeyClaimed(boolean claimed) {
+		when(jdbcTemplate.update(startsWith("INSERT"), eq(KEY), any(Timestamp.class), eq(userAccount.getEmail())))
+			.thenReturn(claimed ? 1 : 0);
+	}
+
+	@Test
+	public void execute_Claimed() throws EmptyCartException, OutOfStockException {
+		givenKeyClaimed(true);
+
+		Order result = store.execute(userAccount.getEmail(), KEY, this::createOrder);
+
+		assertThat(result, sameInstance(order));
+		assertThat(created.get(), equalTo(1));
+		verify(jdbcTemplate).update(startsWith("UPDATE"), eq(order.getId()), eq(userAccount.getId()), eq(KEY));
+		verify(transactionManager).commit(any());
+	}
+
+	@Test
+	public void execute_Replayed() throws EmptyCartException, OutOfStockException {
+		Order earlier = FixturesFactory.order(userAccount).build();
+		givenKeyClaimed(false);
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(userAccount.getEmail()), eq(KEY)))
+			.thenReturn(Collections.singletonList(earlier.getId()));
+		when(orderDAO.findWithDetailsById(earlier.getId()))
+			.thenReturn(Optional.of(earlier));
+
+		Order replayed = store.execute(userAccount.getEmail(), KEY, this::createOrder);
+
+		assertThat(replayed, sameInstance(earlier));
+		assertThat(created.get(), equalTo(0));
+	}
+
+	@Test
+	public void execute_WithoutKey() throws EmptyCartException, OutOfStockException {
+		store.execute(userAccount.getEmail(), null, this::createOrder);
+		store.execute(userAccount.getEmail(), "", this::createOrder);
+
+		assertThat(created.get(), equalTo(2));
+		verifyNoInteractions(jdbcTemplate, transactionManager);
+	}
+
+	@Test
+	public void execute_FailedIsRolledBack() {
+		givenKeyClaimed(true);
+
+		assertThrows(EmptyCartException.class, () -> store.execute(userAccount.getEmail(), KEY, () -> {
+			throw new EmptyCartException();
+		}));
+
+		verify(transactionManager).rollback(any());
+		verify(transactionManager, never()).commit(any());
+		verify(jdbcTemplate, never()).update(startsWith("UPDATE"), any(), any(), any());
+	}
+
+	@Test
+	public void find() {
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(userAccount.getEmail()), eq(KEY)))
+			.thenReturn(Collections.singletonList(order.getId()), Collections.emptyList());
+		when(orderDAO.findWithDetailsById(order.getId()))
+			.thenReturn(Optional.of(order));
+
+		assertThat(store.find(userAccount.getEmail(), KEY), sameInstance(order));
+		assertThat(store.find(userAccount.getEmail(), KEY), equalTo(null));
+		assertThat(store.find(userAccount.getEmail(), null), equalTo(null));
+	}
+
+	@Test
+	public void purge() {
+		long now = System.currentTimeMillis();
+
+		store.purge();
+
+		verify(jdbcTemplate).update(startsWith("DELETE"),
+			(Object) argThat((Timestamp threshold) -> Math.abs(threshold.getTime() - (now - 60000)) < 5000));
+	}
+}
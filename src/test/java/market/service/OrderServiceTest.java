@@ -1,18 +1,29 @@
 package market.service;
 
 import market.dao.OrderDAO;
+import market.dao.ProductDAO;
+import market.dao.projection.OrderSummary;
 import market.domain.*;
 import market.exception.EmptyCartException;
+import market.exception.OutOfStockException;
 import market.exception.UnknownEntityException;
 import market.service.impl.OrderServiceImpl;
+import market.service.order.BillNumberAllocator;
+import market.service.order.StockLedger;
+import market.sorting.KeysetRequest;
 import market.util.FixturesFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -23,6 +34,9 @@ import java.util.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,9 +46,15 @@ public class OrderServiceTest {
 	@Mock
 	private OrderDAO orderDAO;
 	@Mock
+	private ProductDAO productDAO;
+	@Mock
 	private UserAccountService userAccountService;
 	@Mock
 	private CartService cartService;
+	@Mock
+	private BillNumberAllocator billNumberAllocator;
+	@Mock
+	private StockLedger stockLedger;
 
 	@Captor
 	private ArgumentCaptor<Order> orderCaptor;
@@ -62,14 +82,28 @@ public class OrderServiceTest {
 		cart.setId(userAccount.getId());
 		cart.setUserAccount(userAccount);
 
-		orderService = new OrderServiceImpl(orderDAO, userAccountService, cartService);
+		orderService = new OrderServiceImpl(orderDAO, productDAO, userAccountService, cartService, billNumberAllocator, stockLedger, 2);
+	}
+
+	@Test
+	public void fetchSummaries() {
+		KeysetRequest request = new KeysetRequest("dateCreated", Sort.Direction.DESC, 10, null);
+		OrderSummary summary = new OrderSummary(order.getId(), order.getDateCreated(), false, false, 0, 0,
+			userAccount.getName(), userAccount.getEmail(), null, null, 1, 0, true, CARD_NUMBER);
+		Slice<OrderSummary> summarySlice = new SliceImpl<>(Collections.singletonList(summary));
+		when(orderDAO.findSummaries(eq(true), any(Date.class), eq(request)))
+			.thenReturn(summarySlice);
+
+		Slice<OrderSummary> retrieved = orderService.fetchSummaries("true", "30", request);
+
+		assertThat(retrieved, contains(summary));
 	}
 
 	@Test
 	public void getUserOrders() {
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
-		when(orderDAO.findByUserAccountOrderByDateCreatedDesc(userAccount))
+		when(userAccountService.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+		when(orderDAO.findByUserAccountIdOrderByDateCreatedDesc(userAccount.getId()))
 			.thenReturn(Collections.singletonList(order));
 
 		List<Order> retrieved = orderService.getUserOrders(userAccount.getEmail());
@@ -77,9 +111,27 @@ public class OrderServiceTest {
 		assertThat(retrieved, contains(order));
 	}
 
+	@Test
+	public void forEachUserOrder() {
+		List<OrderSummary> summaries = new ArrayList<>();
+		for (long id = 3; id > 0; id--) {
+			summaries.add(new OrderSummary(id, order.getDateCreated(), false, false, 0, 0,
+				userAccount.getName(), userAccount.getEmail(), null, null, (int) id, 0, true, CARD_NUMBER));
+		}
+		when(orderDAO.findSummariesByEmail(userAccount.getEmail(), PageRequest.of(0, 2)))
+			.thenReturn(summaries.subList(0, 2));
+		when(orderDAO.findSummariesByEmailBefore(userAccount.getEmail(), order.getDateCreated(), 2, PageRequest.of(0, 2)))
+			.thenReturn(summaries.subList(2, 3));
+
+		List<OrderSummary> retrieved = new ArrayList<>();
+		orderService.forEachUserOrder(userAccount.getEmail(), retrieved::add);
+
+		assertThat(retrieved, equalTo(summaries));
+	}
+
 	@Test
 	public void getUserOrder() throws UnknownEntityException {
-		when(orderDAO.findById(order.getId()))
+		when(orderDAO.findWithDetailsById(order.getId()))
 			.thenReturn(Optional.of(order));
 
 		Order retrieved = orderService.getUserOrder(userAccount.getEmail(), order.getId());
@@ -88,7 +140,7 @@ public class OrderServiceTest {
 	}
 
 	@Test
-	public void createUserOrder() throws EmptyCartException {
+	public void createUserOrder() throws EmptyCartException, OutOfStockException {
 		int quantity = 3;
 		cart.update(product, quantity);
 		int deliveryCost = 300;
@@ -96,11 +148,24 @@ public class OrderServiceTest {
 		double totalCost = productsCost + deliveryCost;
 		when(cartService.getCartOrCreate(userAccount.getEmail()))
 			.thenReturn(cart);
-		when(userAccountService.findByEmail(userAccount.getEmail()))
-			.thenReturn(userAccount);
+		when(productDAO.findAllById(Collections.singletonList(product.getId())))
+			.thenReturn(Collections.singletonList(product));
+		when(billNumberAllocator.next())
+			.thenReturn(1000);
+		when(orderDAO.saveAndFlush(any(Order.class)))
+			.thenAnswer(invocation -> {
+				Order saved = invocation.getArgument(0);
+				saved.setId(order.getId());
+				return saved;
+			});
 
 		Order createdOrder = orderService.createUserOrder(userAccount.getEmail(), deliveryCost, CARD_NUMBER);
 
+		InOrder written = inOrder(orderDAO, stockLedger);
+		written.verify(orderDAO).saveAndFlush(createdOrder);
+		written.verify(stockLedger).reserve(order.getId(), Collections.singletonMap(product.getId(), quantity));
+		verify(cartService).clearCartOnCommit(userAccount.getEmail());
+
 		assertThat(createdOrder.getUserAccount(), equalTo(userAccount));
 		assertThat(createdOrder.getProductsCost(), equalTo(productsCost));
 		assertThat(createdOrder.isDeliveryIncluded(), equalTo(true));
@@ -110,6 +175,7 @@ public class OrderServiceTest {
 
 		Bill bill = createdOrder.getBill();
 		assertThat(bill.getOrder(), equalTo(createdOrder));
+		assertThat(bill.getNumber(), equalTo(1000));
 		assertThat(bill.getTotalCost(), equalTo(totalCost));
 		assertThat(bill.isPayed(), equalTo(true));
 		assertThat(toDate(bill.getDateCreated()), equalTo(LocalDate.now()));
@@ -123,6 +189,44 @@ public class OrderServiceTest {
 		assertThat(orderedProduct.getQuantity(), equalTo(quantity));
 	}
 
+	@Test
+	public void createUserOrder_OutOfStock() throws OutOfStockException {
+		cart.update(product, 3);
+		when(cartService.getCartOrCreate(userAccount.getEmail()))
+			.thenReturn(cart);
+		when(productDAO.findAllById(Collections.singletonList(product.getId())))
+			.thenReturn(Collections.singletonList(product));
+		when(orderDAO.saveAndFlush(any(Order.class)))
+			.thenAnswer(invocation -> {
+				Order saved = invocation.getArgument(0);
+				saved.setId(order.getId());
+				return saved;
+			});
+		doThrow(OutOfStockException.class)
+			.when(stockLedger).reserve(anyLong(), anyMap());
+
+		assertThrows(OutOfStockException.class,
+			() -> orderService.createUserOrder(userAccount.getEmail(), 300, CARD_NUMBER));
+		verify(cartService, never()).clearCartOnCommit(anyString());
+	}
+
+	@Test
+	public void createUserOrder_ProductRemoved() {
+		Product removed = FixturesFactory.product(product.getDistillery()).build();
+		cart.update(product, 3);
+		cart.update(removed, 1);
+		when(cartService.getCartOrCreate(userAccount.getEmail()))
+			.thenReturn(cart);
+		when(productDAO.findAllById(Arrays.asList(product.getId(), removed.getId())))
+			.thenReturn(Collections.singletonList(product));
+
+		assertThrows(OutOfStockException.class,
+			() -> orderService.createUserOrder(userAccount.getEmail(), 300, CARD_NUMBER));
+		verify(orderDAO, never()).saveAndFlush(any(Order.class));
+		verify(billNumberAllocator, never()).next();
+		verify(cartService, never()).clearCartOnCommit(anyString());
+	}
+
 	@Test
 	public void updateStatus() {
 		when(orderDAO.findById(order.getId()))
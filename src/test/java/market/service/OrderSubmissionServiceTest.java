@@ -0,0 +1,223 @@
+package market.service;
+
+import market.domain.*;
+import market.exception.EmptyCartException;
+import market.exception.OutOfStockException;
+import market.exception.OrderQueueFullException;
+import market.exception.UnknownEntityException;
+import market.service.impl.OrderSubmissionServiceImpl;
+import market.service.order.OrderIdempotencyStore;
+import market.service.order.OrderIdempotencyStore.OrderCreation;
+import market.service.order.OrderSubmission;
+import market.service.order.OrderSubmissionStore;
+import market.util.FixturesFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderSubmissionServiceTest {
+	private static final String CARD_NUMBER = "1234132412341234";
+	private static final int DELIVERY_COST = 300;
+	private static final String KEY = "b1946ac9";
+
+	@Mock
+	private OrderService orderService;
+	@Mock
+	private CartService cartService;
+	@Mock
+	private OrderIdempotencyStore orderIdempotencyStore;
+	@Mock
+	private OrderSubmissionStore orderSubmissionStore;
+
+	private OrderSubmissionServiceImpl orderSubmissionService;
+	private UserAccount userAccount;
+	private Order order;
+	private Cart cart;
+
+	@BeforeEach
+	public void setUp() {
+		userAccount = FixturesFactory.account().build();
+		order = FixturesFactory.order(userAccount).build();
+		Product product = FixturesFactory.product(FixturesFactory.distillery(FixturesFactory.region().build()).build()).build();
+		cart = new Cart(userAccount);
+		cart.update(product, 2);
+
+		orderSubmissionService = new OrderSubmissionServiceImpl(orderService, cartService,
+			orderIdempotencyStore, orderSubmissionStore, 1, 1, 60000, 60000);
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		orderSubmissionService.close();
+	}
+
+	private void givenOrdersCreated() throws EmptyCartException, OutOfStockException {
+		when(orderIdempotencyStore.execute(anyString(), any(), any()))
+			.thenAnswer(invocation -> invocation.<OrderCreation>getArgument(2).create());
+	}
+
+	@Test
+	public void submit() throws Exception {
+		givenOrdersCreated();
+		when(cartService.getCartOrCreate(userAccount.getEmail()))
+			.thenReturn(cart);
+		when(orderSubmissionStore.insertPending(userAccount.getEmail()))
+			.thenReturn(1L);
+		when(orderService.createUserOrder(userAccount.getEmail(), DELIVERY_COST, CARD_NUMBER))
+			.thenReturn(order);
+
+		OrderSubmission submission = orderSubmissionService.submit(userAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER);
+
+		assertThat(submission.getCompletion().get(5, TimeUnit.SECONDS), equalTo(order));
+		assertThat(submission.getStatus(), equalTo(OrderSubmission.Status.CREATED));
+		assertThat(submission.getOrderId(), equalTo(order.getId()));
+		verify(orderSubmissionStore).complete(1L, order.getId());
+	}
+
+	@Test
+	public void submit_Replayed() throws Exception {
+		when(orderIdempotencyStore.find(userAccount.getEmail(), KEY))
+			.thenReturn(order);
+		when(orderSubmissionStore.insertCreated(userAccount.getEmail(), order.getId()))
+			.thenReturn(2L);
+
+		OrderSubmission replayed = orderSubmissionService.submit(userAccount.getEmail(), KEY, DELIVERY_COST, CARD_NUMBER);
+
+		assertThat(replayed.getId(), equalTo(2L));
+		assertThat(replayed.getCompletion().get(5, TimeUnit.SECONDS), sameInstance(order));
+		verify(orderService, never()).createUserOrder(anyString(), anyInt(), anyString());
+		verify(cartService, never()).getCartOrCreate(anyString());
+	}
+
+	@Test
+	public void submit_EmptyCart() throws EmptyCartException, OutOfStockException {
+		when(cartService.getCartOrCreate(userAccount.getEmail()))
+			.thenReturn(new Cart(userAccount));
+
+		assertThrows(EmptyCartException.class,
+			() -> orderSubmissionService.submit(userAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER));
+		verify(orderService, never()).createUserOrder(anyString(), anyInt(), anyString());
+		verify(orderSubmissionStore, never()).insertPending(anyString());
+	}
+
+	@Test
+	public void submit_Failed() throws Exception {
+		givenOrdersCreated();
+		when(cartService.getCartOrCreate(userAccount.getEmail()))
+			.thenReturn(cart);
+		when(orderSubmissionStore.insertPending(userAccount.getEmail()))
+			.thenReturn(1L);
+		when(orderService.createUserOrder(userAccount.getEmail(), DELIVERY_COST, CARD_NUMBER))
+			.thenThrow(EmptyCartException.class);
+
+		OrderSubmission submission = orderSubmissionService.submit(userAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER);
+
+		assertThrows(ExecutionException.class, () -> submission.getCompletion().get(5, TimeUnit.SECONDS));
+		assertThat(submission.getStatus(), equalTo(OrderSubmission.Status.FAILED));
+		verify(orderSubmissionStore).fail(1L);
+	}
+
+	@Test
+	public void submit_PendingAndQueueFull() throws Exception {
+		UserAccount otherAccount = FixturesFactory.account().setEmail("other@domain.com").build();
+		UserAccount thirdAccount = FixturesFactory.account().setEmail("third@domain.com").build();
+		givenOrdersCreated();
+		when(cartService.getCartOrCreate(anyString()))
+			.thenReturn(cart);
+		when(orderSubmissionStore.insertPending(userAccount.getEmail()))
+			.thenReturn(1L);
+		when(orderSubmissionStore.insertPending(otherAccount.getEmail()))
+			.thenReturn(2L, (Long) null);
+		when(orderSubmissionStore.findPending(otherAccount.getEmail()))
+			.thenReturn(new OrderSubmission(2L, otherAccount.getEmail(), OrderSubmission.Status.PENDING, null));
+		when(orderSubmissionStore.insertPending(thirdAccount.getEmail()))
+			.thenReturn(3L);
+		CountDownLatch release = new CountDownLatch(1);
+		when(orderService.createUserOrder(anyString(), anyInt(), anyString()))
+			.thenAnswer(invocation -> {
+				release.await(5, TimeUnit.SECONDS);
+				return order;
+			});
+
+		OrderSubmission writing = orderSubmissionService.submit(userAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER);
+		OrderSubmission queued = orderSubmissionService.submit(otherAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER);
+		OrderSubmission repeated = orderSubmissionService.submit(otherAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER);
+		assertThat(repeated, sameInstance(queued));
+		awaitWriterBusy();
+		assertThrows(OrderQueueFullException.class,
+			() -> orderSubmissionService.submit(thirdAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER));
+		verify(orderSubmissionStore).delete(3L);
+
+		release.countDown();
+		assertThat(queued.getCompletion().get(5, TimeUnit.SECONDS), equalTo(order));
+		assertThat(writing.getStatus(), equalTo(OrderSubmission.Status.CREATED));
+	}
+
+	private void awaitWriterBusy() throws InterruptedException {
+		for (int i = 0; i < 500; i++) {
+			if (mockingDetails(orderService).getInvocations().size() > 0)
+				return;
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void submit_PendingOnOtherNode() throws Exception {
+		when(cartService.getCartOrCreate(userAccount.getEmail()))
+			.thenReturn(cart);
+		when(orderSubmissionStore.insertPending(userAccount.getEmail()))
+			.thenReturn(null);
+		when(orderSubmissionStore.findPending(userAccount.getEmail()))
+			.thenReturn(new OrderSubmission(7L, userAccount.getEmail(), OrderSubmission.Status.PENDING, null));
+		when(orderSubmissionStore.find(userAccount.getEmail(), 7L))
+			.thenReturn(new OrderSubmission(7L, userAccount.getEmail(), OrderSubmission.Status.PENDING, null),
+				new OrderSubmission(7L, userAccount.getEmail(), OrderSubmission.Status.CREATED, order.getId()));
+		when(orderService.getUserOrder(userAccount.getEmail(), order.getId()))
+			.thenReturn(order);
+
+		OrderSubmission submission = orderSubmissionService.submit(userAccount.getEmail(), null, DELIVERY_COST, CARD_NUMBER);
+		orderSubmissionService.poll();
+
+		assertThat(submission.getCompletion().isDone(), equalTo(false));
+
+		orderSubmissionService.poll();
+
+		assertThat(submission.getCompletion().get(5, TimeUnit.SECONDS), sameInstance(order));
+		verify(orderService, never()).createUserOrder(anyString(), anyInt(), anyString());
+	}
+
+	@Test
+	public void getSubmission() throws UnknownEntityException {
+		OrderSubmission stored = new OrderSubmission(1L, userAccount.getEmail(), OrderSubmission.Status.CREATED, order.getId());
+		when(orderSubmissionStore.find(userAccount.getEmail(), 1L))
+			.thenReturn(stored);
+
+		assertThat(orderSubmissionService.getSubmission(userAccount.getEmail(), 1L), sameInstance(stored));
+	}
+
+	@Test
+	public void getSubmission_OtherUser() {
+		when(orderSubmissionStore.find("other@domain.com", 1L))
+			.thenReturn(null);
+
+		assertThrows(UnknownEntityException.class,
+			() -> orderSubmissionService.getSubmission("other@domain.com", 1L));
+	}
+}
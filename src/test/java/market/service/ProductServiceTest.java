@@ -5,7 +5,11 @@ import market.domain.Distillery;
 import market.domain.Product;
 import market.domain.Region;
 import market.exception.UnknownEntityException;
+import market.service.catalog.CatalogSnapshot;
+import market.service.catalog.CatalogSnapshotHolder;
+import market.service.catalog.ProductPreview;
 import market.service.impl.ProductServiceImpl;
+import market.service.order.StockLedger;
 import market.util.FixturesFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,12 +21,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +42,10 @@ public class ProductServiceTest {
 	private ProductDAO productDAO;
 	@Mock
 	private DistilleryService distilleryService;
+	@Mock
+	private CatalogSnapshotHolder catalog;
+	@Mock
+	private StockLedger stockLedger;
 
 	@Captor
 	private ArgumentCaptor<Product> productCaptor;
@@ -52,19 +65,38 @@ public class ProductServiceTest {
 		product = FixturesFactory.product(distillery).build();
 		pageRequest = PageRequest.of(1, 1);
 
-		productService = new ProductServiceImpl(productDAO, distilleryService);
+		productService = new ProductServiceImpl(productDAO, distilleryService, catalog, stockLedger);
+	}
+
+	private void givenCatalog(Product... products) {
+		when(catalog.get())
+			.thenReturn(CatalogSnapshot.of(1, Collections.singletonList(region), Collections.singletonList(distillery), Arrays.asList(products)));
 	}
 
 	@Test
 	public void findAll() {
-		when(productDAO.findAll())
-			.thenReturn(Collections.singletonList(product));
+		givenCatalog(product);
 
 		List<Product> retrieved = productService.findAll();
 
 		assertThat(retrieved, contains(product));
 	}
 
+	@Test
+	public void findPreviews() {
+		Product otherProduct = new Product.Builder(FixturesFactory.product(distillery).build())
+			.setId(product.getId() - 1)
+			.build();
+		givenCatalog(product, otherProduct);
+
+		List<ProductPreview> retrieved = productService.findPreviews();
+
+		assertThat(retrieved.stream().map(ProductPreview::getProductId).collect(Collectors.toList()),
+			contains(otherProduct.getId(), product.getId()));
+		assertThat(retrieved.get(1).getDistillery(), equalTo(distillery.getTitle()));
+		assertThat(retrieved.get(1).getName(), equalTo(product.getName()));
+	}
+
 	@Test
 	public void findAll_Paged() {
 		Page<Product> productPage = new PageImpl<>(Collections.singletonList(product));
@@ -78,22 +110,23 @@ public class ProductServiceTest {
 
 	@Test
 	public void findByDistillery() {
-		Page<Product> productPage = new PageImpl<>(Collections.singletonList(product));
-		when(productDAO.findByDistilleryOrderByName(distillery, pageRequest))
-			.thenReturn(productPage);
+		Product cheapProduct = new Product.Builder(FixturesFactory.product(distillery).build())
+			.setPrice(product.getPrice() - 50)
+			.build();
+		givenCatalog(product, cheapProduct);
 
-		Page<Product> retrieved = productService.findByDistillery(distillery, pageRequest);
+		Page<Product> retrieved = productService.findByDistillery(distillery, PageRequest.of(1, 1, Sort.Direction.ASC, "price"));
 
 		assertThat(retrieved, contains(product));
+		assertThat(retrieved.getTotalElements(), equalTo(2L));
 	}
 
 	@Test
 	public void findByRegion() {
-		Page<Product> productPage = new PageImpl<>(Collections.singletonList(product));
-		when(productDAO.findByRegionOrderByName(region, pageRequest))
-			.thenReturn(productPage);
+		Product otherRegionProduct = FixturesFactory.product(FixturesFactory.distillery(FixturesFactory.region().build()).build()).build();
+		givenCatalog(product, otherRegionProduct);
 
-		Page<Product> retrieved = productService.findByRegion(region, pageRequest);
+		Page<Product> retrieved = productService.findByRegion(region, PageRequest.of(0, 5));
 
 		assertThat(retrieved, contains(product));
 	}
@@ -112,8 +145,7 @@ public class ProductServiceTest {
 
 	@Test
 	public void getProduct() throws UnknownEntityException {
-		when(productDAO.findById(product.getId()))
-			.thenReturn(Optional.of(product));
+		givenCatalog(product);
 
 		Product retrieved = productService.getProduct(product.getId());
 
@@ -123,14 +155,25 @@ public class ProductServiceTest {
 	@Test
 	public void findOne() {
 		Optional<Product> productOptional = Optional.of(product);
-		when(productDAO.findById(product.getId()))
-			.thenReturn(productOptional);
+		givenCatalog(product);
 
 		Optional<Product> retrieved = productService.findOne(product.getId());
 
 		assertThat(retrieved, equalTo(productOptional));
 	}
 
+	@Test
+	public void findByIds() {
+		Product otherProduct = FixturesFactory.product(distillery).build();
+		givenCatalog(product, otherProduct);
+		long unknownId = otherProduct.getId() + 1;
+
+		Map<Long, Product> retrieved = productService.findByIds(Arrays.asList(product.getId(), unknownId));
+
+		assertThat(retrieved.size(), equalTo(1));
+		assertThat(retrieved.get(product.getId()), equalTo(product));
+	}
+
 	@Test
 	public void create() {
 		when(distilleryService.findByTitle(distillery.getTitle()))
@@ -140,6 +183,7 @@ public class ProductServiceTest {
 
 		verify(productDAO).save(productCaptor.capture());
 		assertThat(productCaptor.getValue(), equalTo(product));
+		verify(catalog).invalidate();
 	}
 
 	@Test
@@ -149,8 +193,7 @@ public class ProductServiceTest {
 			.build();
 		when(distilleryService.findByTitle(distillery.getTitle()))
 			.thenReturn(distillery);
-		when(productDAO.findById(product.getId()))
-			.thenReturn(Optional.of(product));
+		givenCatalog(product);
 
 		productService.update(changedProduct, distillery.getTitle());
 
@@ -161,18 +204,35 @@ public class ProductServiceTest {
 	@Test
 	public void updateAvailability() {
 		boolean updatedAvailability = !product.isAvailable();
-		Product expectedProduct = new Product.Builder(product)
-			.setAvailable(updatedAvailability)
-			.build();
 		Map<Boolean, List<Long>> changes = new HashMap<>();
-		changes.put(updatedAvailability, Collections.singletonList(product.getId()));
-		when(productDAO.findById(product.getId()))
-			.thenReturn(Optional.of(product));
+		long unchangedId = product.getId() + 1;
+		changes.put(updatedAvailability, Arrays.asList(product.getId(), unchangedId));
+		changes.put(!updatedAvailability, Collections.emptyList());
+		when(productDAO.findIdsByAvailableNot(Arrays.asList(product.getId(), unchangedId), updatedAvailability))
+			.thenReturn(Collections.singletonList(product.getId()));
+		when(productDAO.updateAvailability(Collections.singletonList(product.getId()), updatedAvailability))
+			.thenReturn(1);
+
+		int updated = productService.updateAvailability(changes);
+
+		assertThat(updated, equalTo(1));
+		verify(productDAO, never()).findIdsByAvailableNot(Collections.emptyList(), !updatedAvailability);
+		verify(catalog).invalidateProducts(Collections.singleton(product.getId()));
+		verify(catalog, never()).invalidate();
+	}
+
+	@Test
+	public void updateAvailability_Unchanged() {
+		Map<Boolean, List<Long>> changes = new HashMap<>();
+		changes.put(product.isAvailable(), Collections.singletonList(product.getId()));
+		when(productDAO.findIdsByAvailableNot(Collections.singletonList(product.getId()), product.isAvailable()))
+			.thenReturn(Collections.emptyList());
 
-		productService.updateAvailability(changes);
+		int updated = productService.updateAvailability(changes);
 
-		verify(productDAO).save(productCaptor.capture());
-		assertThat(productCaptor.getValue(), equalTo(expectedProduct));
+		assertThat(updated, equalTo(0));
+		verify(productDAO, never()).updateAvailability(anyCollection(), anyBoolean());
+		verify(catalog, never()).invalidateProducts(anyCollection());
 	}
 
 	@Test
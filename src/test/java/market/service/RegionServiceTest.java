@@ -2,6 +2,8 @@ package market.service;
 
 import market.dao.RegionDAO;
 import market.domain.Region;
+import market.service.catalog.CatalogSnapshot;
+import market.service.catalog.CatalogSnapshotHolder;
 import market.service.impl.RegionServiceImpl;
 import market.util.FixturesFactory;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +14,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +30,8 @@ public class RegionServiceTest {
 
 	@Mock
 	private RegionDAO regionDAO;
+	@Mock
+	private CatalogSnapshotHolder catalog;
 
 	@Captor
 	private ArgumentCaptor<Region> regionCaptor;
@@ -39,23 +44,30 @@ public class RegionServiceTest {
 	@BeforeEach
 	public void setUp() {
 		region = FixturesFactory.region().build();
-		regionService = new RegionServiceImpl(regionDAO);
+		regionService = new RegionServiceImpl(regionDAO, catalog);
+	}
+
+	private void givenCatalog(Region... regions) {
+		when(catalog.get())
+			.thenReturn(CatalogSnapshot.of(1, Arrays.asList(regions), Collections.emptyList(), Collections.emptyList()));
 	}
 
 	@Test
 	public void findAll() {
-		when(regionDAO.findAll())
-			.thenReturn(Collections.singletonList(region));
+		Region otherRegion = new Region.Builder(region)
+			.setId(region.getId() + 1)
+			.setName("a" + region.getName())
+			.build();
+		givenCatalog(region, otherRegion);
 
 		List<Region> retrieved = regionService.findAll();
 
-		assertThat(retrieved, contains(region));
+		assertThat(retrieved, contains(otherRegion, region));
 	}
 
 	@Test
 	public void findOne() {
-		when(regionDAO.findById(region.getId()))
-			.thenReturn(Optional.of(region));
+		givenCatalog(region);
 
 		Region retrieved = regionService.findOne(region.getId());
 
@@ -64,8 +76,7 @@ public class RegionServiceTest {
 
 	@Test
 	public void findByName() {
-		when(regionDAO.findByName(region.getName()))
-			.thenReturn(Optional.of(region));
+		givenCatalog(region);
 
 		Region retrieved = regionService.findByName(region.getName());
 
@@ -78,6 +89,7 @@ public class RegionServiceTest {
 
 		verify(regionDAO).save(regionCaptor.capture());
 		assertThat(regionCaptor.getValue(), equalTo(region));
+		verify(catalog).invalidate();
 	}
 
 	@Test
@@ -92,6 +104,7 @@ public class RegionServiceTest {
 
 		verify(regionDAO).save(regionCaptor.capture());
 		assertThat(regionCaptor.getValue(), equalTo(changedRegion));
+		verify(catalog).invalidate();
 	}
 
 	@Test
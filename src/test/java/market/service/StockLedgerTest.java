@@ -0,0 +1,197 @@
+package market.service;
+
+import market.exception.OutOfStockException;
+import market.service.order.StockLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Keeps the ledger in the embedded database, two stripes per product. The embedded database
+ * has no upsert of PostgreSQL, so the stock is put into the stripes directly, and the receipt
+ * is checked against a mocked template.
+ */
+public class StockLedgerTest {
+	private static final long PRODUCT = 1;
+	private static final long OTHER_PRODUCT = 2;
+	private static final long UNCOUNTED_PRODUCT = 3;
+	private static final long ORDER = 10;
+	private static final long OTHER_ORDER = 11;
+	private static final int STRIPES = 2;
+
+	private EmbeddedDatabase database;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private StockLedger stockLedger;
+
+	@BeforeEach
+	public void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+			.setType(EmbeddedDatabaseType.HSQL)
+			.build();
+		jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("CREATE TABLE product (id BIGINT PRIMARY KEY)");
+		jdbcTemplate.execute("CREATE TABLE customer_order (id BIGINT PRIMARY KEY)");
+		jdbcTemplate.execute("CREATE TABLE product_stock (" +
+			" product_id BIGINT NOT NULL REFERENCES product (id) ON DELETE CASCADE, stripe INT NOT NULL," +
+			" quantity INT NOT NULL CHECK (quantity >= 0), PRIMARY KEY (product_id, stripe))");
+		jdbcTemplate.execute("CREATE TABLE stock_ledger (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY," +
+			" product_id BIGINT NOT NULL REFERENCES product (id) ON DELETE CASCADE, delta INT NOT NULL," +
+			" order_id BIGINT REFERENCES customer_order (id), created TIMESTAMP NOT NULL)");
+		for (long product : new long[]{PRODUCT, OTHER_PRODUCT, UNCOUNTED_PRODUCT})
+			jdbcTemplate.update("INSERT INTO product (id) VALUES (?)", product);
+		for (long order : new long[]{ORDER, OTHER_ORDER})
+			jdbcTemplate.update("INSERT INTO customer_order (id) VALUES (?)", order);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+		stockLedger = new StockLedger(jdbcTemplate, STRIPES, 60000);
+		stock(PRODUCT, 3, 2);
+		stock(OTHER_PRODUCT, 1, 0);
+	}
+
+	private void stock(long productId, int... stripeQuantities) {
+		for (int stripe = 0; stripe < stripeQuantities.length; stripe++) {
+			jdbcTemplate.update("INSERT INTO product_stock (product_id, stripe, quantity) VALUES (?, ?, ?)",
+				productId, stripe, stripeQuantities[stripe]);
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void reserve() throws OutOfStockException {
+		reserve(ORDER, quantities(3, 1));
+
+		assertThat(stockLedger.available(PRODUCT), equalTo(OptionalInt.of(2)));
+		assertThat(stockLedger.available(OTHER_PRODUCT), equalTo(OptionalInt.of(0)));
+		assertThat(stockLedger.available(UNCOUNTED_PRODUCT), equalTo(OptionalInt.empty()));
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT SUM(delta) FROM stock_ledger WHERE product_id = ? AND order_id = ?", Integer.class, PRODUCT, ORDER),
+			equalTo(-3));
+		assertThat(new StockLedger(jdbcTemplate, STRIPES, 60000).available(PRODUCT), equalTo(OptionalInt.of(2)));
+	}
+
+	/**
+	 * No stripe has the whole quantity, but all of them together have.
+	 */
+	@Test
+	public void reserve_Gathered() throws OutOfStockException {
+		reserve(ORDER, quantities(5, 1));
+
+		assertThat(stockLedger.available(PRODUCT), equalTo(OptionalInt.of(0)));
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT SUM(delta) FROM stock_ledger WHERE product_id = ? AND order_id = ?", Integer.class, PRODUCT, ORDER),
+			equalTo(-5));
+	}
+
+	@Test
+	public void reserve_OutOfStock() {
+		assertThrows(OutOfStockException.class, () -> reserve(ORDER, quantities(3, 2)));
+
+		assertThat(stockLedger.available(PRODUCT), equalTo(OptionalInt.of(5)));
+		assertThat(stockLedger.available(OTHER_PRODUCT), equalTo(OptionalInt.of(1)));
+		assertThat(new StockLedger(jdbcTemplate, STRIPES, 60000).available(PRODUCT), equalTo(OptionalInt.of(5)));
+	}
+
+	/**
+	 * Another node has an estimate of its own, but reserves from the same stock.
+	 */
+	@Test
+	public void reserve_OtherNode() throws OutOfStockException {
+		StockLedger otherNode = new StockLedger(jdbcTemplate, STRIPES, 60000);
+		assertThat(otherNode.available(PRODUCT), equalTo(OptionalInt.of(5)));
+
+		reserve(ORDER, quantities(3, 1));
+
+		assertThrows(OutOfStockException.class, () -> reserve(otherNode, OTHER_ORDER, quantities(3, 0)));
+		assertThat(otherNode.available(PRODUCT), equalTo(OptionalInt.of(5)));
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT SUM(quantity) FROM product_stock WHERE product_id = ?", Integer.class, PRODUCT), equalTo(2));
+	}
+
+	@Test
+	public void reserve_RolledBack() {
+		transactionTemplate.execute(status -> {
+			try {
+				stockLedger.reserve(ORDER, quantities(5, 1));
+			} catch (OutOfStockException e) {
+				throw new IllegalStateException(e);
+			}
+			status.setRollbackOnly();
+			return null;
+		});
+
+		assertThat(stockLedger.available(PRODUCT), equalTo(OptionalInt.of(5)));
+		assertThat(stockLedger.available(OTHER_PRODUCT), equalTo(OptionalInt.of(1)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void receive_Spread() {
+		JdbcTemplate template = mock(JdbcTemplate.class);
+		StockLedger ledger = new StockLedger(template, 4, 60000);
+
+		transactionTemplate.execute(status -> {
+			ledger.receive(PRODUCT, 10);
+			return null;
+		});
+
+		ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+		verify(template).batchUpdate(argThat(sql -> sql.contains("ON CONFLICT")), rows.capture());
+		assertThat(rows.getValue().stream().map(row -> row[2]).collect(toList()), contains(3, 3, 2, 2));
+	}
+
+	private void reserve(long orderId, Map<Long, Integer> quantities) throws OutOfStockException {
+		reserve(stockLedger, orderId, quantities);
+	}
+
+	private void reserve(StockLedger stockLedger, long orderId, Map<Long, Integer> quantities)
+		throws OutOfStockException
+	{
+		try {
+			transactionTemplate.execute(status -> {
+				try {
+					stockLedger.reserve(orderId, quantities);
+				} catch (OutOfStockException e) {
+					throw new IllegalStateException(e);
+				}
+				return null;
+			});
+		} catch (IllegalStateException e) {
+			if (e.getCause() instanceof OutOfStockException)
+				throw (OutOfStockException) e.getCause();
+			throw e;
+		}
+	}
+
+	private static Map<Long, Integer> quantities(int product, int otherProduct) {
+		Map<Long, Integer> quantities = new HashMap<>();
+		quantities.put(PRODUCT, product);
+		quantities.put(OTHER_PRODUCT, otherProduct);
+		quantities.put(UNCOUNTED_PRODUCT, 7);
+		return quantities;
+	}
+}
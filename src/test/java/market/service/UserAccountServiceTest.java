@@ -3,6 +3,7 @@ package market.service;
 import market.dao.UserAccountDAO;
 import market.domain.UserAccount;
 import market.exception.EmailExistsException;
+import market.security.AccountUser;
 import market.service.impl.UserAccountServiceImpl;
 import market.util.FixturesFactory;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,11 +13,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class UserAccountServiceTest {
@@ -33,7 +37,7 @@ public class UserAccountServiceTest {
 	@BeforeEach
 	public void setUp() {
 		userAccount = FixturesFactory.account().build();
-		userAccountService = new UserAccountServiceImpl(userAccountDAO);
+		userAccountService = new UserAccountServiceImpl(userAccountDAO, 10);
 	}
 
 	@Test
@@ -46,6 +50,33 @@ public class UserAccountServiceTest {
 		assertThat(retrieved, equalTo(userAccount));
 	}
 
+	@Test
+	public void findIdByEmail_Cached() {
+		when(userAccountDAO.findIdByEmail(userAccount.getEmail()))
+			.thenReturn(userAccount.getId());
+
+		Long first = userAccountService.findIdByEmail(userAccount.getEmail());
+		Long second = userAccountService.findIdByEmail(userAccount.getEmail());
+
+		assertThat(first, equalTo(userAccount.getId()));
+		assertThat(second, equalTo(userAccount.getId()));
+		verify(userAccountDAO, times(1)).findIdByEmail(userAccount.getEmail());
+	}
+
+	@Test
+	public void findIdByEmail_Principal() {
+		AccountUser user = new AccountUser(userAccount.getId(), userAccount.getEmail(), "", true, true, true, true,
+			AuthorityUtils.createAuthorityList("ROLE_USER"));
+		SecurityContextHolder.getContext().setAuthentication(
+			new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+		try {
+			assertThat(userAccountService.findIdByEmail(userAccount.getEmail()), equalTo(userAccount.getId()));
+			verify(userAccountDAO, never()).findIdByEmail(anyString());
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
 	@Test
 	public void create() throws EmailExistsException {
 		when(userAccountDAO.findByEmail(userAccount.getEmail()))
@@ -0,0 +1,116 @@
+package market.session;
+
+import market.dto.CartDTO;
+import market.dto.CartItemDTO;
+import market.dto.OrderDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Keeps the sessions in the embedded database, as the JDBC session store of the application does.
+ */
+public class SessionAttributeConverterTest {
+	private static final String EMAIL = "ivan.petrov@yandex.ru";
+
+	private EmbeddedDatabase database;
+	private GenericConversionService conversionService;
+	private JdbcIndexedSessionRepository sessionRepository;
+	private CartDTO cart;
+
+	@BeforeEach
+	public void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+			.setType(EmbeddedDatabaseType.HSQL)
+			.addScript("org/springframework/session/jdbc/schema-hsqldb.sql")
+			.build();
+		conversionService = new GenericConversionService();
+		conversionService.addConverter(new SessionAttributeConverter(getClass().getClassLoader()));
+		sessionRepository = new JdbcIndexedSessionRepository(new JdbcTemplate(database),
+			new TransactionTemplate(new DataSourceTransactionManager(database)));
+		sessionRepository.setConversionService(conversionService);
+
+		cart = new CartDTO();
+		cart.setUser(EMAIL);
+		cart.setCartItems(Arrays.asList(new CartItemDTO(12, 2), new CartItemDTO(15, 1)));
+		cart.setItemsCount(2);
+		cart.setProductsCost(5100);
+		cart.setDeliveryCost(400);
+		cart.setDeliveryIncluded(true);
+		cart.setTotalCost(5500);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void convert_Cart() {
+		byte[] bytes = conversionService.convert(cart, byte[].class);
+		CartDTO converted = (CartDTO) conversionService.convert(bytes, Object.class);
+
+		assertThat(bytes.length, lessThan(100));
+		assertThat(converted.getUser(), equalTo(EMAIL));
+		assertThat(converted.isDeliveryIncluded(), equalTo(true));
+		assertThat(converted.getDeliveryCost(), equalTo(400));
+		assertThat(converted.getProductsCost(), equalTo(5100.0));
+		assertThat(converted.getTotalCost(), equalTo(5500.0));
+		assertThat(converted.getItemsCount(), equalTo(2));
+		assertThat(converted.getCartItems().get(1).getProductId(), equalTo(15L));
+		assertThat(converted.getCartItems().get(1).getQuantity(), equalTo(1));
+	}
+
+	@Test
+	public void convert_Serializable() {
+		OrderDTO order = new OrderDTO();
+		order.setOrderId(7);
+		order.setUser(EMAIL);
+
+		OrderDTO converted = (OrderDTO) conversionService.convert(conversionService.convert(order, byte[].class), Object.class);
+
+		assertThat(converted.getOrderId(), equalTo(7L));
+		assertThat(converted.getUser(), equalTo(EMAIL));
+	}
+
+	@Test
+	public void sessionStore() {
+		saveAndFind(sessionRepository);
+	}
+
+	private <S extends Session> void saveAndFind(FindByIndexNameSessionRepository<S> sessionRepository) {
+		S session = sessionRepository.createSession();
+		session.setAttribute("cart", cart);
+		session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+			new SecurityContextImpl(new UsernamePasswordAuthenticationToken(EMAIL, null,
+				AuthorityUtils.createAuthorityList("ROLE_USER"))));
+		sessionRepository.save(session);
+
+		S found = sessionRepository.findById(session.getId());
+
+		CartDTO foundCart = found.getAttribute("cart");
+		assertThat(foundCart.getCartItems(), hasSize(2));
+		assertThat(foundCart.getTotalCost(), equalTo(5500.0));
+		assertThat(sessionRepository.findByIndexNameAndIndexValue(
+			FindByIndexNameSessionRepository.PRINCIPAL_NAME_INDEX_NAME, EMAIL).keySet(), contains(session.getId()));
+	}
+}
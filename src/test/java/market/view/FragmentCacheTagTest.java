@@ -0,0 +1,89 @@
+package market.view;
+
+import market.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPageContext;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.jsp.JspContext;
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+import javax.servlet.jsp.tagext.JspFragment;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FragmentCacheTagTest {
+	private static final String TEMPLATE_URI = "/WEB-INF/view/templates/frontend/template.jsp";
+
+	@Mock
+	private ProductService productService;
+
+	private FragmentCache fragmentCache;
+	private StaticWebApplicationContext context;
+
+	@BeforeEach
+	public void setUp() {
+		when(productService.getCatalogVersion())
+			.thenReturn(1L);
+		fragmentCache = new FragmentCache(productService, 10);
+		context = new StaticWebApplicationContext();
+		context.getBeanFactory().registerSingleton("fragmentCache", fragmentCache);
+	}
+
+	/**
+	 * Both region pages are forwarded to the same template, with the same query string.
+	 */
+	@Test
+	public void doTag_TwoRegions() throws Exception {
+		assertThat(renderRegion(1, "dist=0"), equalTo("distilleries of region 1, dist=0"));
+		assertThat(renderRegion(2, "dist=0"), equalTo("distilleries of region 2, dist=0"));
+		assertThat(renderRegion(1, "dist=0&sort=price"), equalTo("distilleries of region 1, dist=0&sort=price"));
+		assertThat(renderRegion(2, "dist=0"), equalTo("distilleries of region 2, dist=0"));
+	}
+
+	private String renderRegion(long regionId, String queryString) throws JspException, IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", TEMPLATE_URI);
+		request.setAttribute(WebUtils.FORWARD_REQUEST_URI_ATTRIBUTE, "/regions/" + regionId);
+		request.setAttribute(WebUtils.FORWARD_QUERY_STRING_ATTRIBUTE, queryString);
+		request.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE, context);
+		fragmentCache.begin(request);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		PageContext pageContext = new MockPageContext(new MockServletContext(), request, response);
+
+		FragmentCacheTag tag = new FragmentCacheTag();
+		tag.setJspContext(pageContext);
+		tag.setJspBody(new JspFragment() {
+			@Override
+			public void invoke(Writer out) throws JspException, IOException {
+				Writer writer = (out != null) ? out : pageContext.getOut();
+				writer.write("distilleries of region " + regionId + ", " + queryString);
+			}
+
+			@Override
+			public JspContext getJspContext() {
+				return pageContext;
+			}
+		});
+		tag.setName("distilleries-filter");
+		tag.setKey(regionId);
+		tag.setVaryByQuery(true);
+		tag.doTag();
+
+		pageContext.getOut().flush();
+		return response.getContentAsString();
+	}
+}
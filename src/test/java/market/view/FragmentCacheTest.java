@@ -0,0 +1,90 @@
+package market.view;
+
+import market.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FragmentCacheTest {
+	private static final String KEY = "menu|1";
+
+	@Mock
+	private ProductService productService;
+
+	private FragmentCache fragmentCache;
+
+	@BeforeEach
+	public void setUp() {
+		fragmentCache = new FragmentCache(productService, 2);
+	}
+
+	private MockHttpServletRequest requestOfVersion(long version) {
+		when(productService.getCatalogVersion())
+			.thenReturn(version);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		fragmentCache.begin(request);
+		return request;
+	}
+
+	@Test
+	public void get_SameVersion() {
+		fragmentCache.put(requestOfVersion(1), KEY, "fragment");
+
+		assertThat(fragmentCache.get(requestOfVersion(1), KEY), equalTo("fragment"));
+	}
+
+	@Test
+	public void get_NewerVersion() {
+		fragmentCache.put(requestOfVersion(1), KEY, "fragment");
+
+		assertThat(fragmentCache.get(requestOfVersion(2), KEY), nullValue());
+	}
+
+	@Test
+	public void put_OutdatedVersion() {
+		MockHttpServletRequest outdated = requestOfVersion(1);
+		fragmentCache.put(requestOfVersion(2), KEY, "fragment");
+
+		fragmentCache.put(outdated, KEY, "outdated fragment");
+
+		assertThat(fragmentCache.get(requestOfVersion(2), KEY), equalTo("fragment"));
+	}
+
+	@Test
+	public void put_Bounded() {
+		MockHttpServletRequest request = requestOfVersion(1);
+		fragmentCache.put(request, "a", "fragment a");
+		fragmentCache.put(request, "b", "fragment b");
+		fragmentCache.get(request, "a");
+
+		fragmentCache.put(request, "c", "fragment c");
+
+		assertThat(fragmentCache.get(request, "a"), equalTo("fragment a"));
+		assertThat(fragmentCache.get(request, "b"), nullValue());
+	}
+
+	@Test
+	public void isCacheable() {
+		MockHttpServletRequest withoutSession = requestOfVersion(1);
+		MockHttpServletRequest withRewrittenLinks = requestOfVersion(1);
+		withRewrittenLinks.getSession(true);
+		withRewrittenLinks.setRequestedSessionIdFromCookie(false);
+		MockHttpServletRequest withCookie = requestOfVersion(1);
+		withCookie.getSession(true);
+		withCookie.setRequestedSessionIdFromCookie(true);
+
+		assertThat(fragmentCache.isCacheable(withoutSession), equalTo(true));
+		assertThat(fragmentCache.isCacheable(withRewrittenLinks), equalTo(false));
+		assertThat(fragmentCache.isCacheable(withCookie), equalTo(true));
+		assertThat(fragmentCache.isCacheable(new MockHttpServletRequest()), equalTo(false));
+	}
+}
@@ -0,0 +1,136 @@
+package market.view;
+
+import market.security.GuestCartCookie;
+import market.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PageCacheFilterTest {
+	private static final String BODY = "<html>regions</html>";
+
+	@Mock
+	private ProductService productService;
+
+	private PageCacheFilter filter;
+	private final AtomicInteger renderings = new AtomicInteger();
+	private final FilterChain chain = (request, response) -> {
+		renderings.incrementAndGet();
+		((HttpServletRequest) request).getSession(true);
+		response.setContentType("text/html;charset=UTF-8");
+		response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+	};
+
+	@BeforeEach
+	public void setUp() {
+		filter = new PageCacheFilter(productService, 10, 1024);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	private static MockHttpServletRequest get(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.addParameter("sort", "price");
+		return request;
+	}
+
+	@Test
+	public void doFilter_Cached() throws Exception {
+		when(productService.getCatalogVersion())
+			.thenReturn(1L);
+
+		MockHttpServletRequest first = get("/regions/1");
+		MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+		filter.doFilter(first, firstResponse, chain);
+		MockHttpServletRequest second = get("/regions/1");
+		second.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+		MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+		filter.doFilter(second, secondResponse, chain);
+
+		assertThat(renderings.get(), equalTo(1));
+		assertThat(firstResponse.getContentAsString(), equalTo(BODY));
+		assertThat(first.getSession(false), nullValue());
+		assertThat(secondResponse.getHeader(HttpHeaders.CONTENT_ENCODING), equalTo("gzip"));
+		assertThat(secondResponse.getContentType(), equalTo("text/html;charset=UTF-8"));
+		assertThat(gunzip(secondResponse.getContentAsByteArray()), equalTo(BODY));
+	}
+
+	@Test
+	public void doFilter_CatalogChanged() throws Exception {
+		when(productService.getCatalogVersion())
+			.thenReturn(1L, 2L);
+
+		filter.doFilter(get("/regions/1"), new MockHttpServletResponse(), chain);
+		filter.doFilter(get("/regions/1"), new MockHttpServletResponse(), chain);
+
+		assertThat(renderings.get(), equalTo(2));
+	}
+
+	@Test
+	public void doFilter_OtherParameters() throws Exception {
+		when(productService.getCatalogVersion())
+			.thenReturn(1L);
+		MockHttpServletRequest otherSort = get("/regions/1");
+		otherSort.setParameter("sort", "name");
+
+		filter.doFilter(get("/regions/1"), new MockHttpServletResponse(), chain);
+		filter.doFilter(otherSort, new MockHttpServletResponse(), chain);
+
+		assertThat(renderings.get(), equalTo(2));
+	}
+
+	@Test
+	public void doFilter_NotCacheable() throws Exception {
+		MockHttpServletRequest withSession = get("/regions/1");
+		withSession.setSession(new MockHttpSession());
+		MockHttpServletRequest otherPath = get("/cart");
+		MockHttpServletRequest withGuestCart = get("/regions/1");
+		withGuestCart.setCookies(new Cookie(GuestCartCookie.NAME, "0|1:1.signature"));
+		MockHttpServletRequest authenticated = get("/regions/1");
+
+		filter.doFilter(withSession, new MockHttpServletResponse(), chain);
+		filter.doFilter(withSession, new MockHttpServletResponse(), chain);
+		filter.doFilter(otherPath, new MockHttpServletResponse(), chain);
+		filter.doFilter(otherPath, new MockHttpServletResponse(), chain);
+		filter.doFilter(withGuestCart, new MockHttpServletResponse(), chain);
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("user", "password"));
+		filter.doFilter(authenticated, new MockHttpServletResponse(), chain);
+
+		assertThat(renderings.get(), equalTo(6));
+		assertThat(otherPath.getSession(false) != null, equalTo(true));
+	}
+
+	private static String gunzip(byte[] gzipped) throws IOException {
+		try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			return new String(StreamUtils.copyToByteArray(gunzip), StandardCharsets.UTF_8);
+		}
+	}
+}